@@ -0,0 +1,33 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+/** Forwards the operations of a diff, or of a batch of updates, to an adapter's notify calls. */
+class AdapterDiffCallback implements DiffCallback {
+  private final RecyclerView.Adapter<?> adapter;
+
+  AdapterDiffCallback(RecyclerView.Adapter<?> adapter) {
+    this.adapter = adapter;
+  }
+
+  @Override
+  public void onInserted(int positionStart, int itemCount) {
+    adapter.notifyItemRangeInserted(positionStart, itemCount);
+  }
+
+  @Override
+  public void onRemoved(int positionStart, int itemCount) {
+    adapter.notifyItemRangeRemoved(positionStart, itemCount);
+  }
+
+  @Override
+  public void onMoved(int fromPosition, int toPosition) {
+    adapter.notifyItemMoved(fromPosition, toPosition);
+  }
+
+  @Override
+  public void onChanged(int positionStart, int itemCount, @Nullable Object payload) {
+    adapter.notifyItemRangeChanged(positionStart, itemCount, payload);
+  }
+}
@@ -29,6 +29,14 @@ public class BoundViewHolders implements Iterable<EpoxyViewHolder> {
     return holders.size();
   }
 
+  /**
+   * @return The holder at the given index, between 0 and {@link #size()}. Looping over the indexes
+   * avoids creating an iterator.
+   */
+  public EpoxyViewHolder getHolderAt(int index) {
+    return holders.valueAt(index);
+  }
+
   @Override
   public Iterator<EpoxyViewHolder> iterator() {
     return new HolderIterator();
@@ -52,7 +60,7 @@ public class BoundViewHolders implements Iterable<EpoxyViewHolder> {
       if (!hasNext()) {
         throw new NoSuchElementException();
       }
-      return holders.valueAt(position++);
+      return getHolderAt(position++);
     }
 
     @Override
@@ -1,27 +1,50 @@
 
 package com.airbnb.epoxy;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.Nullable;
+import android.support.v4.util.LongSparseArray;
 import android.support.v7.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
- * Helper to track changes in the models list.
+ * Helper to track changes in the models list. The diff itself is computed by {@link ListDiffer}
+ * over the ids and hash codes of the models, and its operations are forwarded to the adapter.
  */
 class DiffHelper {
-  private ArrayList<ModelState> oldStateList = new ArrayList<>();
-  // Using a HashMap instead of a LongSparseArray to
-  // have faster look up times at the expense of memory
-  private Map<Long, ModelState> oldStateMap = new HashMap<>();
-  private ArrayList<ModelState> currentStateList = new ArrayList<>();
-  private Map<Long, ModelState> currentStateMap = new HashMap<>();
+  /** The most payloads to keep, so that many different sets of changed attributes don't pile up. */
+  private static final int MAX_CACHED_PAYLOADS = 64;
+  /**
+   * Shared by all adapters by default. A single thread is enough since a newer diff always cancels
+   * an older one for the same adapter, and only one thread is ever created.
+   */
+  private static final Executor DEFAULT_DIFF_EXECUTOR =
+      Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "epoxy-diff");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  // The state of the models from the last diff, and the state being built for the next one. The two
+  // are swapped for each diff so that neither allocates once they have grown to fit the models.
+  private ModelStateList oldStateList = new ModelStateList();
+  private ModelStateList currentStateList = new ModelStateList();
   private final EpoxyAdapter adapter;
+  /** Forwards the operations of a diff to the adapter's notify calls. */
+  private final DiffCallback adapterCallback;
   private final DifferModelListObserver modelListObserver = new DifferModelListObserver();
+  /** Only used for diffs on the main thread. Async diffs each use their own. */
+  private final MoveCollector moveCollector = new MoveCollector();
+  /** Only used for diffs on the main thread. Async diffs each use their own. */
+  private final UpdateOpHelper updateOpHelper = new UpdateOpHelper();
   /**
    * Set to true if an end user notifies adapter changes. We track this because our {@link
    * #modelListObserver} already tracks structural changes and we shouldn't double notify those
@@ -32,9 +55,59 @@ class DiffHelper {
    * were notified, but that does not seem worth the effort for this small case.
    */
   private boolean notifiedOfStructuralChanges;
+  /**
+   * Set when an async diff takes its snapshot. The {@link #modelListObserver} is reset at that
+   * point, so if that diff is never applied the observer no longer has a full record of the changes
+   * since the state list was last updated, and the next diff must be a full one.
+   */
+  private boolean requiresFullDiff;
+  /**
+   * If enabled, the hash code of a model is only read if the model has been marked dirty since the
+   * last diff, or is a different instance than last time.
+   */
+  private boolean dirtyTrackingEnabled;
+  /** If enabled, changed items are notified with a payload of their changed attributes. */
+  private boolean diffPayloadsEnabled;
+  /**
+   * The payload for each set of changed attributes, so that notifying a change doesn't box a new
+   * Long. Models usually change the same few attributes, so only a few are needed.
+   */
+  private final LongSparseArray<Long> payloadsByAttributes = new LongSparseArray<>();
+  /** If enabled, contiguous runs of moved items are notified as a removal and an insertion. */
+  private boolean moveBatchingEnabled;
+  /**
+   * The most insertion, removal, and move operations a full diff may notify. If a diff needs more
+   * than this, the whole list is notified as changed instead.
+   */
+  private int maxDiffOperations = Integer.MAX_VALUE;
+  @Nullable private DiffMetricsListener metricsListener;
+  /**
+   * Filled in by each main thread diff. Async diffs each use their own. Timing every phase only
+   * takes a few calls to {@link System#nanoTime()} per diff, so it is always done.
+   */
+  private final DiffMetrics metrics = new DiffMetrics();
+  /** The new position of each state when the models list was only reordered. */
+  private int[] reorderTargets = new int[0];
+  /**
+   * Set while notifying changes that were already applied to the models list, such as the ones
+   * recorded by the {@link #modelListObserver}. The models for inserted and changed positions can
+   * only be read once every change has been replayed.
+   */
+  private boolean replayingModelListChanges;
+
+  private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+  private Executor diffExecutor = DEFAULT_DIFF_EXECUTOR;
+  /** The async diff that is currently being computed, or null if there is none. */
+  @Nullable private AsyncDiff pendingDiff;
+  /**
+   * Incremented each time the pending async diff is replaced or cancelled. This is read from the
+   * background thread so a stale diff can stop early without touching main thread state.
+   */
+  private volatile int diffGeneration;
 
   DiffHelper(EpoxyAdapter adapter) {
     this.adapter = adapter;
+    adapterCallback = new AdapterDiffCallback(adapter);
     adapter.registerAdapterDataObserver(observer);
     ((ModelList) adapter.models).setObserver(modelListObserver);
   }
@@ -48,8 +121,23 @@ class DiffHelper {
 
     @Override
     public void onItemRangeChanged(int positionStart, int itemCount) {
+      if (pendingDiff != null) {
+        // The positions refer to the updated models list, which the state list does not reflect
+        // yet. Diffing again will pick up this change along with everything else.
+        notifyModelChangesAsync();
+        return;
+      }
+
+      if (replayingModelListChanges) {
+        // The positions may not line up with the models list yet, so the states are refreshed
+        // once every change has been replayed
+        Arrays.fill(currentStateList.models, positionStart, positionStart + itemCount, null);
+        return;
+      }
+
       for (int i = positionStart; i < positionStart + itemCount; i++) {
-        currentStateList.get(i).hashCode = adapter.models.get(i).hashCode();
+        EpoxyModel<?> model = adapter.models.get(i);
+        currentStateList.setHashCode(i, model, model.hashCode());
       }
     }
 
@@ -60,26 +148,19 @@ class DiffHelper {
         return;
       }
 
+      assertNoPendingDiff();
       notifiedOfStructuralChanges = true;
 
-      if (itemCount == 1 || positionStart == currentStateList.size()) {
-        for (int i = positionStart; i < positionStart + itemCount; i++) {
-          currentStateList.add(i, createStateForPosition(i));
-        }
-      } else {
-        // Add in a batch since multiple insertions to the middle of the list are slow
-        List<ModelState> newModels = new ArrayList<>(itemCount);
-        for (int i = positionStart; i < positionStart + itemCount; i++) {
-          newModels.add(createStateForPosition(i));
-        }
-
-        currentStateList.addAll(positionStart, newModels);
+      currentStateList.insertRange(positionStart, itemCount);
+      if (replayingModelListChanges) {
+        return;
       }
 
-      // Update positions of affected items
-      int size = currentStateList.size();
-      for (int i = positionStart + itemCount; i < size; i++) {
-        currentStateList.get(i).position += itemCount;
+      for (int i = positionStart; i < positionStart + itemCount; i++) {
+        EpoxyModel<?> model = adapter.models.get(i);
+        model.addedToAdapter = true;
+        int previousPosition = currentStateList.set(i, model, model.hashCode());
+        assertUniqueId(i, previousPosition);
       }
     }
 
@@ -90,20 +171,18 @@ class DiffHelper {
         return;
       }
 
+      assertNoPendingDiff();
       notifiedOfStructuralChanges = true;
 
-      List<ModelState> modelsToRemove =
-          currentStateList.subList(positionStart, positionStart + itemCount);
-      for (ModelState model : modelsToRemove) {
-        currentStateMap.remove(model.id);
-      }
-      modelsToRemove.clear();
-
-      // Update positions of affected items
-      int size = currentStateList.size();
-      for (int i = positionStart; i < size; i++) {
-        currentStateList.get(i).position -= itemCount;
+      if (adapter.tracksRemovedModels()) {
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+          // A gap left by a replayed insertion has no id yet
+          if (!currentStateList.isGap(i)) {
+            adapter.onModelRemoved(currentStateList.ids[i]);
+          }
+        }
       }
+      currentStateList.removeRange(positionStart, itemCount);
     }
 
     @Override
@@ -118,47 +197,64 @@ class DiffHelper {
             + "supported. Number of items moved: " + itemCount);
       }
 
+      assertNoPendingDiff();
       notifiedOfStructuralChanges = true;
 
-      ModelState model = currentStateList.remove(fromPosition);
-      model.position = toPosition;
-      currentStateList.add(toPosition, model);
-
-      if (fromPosition < toPosition) {
-        // shift the affected items left
-        for (int i = fromPosition; i < toPosition; i++) {
-          currentStateList.get(i).position--;
-        }
-      } else {
-        // shift the affected items right
-        for (int i = toPosition + 1; i <= fromPosition; i++) {
-          currentStateList.get(i).position++;
-        }
-      }
+      currentStateList.move(fromPosition, toPosition);
     }
   };
 
+  private void assertNoPendingDiff() {
+    if (pendingDiff != null) {
+      throw new IllegalStateException("Item insertions, removals, and moves cannot be notified "
+          + "while an async diff is in progress. Use notifyModelsChangedAsync instead.");
+    }
+  }
+
   /**
    * Set the current list of models. The diff callbacks will be notified of the changes between the
    * current list and the last list that was set.
    */
   void notifyModelChanges() {
-    UpdateOpHelper updateOpHelper = new UpdateOpHelper();
+    cancelPendingDiff();
+    updateOpHelper.reset();
+    metrics.reset();
 
-    if (modelListObserver.hasNoChanges()) {
+    if (requiresFullDiff) {
+      buildDiff(updateOpHelper);
+    } else if (modelListObserver.hasNoChanges()) {
+      metrics.path = DiffMetrics.PATH_NO_CHANGES;
+      long start = System.nanoTime();
       updateHashes(updateOpHelper);
+      metrics.changesNanos = System.nanoTime() - start;
     } else if (!notifiedOfStructuralChanges
-        && (modelListObserver.hasOnlyInsertions() || modelListObserver.hasOnlyRemovals())) {
+        && (modelListObserver.hasOnlyInsertions() || modelListObserver.hasOnlyRemovals())
+        && modelListObserver.opList.size() <= maxDiffOperations) {
       // If the list only had insertions OR removals then nothing could have moved, and the observer
       // has an accurate record of the removals/insertions. We can use it to update the state list,
       // and then just need to check for item updates. If the user already notified some of these
       // changes then we don't know what is left to notify and don't want to duplicate the notify
-      // calls so we do a full diff instead.
+      // calls so we do a full diff instead. Likewise if there are too many operations to notify,
+      // since the full diff will fall back to notifying the whole list as changed.
 
       // We don't suspend our own observer for this because they will update the models list
       // for us to reflect the insertions or removals
-      notifyChanges(modelListObserver);
+      metrics.path = DiffMetrics.PATH_INSERTIONS_OR_REMOVALS;
+      long start = System.nanoTime();
+      notifyAppliedChanges(modelListObserver);
+      metrics.notifyNanos = System.nanoTime() - start;
+      metrics.countOperations(modelListObserver.opList);
+
+      start = System.nanoTime();
+      updateHashes(updateOpHelper);
+      metrics.changesNanos = System.nanoTime() - start;
+    } else if (!notifiedOfStructuralChanges && modelListObserver.hasOnlyReplacements()
+        && collectReorder(updateOpHelper)) {
+      // The list was reordered, so the moves were found from the new order of the ids we already
+      // know about and the state list was reordered to match. Only changes are left to check.
+      long start = System.nanoTime();
       updateHashes(updateOpHelper);
+      metrics.changesNanos = System.nanoTime() - start;
     } else {
       // We need to run a full diff to figure out what changed
       buildDiff(updateOpHelper);
@@ -166,318 +262,472 @@ class DiffHelper {
 
     // Send out the proper notify calls for the diff. We remove our
     // observer first so that we don't react to our own notify calls
+    long start = System.nanoTime();
     adapter.unregisterAdapterDataObserver(observer);
     notifyChanges(updateOpHelper);
     adapter.registerAdapterDataObserver(observer);
+    metrics.notifyNanos += System.nanoTime() - start;
+    metrics.countOperations(updateOpHelper.opList);
 
     modelListObserver.reset();
     notifiedOfStructuralChanges = false;
+    requiresFullDiff = false;
+
+    dispatchMetrics(metrics);
   }
 
   /**
-   * This updates our state list with the current model hashes and collects any update
-   * notifications. Used only when the state list is already up to date with the adapter models.
+   * Like {@link #notifyModelChanges()}, but only the model ids and hashes are read on the calling
+   * thread. The diff itself is computed on {@link #diffExecutor} and the resulting notify calls
+   * are posted back to the main thread. Until then the adapter keeps reporting the models from the
+   * state list, which is what RecyclerView was last notified of.
+   * <p>
+   * Requesting another diff before this one is applied cancels it. If the models list is modified
+   * after the snapshot is taken the result is discarded and a new diff is started.
    */
-  private void updateHashes(UpdateOpHelper updateOpHelper) {
-    int modelCount = adapter.models.size();
+  void notifyModelChangesAsync() {
+    cancelPendingDiff();
 
-    if (modelCount != currentStateList.size()) {
-      throw new IllegalStateException("State list does not match current models");
-    }
+    long start = System.nanoTime();
+    ModelStateList previousStateList = new ModelStateList(currentStateList.size());
+    previousStateList.copyFrom(currentStateList);
 
+    int modelCount = adapter.models.size();
+    ModelStateList newStateList = new ModelStateList(modelCount);
     for (int i = 0; i < modelCount; i++) {
-      EpoxyModel<?> model = adapter.models.get(i);
-      ModelState state = currentStateList.get(i);
-      int newHash = model.hashCode();
+      addStateForPosition(i, newStateList, currentStateList);
+    }
 
-      if (state.hashCode != newHash) {
-        updateOpHelper.update(i);
-        state.hashCode = newHash;
-      }
+    // Changes made from here on are detected when the result is applied
+    modelListObserver.reset();
+    requiresFullDiff = true;
+
+    pendingDiff = new AsyncDiff(diffGeneration, previousStateList, newStateList,
+        moveBatchingEnabled, maxDiffOperations);
+    pendingDiff.metrics.prepareStateNanos = System.nanoTime() - start;
+    diffExecutor.execute(pendingDiff);
+  }
+
+  void setDiffExecutor(Executor executor) {
+    diffExecutor = executor;
+  }
+
+  void setDirtyTrackingEnabled(boolean enabled) {
+    dirtyTrackingEnabled = enabled;
+  }
+
+  void setDiffPayloadsEnabled(boolean enabled) {
+    diffPayloadsEnabled = enabled;
+  }
+
+  void setMoveBatchingEnabled(boolean enabled) {
+    moveBatchingEnabled = enabled;
+    moveCollector.setBatchRuns(enabled);
+  }
+
+  void setMaxDiffOperations(int maxOperations) {
+    if (maxOperations < 0) {
+      throw new IllegalArgumentException("Max operations cannot be negative: " + maxOperations);
     }
+
+    maxDiffOperations = maxOperations;
   }
 
-  private void notifyChanges(UpdateOpHelper opHelper) {
-    for (UpdateOp op : opHelper.opList) {
-      switch (op.type) {
-        case UpdateOp.ADD:
-          adapter.notifyItemRangeInserted(op.positionStart, op.itemCount);
-          break;
-        case UpdateOp.MOVE:
-          adapter.notifyItemMoved(op.positionStart, op.itemCount);
-          break;
-        case UpdateOp.REMOVE:
-          adapter.notifyItemRangeRemoved(op.positionStart, op.itemCount);
-          break;
-        case UpdateOp.UPDATE:
-          adapter.notifyItemRangeChanged(op.positionStart, op.itemCount);
-          break;
-        default:
-          throw new IllegalArgumentException("Unknown type: " + op.type);
-      }
+  void setDiffMetricsListener(@Nullable DiffMetricsListener listener) {
+    metricsListener = listener;
+  }
+
+  private void dispatchMetrics(DiffMetrics metrics) {
+    if (metricsListener != null) {
+      metrics.modelCount = currentStateList.size();
+      metricsListener.onDiffComplete(metrics);
     }
   }
 
   /**
-   * Create a list of operations that define the difference between {@link #oldStateList} and {@link
-   * #currentStateList}.
+   * True if an async diff has been requested but not applied yet. While this is true the adapter
+   * should use {@link #getNotifiedModelCount()} and {@link #getNotifiedModel(int)}, since the
+   * models list may not match what RecyclerView knows about.
    */
-  private UpdateOpHelper buildDiff(UpdateOpHelper updateOpHelper) {
-    prepareStateForDiff();
-
-    // The general approach is to first search for removals, then additions, and lastly changes.
-    // Focusing on one type of operation at a time makes it easy to coalesce batch changes.
-    // When we identify an operation and add it to the
-    // result list we update the positions of items in the oldStateList to reflect
-    // the change, this way subsequent operations will use the correct, updated positions.
-    collectRemovals(updateOpHelper);
+  boolean isDiffInProgress() {
+    return pendingDiff != null;
+  }
 
-    // Only need to check for insertions if new list is bigger
-    boolean hasInsertions =
-        oldStateList.size() - updateOpHelper.getNumRemovals() != currentStateList.size();
-    if (hasInsertions) {
-      collectInsertions(updateOpHelper);
-    }
+  int getNotifiedModelCount() {
+    return currentStateList.size();
+  }
 
-    collectMoves(updateOpHelper);
-    collectChanges(updateOpHelper);
+  EpoxyModel<?> getNotifiedModel(int position) {
+    return currentStateList.models[position];
+  }
 
-    return updateOpHelper;
+  /** @return True if RecyclerView was last notified of a model with the given id. */
+  boolean hasNotifiedId(long id) {
+    return currentStateList.indexOf(id) != -1;
   }
 
-  private void prepareStateForDiff() {
-    // We use a list of the models as well as a map by their id,
-    // so we can easily find them by both position and id
+  private void cancelPendingDiff() {
+    if (pendingDiff != null) {
+      pendingDiff = null;
+      diffGeneration++;
+    }
+  }
 
-    oldStateList.clear();
-    oldStateMap.clear();
+  private void applyAsyncDiff(AsyncDiff diff) {
+    if (diff != pendingDiff) {
+      // A newer diff was requested after this one started
+      return;
+    }
 
-    // Swap the two lists so that we have a copy of the current state to calculate the next diff
-    ArrayList<ModelState> tempList = oldStateList;
-    oldStateList = currentStateList;
-    currentStateList = tempList;
+    pendingDiff = null;
 
-    Map<Long, ModelState> tempMap = oldStateMap;
-    oldStateMap = currentStateMap;
-    currentStateMap = tempMap;
+    if (!modelListObserver.hasNoChanges()) {
+      // The models list was modified while we were diffing, so the result is out of date
+      notifyModelChangesAsync();
+      return;
+    }
 
-    // Remove all pairings in the old states so we can tell which of them were removed. The items
-    // that still exist in the new list will be paired when we build the current list state below
-    for (ModelState modelState : oldStateList) {
-      modelState.pair = null;
+    // Changes are collected here instead of on the background thread since computing their
+    // payloads reads the models, which may be modified on the main thread at any time
+    DiffMetrics diffMetrics = diff.metrics;
+    if (!diffMetrics.exceededBudget) {
+      long start = System.nanoTime();
+      collectChanges(diff.previousStateList, diff.newStateList, diff.updateOpHelper);
+      diffMetrics.changesNanos = System.nanoTime() - start;
     }
 
-    int modelCount = adapter.models.size();
-    currentStateList.ensureCapacity(modelCount);
+    // The replaced list is kept so the next main thread diff can reuse it
+    oldStateList = currentStateList;
+    currentStateList = diff.newStateList;
+    dispatchRemovedModels();
 
-    for (int i = 0; i < modelCount; i++) {
-      currentStateList.add(createStateForPosition(i));
-    }
+    long start = System.nanoTime();
+    adapter.unregisterAdapterDataObserver(observer);
+    notifyChanges(diff.updateOpHelper);
+    adapter.registerAdapterDataObserver(observer);
+    diffMetrics.notifyNanos = System.nanoTime() - start;
+    diffMetrics.countOperations(diff.updateOpHelper.opList);
+
+    notifiedOfStructuralChanges = false;
+    requiresFullDiff = false;
+
+    dispatchMetrics(diffMetrics);
   }
 
-  private ModelState createStateForPosition(int position) {
-    EpoxyModel<?> model = adapter.models.get(position);
-    model.addedToAdapter = true;
-    ModelState state = ModelState.build(model, position);
+  /**
+   * Computes a diff between two snapshots of state. Neither list is shared with the main thread, so
+   * the diff can be run from any thread.
+   */
+  private class AsyncDiff implements Runnable {
+    private final int generation;
+    private final ModelStateList previousStateList;
+    private final ModelStateList newStateList;
+    private final UpdateOpHelper updateOpHelper = new UpdateOpHelper();
+    private final MoveCollector moveCollector = new MoveCollector();
+    private final int maxOperations;
+    /** The diff phases are written on the background thread, and the rest on the main thread. */
+    private final DiffMetrics metrics = new DiffMetrics();
+
+    AsyncDiff(int generation, ModelStateList previousStateList, ModelStateList newStateList,
+        boolean batchMoves, int maxOperations) {
+      this.generation = generation;
+      this.previousStateList = previousStateList;
+      this.newStateList = newStateList;
+      this.maxOperations = maxOperations;
+      moveCollector.setBatchRuns(batchMoves);
+      metrics.path = DiffMetrics.PATH_FULL_DIFF;
+      metrics.async = true;
+    }
 
-    ModelState previousValue = currentStateMap.put(state.id, state);
-    if (previousValue != null) {
-      int previousPosition = previousValue.position;
-      EpoxyModel<?> previousModel = adapter.models.get(previousPosition);
-      throw new IllegalStateException("Two models have the same ID. ID's must be unique!"
-          + " Model at position " + position + ": " + model
-          + " Model at position " + previousPosition + ": " + previousModel);
+    private boolean isCancelled() {
+      return generation != diffGeneration;
     }
 
-    return state;
+    @Override
+    public void run() {
+      if (isCancelled()) {
+        return;
+      }
+
+      computeDiff(previousStateList, newStateList, moveCollector, maxOperations, updateOpHelper,
+          metrics);
+
+      if (isCancelled()) {
+        return;
+      }
+
+      mainThreadHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          applyAsyncDiff(AsyncDiff.this);
+        }
+      });
+    }
   }
 
   /**
-   * Find all removal operations and add them to the result list. The general strategy here is to
-   * walk through the {@link #oldStateList} and check for items that don't exist in the new list.
-   * Walking through it in order makes it easy to batch adjacent removals.
+   * This updates our state list with the current model hashes and collects any update
+   * notifications. Used only when the state list is already up to date with the adapter models.
    */
-  private void collectRemovals(UpdateOpHelper helper) {
-    for (ModelState state : oldStateList) {
-      // Update the position of the item to take into account previous removals,
-      // so that future operations will reference the correct position
-      state.position -= helper.getNumRemovals();
-
-      // This is our first time going through the list, so we
-      // look up the item with the matching id in the new
-      // list and hold a reference to it so that we can access it quickly in the future
-      state.pair = currentStateMap.get(state.id);
-      if (state.pair != null) {
-        state.pair.pair = state;
+  private void updateHashes(UpdateOpHelper updateOpHelper) {
+    int modelCount = adapter.models.size();
+
+    if (modelCount != currentStateList.size()) {
+      throw new IllegalStateException("State list does not match current models");
+    }
+
+    for (int i = 0; i < modelCount; i++) {
+      EpoxyModel<?> model = adapter.models.get(i);
+      if (dirtyTrackingEnabled && currentStateList.isUnchanged(i, model)) {
         continue;
       }
 
-      helper.remove(state.position);
+      int newHash = model.hashCode();
+      int previousHash = currentStateList.hashCodes[i];
+      EpoxyModel<?> previousModel = currentStateList.models[i];
+      // This also takes the attributes the model recorded as changed, for the payload
+      currentStateList.setHashCode(i, model, newHash);
+      if (previousHash != newHash) {
+        model.onChangedByDiff();
+        updateOpHelper.update(i,
+            getPayload(model, previousModel, currentStateList.changedAttributes[i]));
+      }
     }
   }
 
   /**
-   * Find all insertion operations and add them to the result list. The general strategy here is to
-   * walk through the {@link #currentStateList} and check for items that don't exist in the old
-   * list. Walking through it in order makes it easy to batch adjacent insertions.
+   * Notifies the adapter of changes that were already applied to the models list, in the order
+   * they were made, and updates the state list to match.
    */
-  private void collectInsertions(UpdateOpHelper helper) {
-    Iterator<ModelState> oldItemIterator = oldStateList.iterator();
-
-    for (ModelState itemToInsert : currentStateList) {
-      if (itemToInsert.pair != null) {
-        // Update the position of the next item in the old list to take any insertions into account
-        ModelState nextOldItem = getNextItemWithPair(oldItemIterator);
-        if (nextOldItem != null) {
-          nextOldItem.position += helper.getNumInsertions();
+  void notifyAppliedChanges(UpdateOpHelper opHelper) {
+    replayingModelListChanges = true;
+    try {
+      notifyChanges(opHelper);
+    } finally {
+      replayingModelListChanges = false;
+    }
+    fillReplayedStates();
+  }
+
+  /**
+   * Fills in the states for models that were inserted or changed while replaying changes, now that
+   * the state list lines up with the models list.
+   */
+  private void fillReplayedStates() {
+    for (int i = 0; i < currentStateList.size(); i++) {
+      if (currentStateList.models[i] == null) {
+        EpoxyModel<?> model = adapter.models.get(i);
+        model.addedToAdapter = true;
+        int previousPosition = currentStateList.set(i, model, model.hashCode());
+        // A changed state already has its id at this position
+        if (previousPosition != i) {
+          assertUniqueId(i, previousPosition);
         }
-        continue;
       }
-
-      helper.add(itemToInsert.position);
     }
   }
 
   /**
-   * Check if any items have had their values changed, batching if possible.
+   * If the models list holds exactly the ids of the state list in a new order, collects the moves
+   * that reorder the state list to match and applies them to it. The moves are found from the
+   * current id map, so unlike a full diff no new state has to be built.
+   *
+   * @return False if the models list is not a reordering of the state list, or it would take more
+   * moves than the operation budget allows. Nothing is changed in that case.
    */
-  private void collectChanges(UpdateOpHelper helper) {
-    for (ModelState newItem : currentStateList) {
-      if (newItem.pair == null) {
-        continue;
-      }
+  private boolean collectReorder(UpdateOpHelper helper) {
+    long start = System.nanoTime();
+    int modelCount = adapter.models.size();
+    if (modelCount != currentStateList.size()) {
+      return false;
+    }
+
+    if (reorderTargets.length < modelCount) {
+      reorderTargets = new int[Math.max(modelCount, reorderTargets.length * 2)];
+    }
+    int[] targets = reorderTargets;
+    Arrays.fill(targets, 0, modelCount, -1);
 
-      if (newItem.pair.hashCode != newItem.hashCode) {
-        helper.update(newItem.position);
+    for (int i = 0; i < modelCount; i++) {
+      int previousIndex = currentStateList.indexOf(adapter.models.get(i).id());
+      if (previousIndex == -1 || targets[previousIndex] != -1) {
+        // A new id, or a duplicate id, which the full diff will report
+        return false;
       }
+      targets[previousIndex] = i;
+    }
+
+    if (!moveCollector.collectMoves(targets, modelCount, maxDiffOperations, helper)) {
+      return false;
     }
+
+    currentStateList.permute(targets);
+    metrics.path = DiffMetrics.PATH_REORDER;
+    metrics.movesNanos = System.nanoTime() - start;
+    return true;
+  }
+
+  private void notifyChanges(UpdateOpHelper opHelper) {
+    opHelper.dispatchTo(adapterCallback);
   }
 
   /**
-   * Check which items have had a position changed. Recyclerview does not support batching these.
+   * Create a list of operations that define the difference between {@link #oldStateList} and {@link
+   * #currentStateList}.
    */
-  private void collectMoves(UpdateOpHelper helper) {
-    // This walks through both the new and old list simultaneous and checks for position changes.
-    Iterator<ModelState> oldItemIterator = oldStateList.iterator();
-    ModelState nextOldItem = null;
-
-    for (ModelState newItem : currentStateList) {
-      if (newItem.pair == null) {
-        // This item was inserted. However, insertions are done at the item's final position, and
-        // aren't smart about inserting at a different position to take future moves into account.
-        // As the old state list is updated to reflect moves, it needs to also consider insertions
-        // affected by those moves in order for the final change set to be correct
-        if (helper.moves.isEmpty()) {
-          // There have been no moves, so the item is still at it's correct position
-          continue;
-        } else {
-          // There have been moves, so the old list needs to take this inserted item
-          // into account. The old list doesn't have this item inserted into it
-          // (for optimization purposes), but we can create a pair for this item to
-          // track its position in the old list and move it back to its final position if necessary
-          newItem.pairWithSelf();
-        }
-      }
+  private UpdateOpHelper buildDiff(UpdateOpHelper updateOpHelper) {
+    metrics.path = DiffMetrics.PATH_FULL_DIFF;
+    long start = System.nanoTime();
+    prepareStateForDiff();
+    metrics.prepareStateNanos = System.nanoTime() - start;
 
-      // We could iterate through only the new list and move each
-      // item that is out of place, however in cases such as moving the first item
-      // to the end, that strategy would do many moves to move all
-      // items up one instead of doing one move to move the first item to the end.
-      // To avoid this we compare the old item to the new item at
-      // each index and move the one that is farthest from its correct position.
-      // We only move on from a new item once its pair is placed in
-      // the correct spot. Since we move from start to end, all new items we've
-      // already iterated through are guaranteed to have their pair
-      // be already in the right spot, which won't be affected by future MOVEs.
-      if (nextOldItem == null) {
-        nextOldItem = getNextItemWithPair(oldItemIterator);
-
-        // We've already iterated through all old items and moved each
-        // item once. However, subsequent moves may have shifted an item out of
-        // its correct space once it was already moved. We finish
-        // iterating through all the new items to ensure everything is still correct
-        if (nextOldItem == null) {
-          nextOldItem = newItem.pair;
-        }
-      }
+    if (computeDiff(oldStateList, currentStateList, moveCollector, maxDiffOperations,
+        updateOpHelper, metrics)) {
+      start = System.nanoTime();
+      collectChanges(oldStateList, currentStateList, updateOpHelper);
+      metrics.changesNanos = System.nanoTime() - start;
+    }
+    dispatchRemovedModels();
+    return updateOpHelper;
+  }
 
-      while (nextOldItem != null) {
-        // Make sure the positions are updated to the latest
-        // move operations before we calculate the next move
-        updateItemPosition(newItem.pair, helper.moves);
-        updateItemPosition(nextOldItem, helper.moves);
+  /**
+   * Tells the adapter about each id of {@link #oldStateList} that is not in {@link
+   * #currentStateList}. This is checked by id rather than from the diff's removals, since those
+   * aren't collected if the diff exceeds its budget.
+   */
+  private void dispatchRemovedModels() {
+    if (!adapter.tracksRemovedModels()) {
+      return;
+    }
 
-        // The item is the same and its already in the correct place
-        if (newItem.id == nextOldItem.id && newItem.position == nextOldItem.position) {
-          nextOldItem = null;
-          break;
-        }
+    for (int i = 0; i < oldStateList.size(); i++) {
+      long id = oldStateList.ids[i];
+      if (currentStateList.indexOf(id) == -1) {
+        adapter.onModelRemoved(id);
+      }
+    }
+  }
 
-        int newItemDistance = newItem.pair.position - newItem.position;
-        int oldItemDistance = nextOldItem.pair.position - nextOldItem.position;
+  /**
+   * Collects the insertions, removals, and moves to transform the old state list into the new one
+   * with {@link ListDiffer#computeDiff}. This only touches the given states, so it is safe to run
+   * off the main thread on states that are not shared. Changes must be collected afterwards with
+   * {@link #collectChanges(ModelStateList, ModelStateList, UpdateOpHelper)}.
+   *
+   * @return False if the budget was exceeded, in which case changes should not be collected.
+   */
+  private static boolean computeDiff(ModelStateList oldStateList, ModelStateList currentStateList,
+      MoveCollector moveCollector, int maxOperations, UpdateOpHelper updateOpHelper,
+      DiffMetrics metrics) {
+    return ListDiffer.computeDiff(oldStateList.ids, oldStateList.pairs, oldStateList.size(),
+        currentStateList.indexById, currentStateList.pairs, currentStateList.size(), moveCollector,
+        maxOperations, updateOpHelper, metrics);
+  }
 
-        // Both items are already in the correct position
-        if (newItemDistance == 0 && oldItemDistance == 0) {
-          nextOldItem = null;
-          break;
-        }
+  private void prepareStateForDiff() {
+    // Swap the two lists so that we have a copy of the current state to calculate the next diff.
+    // Each list also has a map of index by id, so we can easily find states by both position and id
+    ModelStateList tempList = oldStateList;
+    oldStateList = currentStateList;
+    currentStateList = tempList;
 
-        if (oldItemDistance > newItemDistance) {
-          helper.move(nextOldItem.position, nextOldItem.pair.position);
+    currentStateList.clear();
+
+    int modelCount = adapter.models.size();
+    currentStateList.ensureCapacity(modelCount);
 
-          nextOldItem.position = nextOldItem.pair.position;
-          nextOldItem.lastMoveOp = helper.getNumMoves();
+    for (int i = 0; i < modelCount; i++) {
+      addStateForPosition(i, currentStateList, oldStateList);
+    }
+  }
 
-          nextOldItem = getNextItemWithPair(oldItemIterator);
-        } else {
-          helper.move(newItem.pair.position, newItem.position);
+  /**
+   * @param previousStateList The last known state of the models, which is used to avoid reading
+   *                          the hash code of models that haven't changed since then if dirty
+   *                          tracking is enabled.
+   */
+  private void addStateForPosition(int position, ModelStateList stateList,
+      ModelStateList previousStateList) {
+    EpoxyModel<?> model = adapter.models.get(position);
+    model.addedToAdapter = true;
+    int previousPosition = stateList.add(model, getHashCode(model, previousStateList));
+    assertUniqueId(position, previousPosition);
+  }
 
-          newItem.pair.position = newItem.position;
-          newItem.pair.lastMoveOp = helper.getNumMoves();
-          break;
-        }
+  private int getHashCode(EpoxyModel<?> model, ModelStateList previousStateList) {
+    if (dirtyTrackingEnabled) {
+      int previousIndex = previousStateList.indexOf(model.id());
+      if (previousIndex != -1 && previousStateList.isUnchanged(previousIndex, model)) {
+        return previousStateList.hashCodes[previousIndex];
       }
     }
+
+    return model.hashCode();
+  }
+
+  private void assertUniqueId(int position, int previousPosition) {
+    if (previousPosition != -1) {
+      EpoxyModel<?> model = adapter.models.get(position);
+      EpoxyModel<?> previousModel = adapter.models.get(previousPosition);
+      throw new IllegalStateException("Two models have the same ID. ID's must be unique!"
+          + " Model at position " + position + ": " + model
+          + " Model at position " + previousPosition + ": " + previousModel);
+    }
   }
 
   /**
-   * Apply the movement operations to the given item to update its position. Only applies the
-   * operations that have not been applied yet, and stores how many operations have been applied so
-   * we know which ones to apply next time.
+   * Check if any items have had their values changed, batching if possible. This must be run on
+   * the main thread after the other operations have been collected.
    */
-  private void updateItemPosition(ModelState item, List<UpdateOp> moveOps) {
-    int size = moveOps.size();
-
-    for (int i = item.lastMoveOp; i < size; i++) {
-      UpdateOp moveOp = moveOps.get(i);
-      int fromPosition = moveOp.positionStart;
-      int toPosition = moveOp.itemCount;
-
-      if (item.position > fromPosition && item.position <= toPosition) {
-        item.position--;
-      } else if (item.position < fromPosition && item.position >= toPosition) {
-        item.position++;
+  private void collectChanges(ModelStateList oldStateList, ModelStateList currentStateList,
+      UpdateOpHelper helper) {
+    for (int i = 0; i < currentStateList.size(); i++) {
+      int pair = currentStateList.pairs[i];
+      if (pair == -1) {
+        continue;
       }
-    }
 
-    item.lastMoveOp = size;
+      if (oldStateList.hashCodes[pair] != currentStateList.hashCodes[i]) {
+        currentStateList.models[i].onChangedByDiff();
+        helper.update(i, getPayload(currentStateList.models[i], oldStateList.models[pair],
+            currentStateList.changedAttributes[i]));
+      }
+    }
   }
 
   /**
-   * Gets the next item in the list that has a pair, meaning it wasn't inserted or removed.
+   * The payload to notify a change to the given model with. If diff payloads are enabled this is
+   * the bit mask of attributes that changed from the previous model, or null if the model doesn't
+   * provide one.
+   *
+   * @param recordedAttributes The attributes the model recorded as changed with {@link
+   *                           EpoxyModel#markDirty(long)} since its hash code was last read.
    */
   @Nullable
-  private ModelState getNextItemWithPair(Iterator<ModelState> iterator) {
-    ModelState nextItem = null;
-    while (nextItem == null && iterator.hasNext()) {
-      nextItem = iterator.next();
-
-      if (nextItem.pair == null) {
-        // Skip this one and go on to the next
-        nextItem = null;
-      }
+  private Object getPayload(EpoxyModel<?> model, EpoxyModel<?> previousModel,
+      long recordedAttributes) {
+    if (!diffPayloadsEnabled) {
+      return null;
+    }
+
+    // A model that was changed in place can't be compared to its previous state, so the attributes
+    // that its setters recorded as changed are used instead
+    long changedAttributes = model == previousModel
+        ? recordedAttributes
+        : model.diffAttributes(previousModel);
+    if (changedAttributes == 0) {
+      return null;
     }
 
-    return nextItem;
+    Long payload = payloadsByAttributes.get(changedAttributes);
+    if (payload == null) {
+      if (payloadsByAttributes.size() == MAX_CACHED_PAYLOADS) {
+        payloadsByAttributes.clear();
+      }
+      payload = changedAttributes;
+      payloadsByAttributes.put(changedAttributes, payload);
+    }
+    return payload;
   }
 }
@@ -0,0 +1,14 @@
+package com.airbnb.epoxy;
+
+/**
+ * Can be registered with {@link EpoxyAdapter#setDiffMetricsListener(DiffMetricsListener)} to be
+ * told how long each diff took and what it notified. This is meant for collecting performance
+ * telemetry, for example to find screens with model lists that are too expensive to diff.
+ */
+public interface DiffMetricsListener {
+  /**
+   * Called on the main thread after the changes found by a diff have been notified. The metrics
+   * object is reused for the next diff, so it should not be kept after this returns.
+   */
+  void onDiffComplete(DiffMetrics metrics);
+}
@@ -11,8 +11,14 @@ import com.airbnb.epoxy.ModelList.ModelListObserver;
  * in no net change, but this would record a batch removal and batch insert. Thus when we record
  * both removals and insertions we still need to run a full diff. However, if the list doesn't
  * change, or only changes due to insertions or removals, we can skip doing a full diff.
+ * <p>
+ * Models replaced by models with other ids are only recorded as a flag, not as operations. If that
+ * is the only kind of change then the list was most likely reordered, such as by a sort or
+ * shuffle, and the differ can find the moves from the new order of the ids it already knows
+ * instead of doing a full diff.
  */
 class DifferModelListObserver extends UpdateOpHelper implements ModelListObserver {
+  private boolean hasReplacements;
 
   @Override
   public void onItemRangeInserted(int positionStart, int itemCount) {
@@ -24,15 +30,31 @@ class DifferModelListObserver extends UpdateOpHelper implements ModelListObserve
     remove(positionStart, itemCount);
   }
 
+  @Override
+  public void onItemRangeReplaced(int positionStart, int itemCount) {
+    hasReplacements = true;
+  }
+
+  @Override
+  void reset() {
+    super.reset();
+    hasReplacements = false;
+  }
+
   boolean hasNoChanges() {
-    return !hasInsertions() && !hasRemovals();
+    return !hasInsertions() && !hasRemovals() && !hasReplacements;
   }
 
   boolean hasOnlyInsertions() {
-    return !hasRemovals() && hasInsertions();
+    return !hasRemovals() && hasInsertions() && !hasReplacements;
   }
 
   boolean hasOnlyRemovals() {
-    return !hasInsertions() && hasRemovals();
+    return !hasInsertions() && hasRemovals() && !hasReplacements;
+  }
+
+  /** True if the only changes were models replaced by models with other ids. */
+  boolean hasOnlyReplacements() {
+    return !hasInsertions() && !hasRemovals() && hasReplacements;
   }
 }
@@ -3,15 +3,18 @@ package com.airbnb.epoxy;
 
 import android.os.Bundle;
 import android.support.annotation.CallSuper;
+import android.support.annotation.LayoutRes;
 import android.support.annotation.Nullable;
 import android.support.v7.widget.GridLayoutManager.SpanSizeLookup;
 import android.support.v7.widget.RecyclerView;
+import android.view.View;
 import android.view.ViewGroup;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Allows you to easily combine different view types in the same adapter, and handles view holder
@@ -25,6 +28,7 @@ import java.util.List;
 @SuppressWarnings("WeakerAccess")
 public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder> {
   private static final String SAVED_STATE_ARG_VIEW_HOLDERS = "saved_state_view_holders";
+  private static final int DEFAULT_MODEL_CACHE_SIZE = 100;
 
   /**
    * Subclasses should modify this list as necessary with the models they want to show. Subclasses
@@ -40,23 +44,57 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
   private final BoundViewHolders boundViewHolders = new BoundViewHolders();
   private ViewHolderState viewHolderState = new ViewHolderState();
   private DiffHelper diffHelper;
+  /** Supplies the models instead of {@link #models} when the adapter is in lazy mode. */
+  private ModelProviderHelper modelProviderHelper;
+  /**
+   * Collects the notifications of the model helper methods between {@link #beginUpdate()} and
+   * {@link #endUpdate()}, so they can be notified as few ranges as possible.
+   */
+  private final UpdateOpHelper batchedUpdates = new UpdateOpHelper();
+  private final DiffCallback batchedUpdatesCallback = new AdapterDiffCallback(this);
+  /** How many calls to {@link #beginUpdate()} have not been ended yet. */
+  private int batchUpdateDepth;
+  /**
+   * Maps adapter positions to the index of their model when hidden models are skipped, or null if
+   * hidden models are shown as empty items.
+   */
+  private VisibleModelIndex visibleModelIndex;
+  /** Inflates views ahead of time for the layouts given to {@link #preinflateViews(int, int)}. */
+  final ViewPreinflater viewPreinflater = new ViewPreinflater();
+  private final LayoutStatsTracker layoutStatsTracker = new LayoutStatsTracker();
+
+  /** Caches span lookups by position, or null if span size caching is not enabled. */
+  private SpanSizeCache spanSizeCache;
 
   private final SpanSizeLookup spanSizeLookup = new SpanSizeLookup() {
 
     @Override
     public int getSpanSize(int position) {
-      try {
-        return getModelForPosition(position).getSpanSize(spanCount, position, getItemCount());
-      } catch (IndexOutOfBoundsException e) {
-        // There seems to be a GridLayoutManager bug where when the user is in accessibility mode
-        // it incorrectly uses an outdated view position
-        // when calling this method. This crashes when a view is animating out, when it is
-        // removed from the adapter but technically still added
-        // to the layout. We've posted a bug report and hopefully can update when the support
-        // library fixes this
-        // TODO: (eli_hart 8/23/16) Figure out if this has been fixed in new support library
-        return 1;
+      if (spanSizeCache != null && spanSizeCache.contains(position)) {
+        return spanSizeCache.getSpanSize(position);
+      }
+
+      return getModelSpanSize(position);
+    }
+
+    @Override
+    public int getSpanIndex(int position, int spanCount) {
+      if (spanSizeCache != null && spanSizeCache.contains(position)) {
+        return spanSizeCache.getSpanIndex(position, spanCount);
       }
+
+      return super.getSpanIndex(position, spanCount);
+    }
+
+    @Override
+    public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+      // GridLayoutManager doesn't cache these, and counts the spans of every earlier position for
+      // each call
+      if (spanSizeCache != null && spanSizeCache.contains(adapterPosition)) {
+        return spanSizeCache.getSpanGroupIndex(adapterPosition, spanCount);
+      }
+
+      return super.getSpanGroupIndex(adapterPosition, spanCount);
     }
   };
 
@@ -78,6 +116,14 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
       throw new IllegalStateException("Diffing was already enabled");
     }
 
+    if (modelProviderHelper != null) {
+      throw new IllegalStateException("Diffing can't be enabled with a model provider");
+    }
+
+    if (visibleModelIndex != null) {
+      throw new IllegalStateException("Diffing can't be enabled when hidden models are skipped");
+    }
+
     if (!models.isEmpty()) {
       throw new IllegalStateException("You must enable diffing before modifying models");
     }
@@ -89,20 +135,206 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     diffHelper = new DiffHelper(this);
   }
 
+  /**
+   * Puts the adapter in lazy mode, where models are built on demand by the given provider instead
+   * of being held in {@link #models}. A model is only built when RecyclerView needs the item at its
+   * position, and the most recently used models are cached. This keeps very large lists cheap,
+   * since only the ids and hash codes of all items are kept.
+   * <p>
+   * The current items of the provider are read right away. Whenever the provider's items change,
+   * call {@link #notifyModelsChanged()}, which diffs the provider's ids and hash codes against the
+   * ones it last read and notifies the changes. Until then the provider should keep returning the
+   * previous items, since models are built by position. The {@link #models} list and the helper
+   * methods that modify it are not used in lazy mode, and diffing should not be enabled.
+   *
+   * @param cacheSize The most built models to keep. This should be at least the number of items
+   *                  that fit on screen, plus a few more for scrolling.
+   */
+  protected void setModelProvider(ModelProvider provider, int cacheSize) {
+    if (modelProviderHelper != null) {
+      throw new IllegalStateException("A model provider was already set");
+    }
+
+    if (diffHelper != null) {
+      throw new IllegalStateException("A model provider can't be used with diffing enabled");
+    }
+
+    if (visibleModelIndex != null) {
+      throw new IllegalStateException("A model provider can't be used when hidden models are "
+          + "skipped");
+    }
+
+    if (!models.isEmpty()) {
+      throw new IllegalStateException("The models list must be empty to use a model provider");
+    }
+
+    if (!hasStableIds()) {
+      throw new IllegalStateException("You must have stable ids to use a model provider");
+    }
+
+    modelProviderHelper = new ModelProviderHelper(this, provider, cacheSize);
+    notifyDataSetChanged();
+  }
+
+  /**
+   * Leaves hidden models out of the adapter, instead of binding each of them to an empty view. By
+   * default a hidden model still takes up an item, so RecyclerView creates, binds, and lays out a
+   * zero size view for it. With this enabled the adapter only reports shown models, and keeps an
+   * index to map between adapter positions and the {@link #models} list, so lists where most models
+   * are hidden only pay for the ones on screen.
+   * <p>
+   * Showing or hiding a model with the adapter's helper methods, or with {@link
+   * EpoxyModel#show(boolean)} followed by {@link #notifyModelChanged(EpoxyModel)}, then notifies an
+   * item insertion or removal. The {@link #models} list must only be changed through the helper
+   * methods, since the item notifications need to use adapter positions. If it is changed directly
+   * call {@link #notifyDataSetChanged()} afterwards, which rebuilds the index.
+   * <p>
+   * This must be called before any models are added, and can't be used with diffing or a {@link
+   * ModelProvider}, since both of those expect each model to have an item.
+   */
+  protected void enableHiddenModelSkipping() {
+    if (visibleModelIndex != null) {
+      throw new IllegalStateException("Hidden models are already skipped");
+    }
+
+    if (diffHelper != null || modelProviderHelper != null) {
+      throw new IllegalStateException(
+          "Hidden models can't be skipped with diffing or a model provider");
+    }
+
+    if (!models.isEmpty()) {
+      throw new IllegalStateException("You must skip hidden models before modifying models");
+    }
+
+    visibleModelIndex = new VisibleModelIndex();
+    registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+      @Override
+      public void onChanged() {
+        visibleModelIndex.reset(models);
+      }
+    });
+  }
+
+  /** Like {@link #setModelProvider(ModelProvider, int)}, with a cache of 100 models. */
+  protected void setModelProvider(ModelProvider provider) {
+    setModelProvider(provider, DEFAULT_MODEL_CACHE_SIZE);
+  }
+
+  /**
+   * Lets {@link #notifyModelsChanged()} skip calling {@link EpoxyModel#hashCode()} on models that
+   * haven't changed since the last diff. A model is only checked again if it is a new instance or
+   * {@link EpoxyModel#markDirty()} was called on it. This can save a lot of time when models have
+   * many attributes or large lists in their hash codes, and only a few models change at a time.
+   * <p>
+   * Generated models mark themselves dirty whenever an attribute is set, but any other changes to
+   * a model's data must be followed by a call to {@link EpoxyModel#markDirty()}, otherwise they
+   * will not be noticed. Only enable this if all models in the adapter follow that rule. A {@link
+   * EpoxyModelGroup} is dirty whenever any of its models are. Diffing must already be enabled.
+   */
+  protected void enableDirtyTracking() {
+    if (diffHelper == null) {
+      throw new IllegalStateException("You must enable diffing before enabling dirty tracking");
+    }
+
+    diffHelper.setDirtyTrackingEnabled(true);
+  }
+
+  /**
+   * When a diff finds that a model changed, notify the change with a payload of the attributes
+   * that changed, as returned by {@link EpoxyModel#diffAttributes(EpoxyModel)} when comparing the
+   * new model to the previous one. Models can then read the changes in {@link
+   * EpoxyModel#bind(Object, List)} with {@link EpoxyModel#getChangedAttributes(List)} and only
+   * update the views for those attributes. If a model doesn't report any changed attributes the
+   * change is notified without a payload, so its view is fully rebound.
+   * <p>
+   * A model that was changed in place instead of replaced has no previous instance to compare to,
+   * so the attributes that its setters recorded with {@link EpoxyModel#markDirty(long)} since the
+   * last diff are used instead. Generated setters do this for every compared attribute.
+   * <p>
+   * Only attributes are compared, so a model that includes other fields in its hash code must
+   * either also report them in {@link EpoxyModel#diffAttributes(EpoxyModel)} or fully rebind in
+   * {@link EpoxyModel#bind(Object, List)}. Diffing must already be enabled.
+   */
+  protected void enableDiffPayloads() {
+    if (diffHelper == null) {
+      throw new IllegalStateException("You must enable diffing before enabling diff payloads");
+    }
+
+    diffHelper.setDiffPayloadsEnabled(true);
+  }
+
+  /**
+   * RecyclerView can't batch item moves, so a diff that moves a block of many items normally
+   * notifies one move per item. With this enabled, a run of at least three moved items that are
+   * next to each other both before and after the diff is instead notified as a single range
+   * removal followed by a single range insertion. This saves notify calls and layout work for
+   * large moves, but the items in the run animate as removed and inserted instead of moved, and
+   * are rebound. Diffing must already be enabled.
+   */
+  protected void enableMoveBatching() {
+    if (diffHelper == null) {
+      throw new IllegalStateException("You must enable diffing before enabling move batching");
+    }
+
+    diffHelper.setMoveBatchingEnabled(true);
+  }
+
+  /**
+   * Limit how many item insertions, removals, and moves a diff may notify. RecyclerView processes
+   * each notification separately, so a diff with many operations, such as a large reorder, can be
+   * slower to apply than simply rebinding the visible items. If a diff needs more operations than
+   * this it stops early and instead notifies every item as changed, plus a single insertion or
+   * removal at the end of the list if the size changed. Items are then rebound instead of
+   * animated. Item changes are not counted against the budget, since they are batched.
+   * <p>
+   * There is no limit by default. Diffing must already be enabled.
+   */
+  protected void setDiffOperationBudget(int maxOperations) {
+    if (diffHelper == null) {
+      throw new IllegalStateException("You must enable diffing before setting a diff budget");
+    }
+
+    diffHelper.setMaxDiffOperations(maxOperations);
+  }
+
+  /**
+   * Set a listener to be told how long each diff took, which strategy it used, and how many
+   * operations it notified. Set to null to remove the listener. Diffing must already be enabled.
+   */
+  public void setDiffMetricsListener(@Nullable DiffMetricsListener listener) {
+    if (diffHelper == null) {
+      throw new IllegalStateException("You must enable diffing before setting a metrics listener");
+    }
+
+    diffHelper.setDiffMetricsListener(listener);
+  }
+
   /**
    * Intelligently notify item changes by comparing the current {@link #models} list against the
    * previous so you don't have to micromanage notification calls yourself. This may be
    * prohibitively slow for large model lists (in the hundreds), in which case consider doing
-   * notification calls yourself. If you use this, all your view models must implement {@link
+   * notification calls yourself, or limiting the work a diff may notify with {@link
+   * #setDiffOperationBudget(int)}. If you use this, all your view models must implement {@link
    * EpoxyModel#hashCode()} to completely identify their state, so that changes to a model's content
    * can be detected. Before using this you must enable it with {@link #enableDiffing()}, since
    * keeping track of the model state adds extra computation time to all other data change
    * notifications.
    *
+   * <p>
+   * In lazy mode this instead diffs the ids and hash codes of the {@link ModelProvider}.
+   *
    * @see #enableDiffing()
+   * @see #setModelProvider(ModelProvider, int)
    */
 
   protected void notifyModelsChanged() {
+    assertNotInBatchUpdate();
+
+    if (modelProviderHelper != null) {
+      modelProviderHelper.notifyModelChanges();
+      return;
+    }
+
     if (diffHelper == null) {
       throw new IllegalStateException("You must enable diffing before notifying models changed");
     }
@@ -110,20 +342,175 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     diffHelper.notifyModelChanges();
   }
 
+  /**
+   * Like {@link #notifyModelsChanged()}, but the diff is computed on a background thread so large
+   * model lists don't block the UI thread. Model ids and hash codes are still read on the calling
+   * thread, which must be the main thread, and the resulting item notifications are posted back to
+   * the main thread once the diff completes.
+   * <p>
+   * Until the result is applied the adapter continues to show the models it was last notified of,
+   * so the {@link #models} list may be modified freely in the meantime. If it is modified the
+   * pending result is discarded and a new diff is started automatically. Calling this again, or
+   * calling {@link #notifyModelsChanged()}, cancels any diff that is still in progress.
+   * <p>
+   * Item insertions, removals, and moves should not be notified manually while a diff is in
+   * progress.
+   *
+   * @see #setDiffExecutor(Executor)
+   */
+  protected void notifyModelsChangedAsync() {
+    assertNotInBatchUpdate();
+
+    if (modelProviderHelper != null) {
+      throw new UnsupportedOperationException(
+          "Async diffing is not supported with a model provider. Use notifyModelsChanged instead");
+    }
+
+    if (diffHelper == null) {
+      throw new IllegalStateException("You must enable diffing before notifying models changed");
+    }
+
+    diffHelper.notifyModelChangesAsync();
+  }
+
+  /**
+   * Set the executor used to compute diffs for {@link #notifyModelsChangedAsync()}. By default a
+   * single background thread shared by all adapters is used. Diffing must already be enabled.
+   */
+  protected void setDiffExecutor(Executor executor) {
+    if (diffHelper == null) {
+      throw new IllegalStateException("You must enable diffing before setting a diff executor");
+    }
+
+    diffHelper.setDiffExecutor(executor);
+  }
+
+  /**
+   * Inflates up to the given number of views for the layout on a background thread, so that
+   * RecyclerView doesn't have to inflate them on the main thread when it first needs views of that
+   * layout, such as when the first screen is shown. This is the layout returned by {@link
+   * EpoxyModel#getLayout()}, and the views are used by any model with that layout, including
+   * {@link EpoxyModelGroup}s.
+   * <p>
+   * This is meant to be called in the constructor for each layout worth warming up. Views are
+   * inflated once the adapter is attached to a RecyclerView, which is used as their parent so they
+   * get the right layout params, and any that weren't used are dropped when it is detached. Layouts
+   * with views that can only be created on the main thread, such as ones that create a Handler,
+   * fall back to being inflated normally.
+   */
+  protected void preinflateViews(@LayoutRes int layoutRes, int count) {
+    viewPreinflater.request(layoutRes, count);
+  }
+
+  /**
+   * Set the executor used to inflate views for {@link #preinflateViews(int, int)}. By default a
+   * single background thread shared by all adapters is used.
+   */
+  protected void setPreinflationExecutor(Executor executor) {
+    viewPreinflater.setExecutor(executor);
+  }
+
+  /**
+   * Sizes the RecyclerView's pool of each view type to the most views of that type that were bound
+   * at once, as tracked by {@link #getLayoutStats()}. RecyclerView otherwise keeps up to 5 views of
+   * each layout, which is too few for layouts that fill the screen, such as grid items, and more
+   * than needed for layouts that are shown once, such as headers. Pools only grow from there as
+   * more views of a type are bound at once.
+   * <p>
+   * If the RecyclerView uses a {@link SharedRecycledViewPool} the largest size needed by any
+   * adapter using the pool is kept, and a max set on the shared pool is left alone. Otherwise this
+   * replaces any max set on the RecyclerView's pool.
+   */
+  protected void enableViewPoolSizing() {
+    layoutStatsTracker.enablePoolSizing();
+  }
+
+  /**
+   * @return How this adapter has used the view holders of each of its view types so far, including
+   * the most holders of each view type that were bound at once. This can be logged in a debug build
+   * to pick pool sizes for {@link RecyclerView.RecycledViewPool#setMaxRecycledViews(int, int)}. The
+   * stats keep updating as the adapter is used. See {@link LayoutStats} for the view types of
+   * {@link EpoxyModelGroup}s, which can't be hard coded.
+   */
+  public List<LayoutStats> getLayoutStats() {
+    return layoutStatsTracker.getStats();
+  }
+
+  /**
+   * Limits the view state that is kept for models with {@link EpoxyModel#shouldSaveViewState()}.
+   * By default the state of every model that was ever saved is kept, so in a long list it grows
+   * without limit and is all written to the Bundle in {@link #onSaveInstanceState(Bundle)}, where
+   * a large Bundle can cause a TransactionTooLargeException.
+   * <p>
+   * Once limits are set, the states that were least recently saved or restored are dropped to keep
+   * at most the given number of states, taking up at most about the given number of bytes. Pass
+   * {@link Integer#MAX_VALUE} for either limit to leave it unlimited. The limits should allow for
+   * at least the states of the views that are on screen at once.
+   * <p>
+   * The bytes are measured by parceling a state when it is first saved, and again whenever a save
+   * changes it, which happens as views are recycled while scrolling. The view's saved state objects
+   * may allocate when they are parceled, so only limit the bytes if the states can be large.
+   * Limiting only the number of states doesn't parcel them.
+   * <p>
+   * If diffing is enabled, the states of models that are removed from the adapter are also dropped
+   * right away instead of waiting to become the least recently used.
+   */
+  protected void setViewStateLimits(int maxStates, int maxBytes) {
+    viewHolderState.setLimits(maxStates, maxBytes);
+  }
+
   @Override
   public int getItemCount() {
+    if (modelProviderHelper != null) {
+      return modelProviderHelper.getNotifiedCount();
+    }
+
+    if (visibleModelIndex != null) {
+      return visibleModelIndex.visibleCount();
+    }
+
+    if (isDiffInProgress()) {
+      return diffHelper.getNotifiedModelCount();
+    }
+
     return models.size();
   }
 
+  /**
+   * @return Whether the adapter has no items, the same as {@link #getItemCount()} being 0. This can
+   * be different from whether {@link #models} is empty, such as while an async diff is pending or
+   * when hidden models are skipped.
+   */
   public boolean isEmpty() {
-    return models.isEmpty();
+    return getItemCount() == 0;
   }
 
   @Override
-  public EpoxyViewHolder onCreateViewHolder(ViewGroup parent, int layoutRes) {
+  public EpoxyViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+    layoutStatsTracker.onCreated(viewType);
+    int layoutRes = ModelGroupViewTypes.getLayout(viewType);
+    View preinflatedView = viewPreinflater.take(layoutRes);
+    if (preinflatedView != null) {
+      return new EpoxyViewHolder(preinflatedView);
+    }
+
     return new EpoxyViewHolder(parent, layoutRes);
   }
 
+  @CallSuper
+  @Override
+  public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+    viewPreinflater.attach(recyclerView);
+    layoutStatsTracker.attach(recyclerView);
+  }
+
+  @CallSuper
+  @Override
+  public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+    viewPreinflater.detach(recyclerView);
+    layoutStatsTracker.detach(recyclerView);
+  }
+
   @Override
   public void onBindViewHolder(EpoxyViewHolder holder, int position) {
     onBindViewHolder(holder, position, Collections.emptyList());
@@ -141,6 +528,10 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
       viewHolderState.save(boundViewHolder);
     }
 
+    if (!holder.isBound()) {
+      layoutStatsTracker.onBound(holder.getItemViewType());
+    }
+
     EpoxyModel<?> modelToShow = getModelForPosition(position);
     holder.bind(modelToShow, payloads);
 
@@ -173,7 +564,7 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
 
   @Override
   public int getItemViewType(int position) {
-    return getModelForPosition(position).getLayout();
+    return getModelForPosition(position).getViewType();
   }
 
   @Override
@@ -181,24 +572,93 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     // This does not call getModelForPosition so that we don't use the id of the empty model when
     // hidden,
     // so that the id stays constant when gone vs shown
-    return models.get(position).id();
+    if (modelProviderHelper != null) {
+      // Read from the provider's ids, so that asking for the id doesn't build the model
+      return modelProviderHelper.getNotifiedId(position);
+    }
+
+    return getNotifiedModel(position).id();
   }
 
   private EpoxyModel<?> getModelForPosition(int position) {
-    EpoxyModel<?> epoxyModel = models.get(position);
+    EpoxyModel<?> epoxyModel = getNotifiedModel(position);
     return epoxyModel.isShown() ? epoxyModel : hiddenModel;
   }
 
+  /** Asks the model at the given position for its span size, without using the cache. */
+  int getModelSpanSize(int position) {
+    try {
+      return getModelForPosition(position).getSpanSize(spanCount, position, getItemCount());
+    } catch (IndexOutOfBoundsException e) {
+      // There seems to be a GridLayoutManager bug where when the user is in accessibility mode
+      // it incorrectly uses an outdated view position
+      // when calling this method. This crashes when a view is animating out, when it is
+      // removed from the adapter but technically still added
+      // to the layout. We've posted a bug report and hopefully can update when the support
+      // library fixes this
+      // TODO: (eli_hart 8/23/16) Figure out if this has been fixed in new support library
+      return 1;
+    }
+  }
+
+  /**
+   * Returns the model that RecyclerView knows to be at the given position. This is normally the
+   * same as {@link #models}, except while an async diff is in progress and the models list may
+   * contain changes that haven't been notified yet. In lazy mode the model comes from the provider.
+   * When hidden models are skipped, positions only count the shown models.
+   */
+  private EpoxyModel<?> getNotifiedModel(int position) {
+    if (modelProviderHelper != null) {
+      return modelProviderHelper.getModel(position);
+    }
+
+    if (isDiffInProgress()) {
+      return diffHelper.getNotifiedModel(position);
+    }
+
+    if (visibleModelIndex != null) {
+      return models.get(visibleModelIndex.modelIndexAt(position));
+    }
+
+    return models.get(position);
+  }
+
+  private boolean isDiffInProgress() {
+    return diffHelper != null && diffHelper.isDiffInProgress();
+  }
+
   @Override
   public void onViewRecycled(EpoxyViewHolder holder) {
-    viewHolderState.save(holder);
+    if (!wasRemoved(holder)) {
+      viewHolderState.save(holder);
+    }
     boundViewHolders.remove(holder);
+    layoutStatsTracker.onRecycled(holder.getItemViewType());
 
     EpoxyModel<?> model = holder.getModel();
     holder.unbind();
     onModelUnbound(holder, model);
   }
 
+  /**
+   * Removed views are recycled after they animate out, which is after the state of their model was
+   * evicted, so they shouldn't save it again.
+   */
+  private boolean wasRemoved(EpoxyViewHolder holder) {
+    return diffHelper != null && viewHolderState.evictsRemovedModels()
+        && !diffHelper.hasNotifiedId(holder.getItemId());
+  }
+
+  /** Called by the {@link DiffHelper} for each model id that is no longer in the adapter. */
+  void onModelRemoved(long id) {
+    viewHolderState.onModelRemoved(id);
+  }
+
+  /** @return True if {@link #onModelRemoved(long)} needs to be called. */
+  boolean tracksRemovedModels() {
+    return viewHolderState.evictsRemovedModels();
+  }
+
   /**
    * Called immediately after a model is unbound from a view holder. Subclasses can override this if
    * they want alerts on when a model is unbound.
@@ -232,8 +692,8 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     // Save the state of currently bound views first so they are included. Views that were
     // scrolled off and unbound will already have had
     // their state saved.
-    for (EpoxyViewHolder holder : boundViewHolders) {
-      viewHolderState.save(holder);
+    for (int i = 0; i < boundViewHolders.size(); i++) {
+      viewHolderState.save(boundViewHolders.getHolderAt(i));
     }
 
     if (viewHolderState.size() > 0 && !hasStableIds()) {
@@ -253,7 +713,62 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     }
 
     if (inState != null) {
-      viewHolderState = inState.getParcelable(SAVED_STATE_ARG_VIEW_HOLDERS);
+      ViewHolderState restoredState = inState.getParcelable(SAVED_STATE_ARG_VIEW_HOLDERS);
+      if (restoredState != null) {
+        restoredState.copyLimitsFrom(viewHolderState);
+        viewHolderState = restoredState;
+      }
+    }
+  }
+
+  /**
+   * Starts a batch of updates. Until the matching call to {@link #endUpdate()}, the helper methods
+   * that add, insert, remove, show, hide, or notify models still change the {@link #models} list
+   * right away, but their item notifications are collected instead of sent. When the batch ends
+   * they are notified together, with adjacent changes merged into ranges. For example hiding many
+   * neighboring models notifies a single range change instead of one change per model.
+   * <p>
+   * Batches may be nested, in which case the notifications are sent when the outermost batch ends.
+   * Only the helper methods are batched, so the adapter's notifyItem methods should not be called
+   * directly during a batch, and {@link #notifyModelsChanged()} cannot be used until it ends. Call
+   * {@link #endUpdate()} in a finally block so an exception doesn't leave the batch open.
+   */
+  protected void beginUpdate() {
+    batchUpdateDepth++;
+  }
+
+  /**
+   * Ends a batch started with {@link #beginUpdate()}, notifying all the changes collected since
+   * then if this ends the outermost batch.
+   */
+  protected void endUpdate() {
+    if (batchUpdateDepth == 0) {
+      throw new IllegalStateException("endUpdate was called without a matching beginUpdate");
+    }
+
+    batchUpdateDepth--;
+    if (batchUpdateDepth > 0) {
+      return;
+    }
+
+    // The models list already has every change applied, which the differ needs to know so it
+    // doesn't read models at positions that have moved since
+    if (diffHelper != null) {
+      diffHelper.notifyAppliedChanges(batchedUpdates);
+    } else {
+      batchedUpdates.dispatchTo(batchedUpdatesCallback);
+    }
+    batchedUpdates.reset();
+  }
+
+  /** Whether {@link #beginUpdate()} was called without a matching {@link #endUpdate()} yet. */
+  protected boolean isInBatchUpdate() {
+    return batchUpdateDepth > 0;
+  }
+
+  private void assertNotInBatchUpdate() {
+    if (batchUpdateDepth > 0) {
+      throw new IllegalStateException("Models can't be diffed during a batch update");
     }
   }
 
@@ -272,7 +787,26 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
   protected void notifyModelChanged(EpoxyModel<?> model, @Nullable Object payload) {
     int index = getModelPosition(model);
     if (index != -1) {
-      notifyItemChanged(index, payload);
+      notifyModelRangeChanged(index, 1, payload);
+    }
+  }
+
+  /**
+   * Notify that the model with the given id has had its data changed. It should only be called if
+   * the model retained the same position. This does nothing if there is no model with the id.
+   */
+  protected void notifyModelChanged(long id) {
+    notifyModelChanged(id, null);
+  }
+
+  /**
+   * Notify that the model with the given id has had its data changed. It should only be called if
+   * the model retained the same position. This does nothing if there is no model with the id.
+   */
+  protected void notifyModelChanged(long id, @Nullable Object payload) {
+    int index = getModelPositionById(id);
+    if (index != -1) {
+      notifyModelRangeChanged(index, 1, payload);
     }
   }
 
@@ -286,7 +820,7 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     models.add(modelToAdd);
     resumeModelListNotifications();
 
-    notifyItemRangeInserted(initialSize, 1);
+    notifyModelRangeInserted(initialSize, 1);
   }
 
   /**
@@ -303,7 +837,7 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     Collections.addAll(models, modelsToAdd);
     resumeModelListNotifications();
 
-    notifyItemRangeInserted(initialSize, numModelsToAdd);
+    notifyModelRangeInserted(initialSize, numModelsToAdd);
   }
 
   /**
@@ -317,7 +851,7 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     models.addAll(modelsToAdd);
     resumeModelListNotifications();
 
-    notifyItemRangeInserted(initialSize, modelsToAdd.size());
+    notifyModelRangeInserted(initialSize, modelsToAdd.size());
   }
 
   /**
@@ -334,7 +868,7 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     models.add(targetIndex, modelToInsert);
     resumeModelListNotifications();
 
-    notifyItemInserted(targetIndex);
+    notifyModelRangeInserted(targetIndex, 1);
   }
 
   /**
@@ -352,7 +886,7 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     models.add(targetIndex, modelToInsert);
     resumeModelListNotifications();
 
-    notifyItemInserted(targetIndex);
+    notifyModelRangeInserted(targetIndex, 1);
   }
 
   /**
@@ -366,7 +900,22 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
       models.remove(index);
       resumeModelListNotifications();
 
-      notifyItemRemoved(index);
+      notifyModelRangeRemoved(index, 1);
+    }
+  }
+
+  /**
+   * If a model with the given id exists it is removed and an item removal is notified. Otherwise
+   * this does nothing.
+   */
+  protected void removeModelById(long id) {
+    int index = getModelPositionById(id);
+    if (index != -1) {
+      pauseModelListNotifications();
+      models.remove(index);
+      resumeModelListNotifications();
+
+      notifyModelRangeRemoved(index, 1);
     }
   }
 
@@ -380,7 +929,7 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     models.clear();
     resumeModelListNotifications();
 
-    notifyItemRangeRemoved(0, numModelsRemoved);
+    notifyModelRangeRemoved(0, numModelsRemoved);
   }
 
   /**
@@ -398,7 +947,7 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     modelsToRemove.clear();
     resumeModelListNotifications();
 
-    notifyItemRangeRemoved(initialModelCount - numModelsRemoved, numModelsRemoved);
+    notifyModelRangeRemoved(initialModelCount - numModelsRemoved, numModelsRemoved);
   }
 
   /**
@@ -463,8 +1012,27 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
    * @param show   True to show the models, false to hide them.
    */
   protected void showModels(Iterable<EpoxyModel<?>> models, boolean show) {
+    int[] changedPositions = new int[16];
+    int changedCount = 0;
     for (EpoxyModel<?> model : models) {
-      showModel(model, show);
+      if (model.isShown() == show) {
+        continue;
+      }
+
+      model.show(show);
+      int position = getModelPosition(model);
+      if (position != -1) {
+        if (changedCount == changedPositions.length) {
+          changedPositions = Arrays.copyOf(changedPositions, changedCount * 2);
+        }
+        changedPositions[changedCount++] = position;
+      }
+    }
+
+    // Notify in order of position, so that neighboring changes are merged in a batch update
+    Arrays.sort(changedPositions, 0, changedCount);
+    for (int i = 0; i < changedCount; i++) {
+      notifyModelRangeChanged(changedPositions[i], 1, null);
     }
   }
 
@@ -521,17 +1089,20 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
 
   /**
    * Finds the position of the given model in the list. Doesn't use indexOf to avoid unnecessary
-   * equals() calls since we're looking for the same object instance.
+   * equals() calls since we're looking for the same object instance. The models list keeps an
+   * index of model positions by id, so this doesn't need to search the list.
    */
   protected int getModelPosition(EpoxyModel<?> model) {
-    int size = models.size();
-    for (int i = 0; i < size; i++) {
-      if (model == models.get(i)) {
-        return i;
-      }
-    }
+    return ((ModelList) models).indexOfModel(model);
+  }
 
-    return -1;
+  /**
+   * Finds the position of the model with the given id in the {@link #models} list, or -1 if there
+   * is none. Like {@link #getModelPosition(EpoxyModel)} this uses the list's index instead of
+   * searching it, unless a model's id was changed after it was added.
+   */
+  protected int getModelPositionById(long id) {
+    return ((ModelList) models).indexOfId(id);
   }
 
   /**
@@ -552,7 +1123,36 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
    * @see EpoxyModel#getSpanSize(int, int, int)
    */
   public void setSpanCount(int spanCount) {
+    if (this.spanCount == spanCount) {
+      return;
+    }
+
     this.spanCount = spanCount;
+    // Models are given the span count, so their span sizes may be different now
+    spanSizeLookup.invalidateSpanIndexCache();
+    if (spanSizeCache != null) {
+      spanSizeCache.clear();
+    }
+  }
+
+  /**
+   * Caches the span size of each position for {@link #getSpanSizeLookup()}, along with the span
+   * index and span group index that GridLayoutManager computes from them, so models aren't asked
+   * for their span size on every layout pass. The cache is kept up to date by the adapter's item
+   * notifications, including the ones sent by diffs, so a changed model is asked again once it has
+   * been notified as changed. Changing the span count clears the cache.
+   * <p>
+   * Only enable this if the span size of each model depends only on the model and the span count,
+   * since {@link EpoxyModel#getSpanSize(int, int, int)} is not called again when only a model's
+   * position or the item count changes.
+   */
+  public void enableSpanSizeCaching() {
+    if (spanSizeCache != null) {
+      throw new IllegalStateException("Span size caching was already enabled");
+    }
+
+    spanSizeCache = new SpanSizeCache(this);
+    registerAdapterDataObserver(spanSizeCache);
   }
 
   public int getSpanCount() {
@@ -563,6 +1163,89 @@ public abstract class EpoxyAdapter extends RecyclerView.Adapter<EpoxyViewHolder>
     return spanCount > 1;
   }
 
+  /**
+   * Notifies that models were inserted at the given index of the {@link #models} list. If hidden
+   * models are skipped, only the shown models among them are notified, at their adapter position.
+   */
+  private void notifyModelRangeInserted(int modelIndex, int modelCount) {
+    if (visibleModelIndex == null) {
+      sendItemRangeInserted(modelIndex, modelCount);
+      return;
+    }
+
+    visibleModelIndex.insert(modelIndex, modelCount, models);
+    // Any hidden models among them are left out, so the shown ones are next to each other
+    int positionStart = visibleModelIndex.visiblePositionOf(modelIndex);
+    int itemCount = visibleModelIndex.visiblePositionOf(modelIndex + modelCount) - positionStart;
+    sendItemRangeInserted(positionStart, itemCount);
+  }
+
+  /**
+   * Notifies that models were removed from the given index of the {@link #models} list. If hidden
+   * models are skipped, only the models among them that were shown are notified.
+   */
+  private void notifyModelRangeRemoved(int modelIndex, int modelCount) {
+    if (visibleModelIndex == null) {
+      sendItemRangeRemoved(modelIndex, modelCount);
+      return;
+    }
+
+    // The index still has the removed models, so it knows which of them were shown
+    int positionStart = visibleModelIndex.visiblePositionOf(modelIndex);
+    int itemCount = visibleModelIndex.visiblePositionOf(modelIndex + modelCount) - positionStart;
+    visibleModelIndex.remove(modelIndex, modelCount);
+    sendItemRangeRemoved(positionStart, itemCount);
+  }
+
+  /**
+   * Notifies that models in the {@link #models} list changed. If hidden models are skipped, a model
+   * that was shown or hidden since it was last notified is inserted or removed instead.
+   */
+  private void notifyModelRangeChanged(int modelIndex, int modelCount, @Nullable Object payload) {
+    if (visibleModelIndex == null) {
+      sendItemRangeChanged(modelIndex, modelCount, payload);
+      return;
+    }
+
+    for (int i = modelIndex; i < modelIndex + modelCount; i++) {
+      boolean shown = models.get(i).isShown();
+      if (shown != visibleModelIndex.isShown(i)) {
+        visibleModelIndex.setShown(i, shown);
+        if (shown) {
+          sendItemRangeInserted(visibleModelIndex.visiblePositionOf(i), 1);
+        } else {
+          sendItemRangeRemoved(visibleModelIndex.visiblePositionOf(i), 1);
+        }
+      } else if (shown) {
+        sendItemRangeChanged(visibleModelIndex.visiblePositionOf(i), 1, payload);
+      }
+    }
+  }
+
+  private void sendItemRangeInserted(int positionStart, int itemCount) {
+    if (batchUpdateDepth == 0) {
+      notifyItemRangeInserted(positionStart, itemCount);
+    } else if (itemCount > 0) {
+      batchedUpdates.add(positionStart, itemCount);
+    }
+  }
+
+  private void sendItemRangeRemoved(int positionStart, int itemCount) {
+    if (batchUpdateDepth == 0) {
+      notifyItemRangeRemoved(positionStart, itemCount);
+    } else if (itemCount > 0) {
+      batchedUpdates.remove(positionStart, itemCount);
+    }
+  }
+
+  private void sendItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+    if (batchUpdateDepth == 0) {
+      notifyItemRangeChanged(positionStart, itemCount, payload);
+    } else {
+      batchedUpdates.update(positionStart, itemCount, payload);
+    }
+  }
+
   /**
    * We pause the list's notifications when we modify models internally, since we already do the
    * proper adapter notifications for those modifications. By pausing these list notifications we
@@ -27,6 +27,10 @@ public abstract class EpoxyModel<T> {
   private boolean shown = true;
   /** Set to true once this model is added to an adapter. */
   boolean addedToAdapter;
+  /** Incremented by {@link #markDirty()} each time the content of this model changes. */
+  private int contentVersion;
+  /** The attributes recorded by {@link #markDirty(long)} since the diffing last read them. */
+  private long changedAttributes;
 
   protected EpoxyModel(long id) {
     id(id);
@@ -162,6 +166,7 @@ public abstract class EpoxyModel<T> {
 
   public EpoxyModel<T> layout(@LayoutRes int layoutRes) {
     layout = layoutRes;
+    markDirty();
     return this;
   }
 
@@ -174,12 +179,28 @@ public abstract class EpoxyModel<T> {
     return layout;
   }
 
+  /**
+   * The view type of the model in the adapter. Models with the same view type can be bound to each
+   * other's views, so by default this is the model's layout.
+   */
+  int getViewType() {
+    return getLayout();
+  }
+
+  /**
+   * Called when the diffing notifies that this model changed, because its hash code is different
+   * from the model it replaced. The model is bound again after this, as long as it is on screen.
+   */
+  void onChangedByDiff() {
+  }
+
   /**
    * Sets fields of the model to default ones.
    */
   public EpoxyModel<T> reset() {
     layout = 0;
     shown = true;
+    markDirty();
 
     return this;
   }
@@ -212,6 +233,79 @@ public abstract class EpoxyModel<T> {
     return result;
   }
 
+  /**
+   * Compares this model to a previous model with the same id and returns a bit mask of the
+   * attributes that changed. If the adapter has enabled {@link EpoxyAdapter#enableDiffPayloads()}
+   * then this is called when a diff finds that a model's hash code changed, and a non zero result
+   * is used as the payload of the item change. This lets {@link #bind(Object, List)} update only
+   * the parts of the view that changed, which can be read with {@link
+   * #getChangedAttributes(List)}.
+   * <p>
+   * Generated models implement this with a constant bit for each attribute. By default this returns
+   * 0, which means the view is fully rebound with {@link #bind(Object)}.
+   * <p>
+   * This is only used when the model replaced a previous instance. A model that was changed in
+   * place is notified with the attributes recorded by {@link #markDirty(long)} instead.
+   */
+  public long diffAttributes(EpoxyModel<?> other) {
+    return 0;
+  }
+
+  /**
+   * Combines the bit masks returned by {@link #diffAttributes(EpoxyModel)} for each change in the
+   * given payloads, as passed to {@link #bind(Object, List)}. Other payloads are ignored.
+   */
+  public static long getChangedAttributes(List<Object> payloads) {
+    long changedAttributes = 0;
+    for (int i = 0; i < payloads.size(); i++) {
+      Object payload = payloads.get(i);
+      if (payload instanceof Long) {
+        changedAttributes |= (Long) payload;
+      }
+    }
+    return changedAttributes;
+  }
+
+  /**
+   * Records that the content of this model has changed, so that its hash code needs to be checked
+   * again the next time models are diffed. Generated models call this from every attribute setter
+   * and from {@link #reset()}, and the base properties like {@link #layout(int)} and {@link
+   * #show()} call it too.
+   * <p>
+   * This only matters if the adapter has enabled {@link EpoxyAdapter#enableDirtyTracking()}, in
+   * which case it must be called whenever a model is changed in a way its setters don't know
+   * about, such as by modifying a list that the model holds.
+   */
+  public final void markDirty() {
+    contentVersion++;
+  }
+
+  /**
+   * Like {@link #markDirty()}, and also records that the attributes with the given bits changed,
+   * using the same bits as {@link #diffAttributes(EpoxyModel)}. Generated setters call this so that
+   * a model changed in place, which has no previous instance to compare to, can still be notified
+   * with a payload of its changed attributes.
+   */
+  public final void markDirty(long changedAttributes) {
+    markDirty();
+    this.changedAttributes |= changedAttributes;
+  }
+
+  /** Changes each time {@link #markDirty()} is called, or a model that this contains changes. */
+  int getContentVersion() {
+    return contentVersion;
+  }
+
+  /**
+   * @return The attributes recorded by {@link #markDirty(long)} since this was last called. They
+   * are cleared so that each change is only reported once.
+   */
+  long takeChangedAttributes() {
+    long attributes = changedAttributes;
+    changedAttributes = 0;
+    return attributes;
+  }
+
   /**
    * Subclasses can override this if they want their view to take up more than one span in a grid
    * layout.
@@ -226,16 +320,19 @@ public abstract class EpoxyModel<T> {
 
   public EpoxyModel<T> show() {
     shown = true;
+    markDirty();
     return this;
   }
 
   public EpoxyModel<T> show(boolean show) {
     shown = show;
+    markDirty();
     return this;
   }
 
   public EpoxyModel<T> hide() {
     shown = false;
+    markDirty();
     return this;
   }
 
@@ -1,7 +1,9 @@
 package com.airbnb.epoxy;
 
 import android.support.annotation.LayoutRes;
+import android.support.annotation.Nullable;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.ViewStub;
 
 import com.airbnb.epoxy.EpoxyModelGroup.Holder;
@@ -17,32 +19,57 @@ import java.util.List;
  * whatever view configuration you want.
  * <p>
  * The constructors take a list of models and a layout file. The layout file should contain a {@link
- * ViewStub} for each of the models in the list. Each view stub must have a specific view id to
- * associate it with the model it belongs to. These ids follow the form
- * R.id.epoxy_model_group_view_stub_1, R.id.epoxy_model_group_view_stub_2,
- * R.id.epoxy_model_group_view_stub_3, etc.
+ * ViewStub} for each of the models in the list. By default the view stubs are used by the models
+ * in the order they appear in the layout, so the first stub is used by the first model (index 0 of
+ * the provided list), the second stub by the second model, and so on. There is no limit on the
+ * number of models.
  * <p>
- * R.id.epoxy_model_group_view_stub_1 maps to the first model (index 0 of the provided list),
- * R.id.epoxy_model_group_view_stub_2 maps to the second model, and so on.
+ * The first five models can instead be associated with a stub by giving it a specific view id.
+ * These ids are R.id.epoxy_model_group_view_stub_1 for the first model,
+ * R.id.epoxy_model_group_view_stub_2 for the second model, and so on up to
+ * R.id.epoxy_model_group_view_stub_5. The models without a stub of their own then use the other
+ * stubs in layout order.
  * <p>
  * The layout can be of any view type, and it can arrange the view stubs however is needed.
  * <p>
- * A maximum of {@link #MAX_MODELS_SUPPORTED} can be added to a group.
+ * Groups only share views with groups that have the same layout and whose models have the same
+ * layouts, in the same order, since the views of the models are inflated into the group's view. The
+ * layouts of the models shouldn't be changed once the group is added to an adapter.
+ * <p>
+ * When the diffing notifies that a group changed and it is bound to a view that is already
+ * showing a group, only the models whose hash codes changed are bound again, the same way the
+ * diffing only rebinds changed models. The hash codes are compared to the ones the diffing saw
+ * when the group bound to the view was last diffed, so binds don't compute any. A model that isn't
+ * bound again leaves the previous model bound to its view, and that model is the one unbound when
+ * the view is recycled. Other binds, such as after {@link
+ * EpoxyAdapter#notifyModelChanged(EpoxyModel)}, bind all the models so that attributes left out of
+ * the hash codes are updated too.
  * <p>
  * By default this model inherits the same id as the first model in the list. Call {@link #id(long)}
  * to override that if needed.
  */
 @SuppressWarnings("rawtypes")
 public class EpoxyModelGroup extends EpoxyModelWithHolder<Holder> {
-  /**
-   * We have a hard cap on number of models since we have hardcoded ids for simplicity, clarity, and
-   * speed.
-   */
-  private static final int MAX_MODELS_SUPPORTED = 5;
+  /** The ids that give the stub of each of the first few models, indexed by model position. */
+  private static final int[] STUB_IDS = {
+      R.id.epoxy_model_group_view_stub_1,
+      R.id.epoxy_model_group_view_stub_2,
+      R.id.epoxy_model_group_view_stub_3,
+      R.id.epoxy_model_group_view_stub_4,
+      R.id.epoxy_model_group_view_stub_5
+  };
 
   protected final List<EpoxyModel> models;
   /** By default we save view state if any of the models need to save state. */
   private final boolean shouldSaveViewState;
+  /** Assigned the first time it is needed, or 0 if it hasn't been yet. */
+  private int viewType;
+  /** Set when the diffing notifies a change, until the next bind. */
+  private boolean changedByDiff;
+  /** The hash code of each model, saved each time the group's hash code is computed. */
+  private final int[] modelHashCodes;
+  /** Whether {@link #modelHashCodes} were saved yet. */
+  private boolean modelsHashed;
 
   /**
    * @param layoutRes The layout to use with these models.
@@ -69,12 +96,8 @@ public class EpoxyModelGroup extends EpoxyModelWithHolder<Holder> {
       throw new IllegalArgumentException("Models cannot be empty");
     }
 
-    if (models.size() > MAX_MODELS_SUPPORTED) {
-      throw new IllegalArgumentException(
-          "Too many models. Only " + MAX_MODELS_SUPPORTED + " models are supported");
-    }
-
     this.models = models;
+    modelHashCodes = new int[models.size()];
     layout(layoutRes);
     id(models.get(0).id());
 
@@ -90,27 +113,89 @@ public class EpoxyModelGroup extends EpoxyModelWithHolder<Holder> {
   }
 
   @Override
-  public final void bind(Holder holder) {
-    iterateModels(holder, new IterateModelsCallback() {
-      @Override
-      public void onModel(EpoxyModel model, Object boundObject, View view) {
-        setViewVisibility(model, view);
-        //noinspection unchecked
-        model.bind(boundObject);
+  public EpoxyModel<Holder> layout(@LayoutRes int layoutRes) {
+    viewType = 0;
+    return super.layout(layoutRes);
+  }
+
+  @Override
+  int getViewType() {
+    if (viewType == 0) {
+      int modelCount = models.size();
+      int[] modelViewTypes = new int[modelCount];
+      for (int i = 0; i < modelCount; i++) {
+        modelViewTypes[i] = models.get(i).getViewType();
       }
-    });
+      viewType = ModelGroupViewTypes.getViewType(getLayout(), modelViewTypes);
+    }
+    return viewType;
+  }
+
+  /**
+   * Includes the versions of the models, so that a model changed in place marks the group dirty
+   * too. Versions only increase, so the sum changes whenever any of them do.
+   */
+  @Override
+  int getContentVersion() {
+    int version = super.getContentVersion();
+    int modelCount = models.size();
+    for (int i = 0; i < modelCount; i++) {
+      version += models.get(i).getContentVersion();
+    }
+    return version;
+  }
+
+  @Override
+  void onChangedByDiff() {
+    changedByDiff = true;
+  }
+
+  @Override
+  public final void bind(Holder holder) {
+    bindModels(holder, null);
   }
 
   @Override
-  public final void bind(Holder holder, final List<Object> payloads) {
-    iterateModels(holder, new IterateModelsCallback() {
-      @Override
-      public void onModel(EpoxyModel model, Object boundObject, View view) {
-        setViewVisibility(model, view);
+  public final void bind(Holder holder, List<Object> payloads) {
+    bindModels(holder, payloads);
+  }
+
+  /**
+   * If the diffing notified a change, binds each model whose hash code is different from the one
+   * last bound to its view in the holder. When a group changes it is usually because of a single
+   * model, so this saves rebinding the others, which may be expensive, such as models that load
+   * images. Otherwise all the models are bound.
+   *
+   * @param payloads The payloads to bind the changed models with, or null to fully bind them.
+   */
+  private void bindModels(Holder holder, @Nullable List<Object> payloads) {
+    // The diffing computed the hash codes when it noticed the change
+    boolean onlyChangedModels = holder.bound && changedByDiff && holder.hashCodesKnown;
+    changedByDiff = false;
+
+    int modelCount = models.size();
+    for (int i = 0; i < modelCount; i++) {
+      EpoxyModel model = models.get(i);
+      if (onlyChangedModels && holder.boundHashCodes[i] == modelHashCodes[i]) {
+        continue;
+      }
+
+      View view = holder.views[i];
+      Object boundObject = getObjectToBind(holder, i, model);
+      setViewVisibility(model, view);
+      if (payloads == null) {
+        //noinspection unchecked
+        model.bind(boundObject);
+      } else {
         //noinspection unchecked
         model.bind(boundObject, payloads);
       }
-    });
+      holder.boundModels[i] = model;
+    }
+
+    System.arraycopy(modelHashCodes, 0, holder.boundHashCodes, 0, modelCount);
+    holder.hashCodesKnown = modelsHashed;
+    holder.bound = true;
   }
 
   private static void setViewVisibility(EpoxyModel model, View view) {
@@ -123,51 +208,43 @@ public class EpoxyModelGroup extends EpoxyModelWithHolder<Holder> {
 
   @Override
   public final void unbind(Holder holder) {
-    iterateModels(holder, new IterateModelsCallback() {
-      @Override
-      public void onModel(EpoxyModel model, Object boundObject, View view) {
-        //noinspection unchecked
-        model.unbind(boundObject);
-      }
-    });
+    // These loops are written out instead of sharing a callback, since creating a callback on
+    // every call would allocate while scrolling
+    int modelCount = models.size();
+    for (int i = 0; i < modelCount; i++) {
+      // Models that weren't bound again after a change were never bound to the view
+      EpoxyModel model = holder.boundModels[i];
+      //noinspection unchecked
+      model.unbind(getObjectToBind(holder, i, model));
+      holder.boundModels[i] = null;
+    }
+    holder.bound = false;
   }
 
   @Override
   public void onViewAttachedToWindow(Holder holder) {
-    iterateModels(holder, new IterateModelsCallback() {
-      @Override
-      public void onModel(EpoxyModel model, Object boundObject, View view) {
-        //noinspection unchecked
-        model.onViewAttachedToWindow(boundObject);
-      }
-    });
+    int modelCount = models.size();
+    for (int i = 0; i < modelCount; i++) {
+      EpoxyModel model = holder.boundModels[i];
+      //noinspection unchecked
+      model.onViewAttachedToWindow(getObjectToBind(holder, i, model));
+    }
   }
 
   @Override
   public void onViewDetachedFromWindow(Holder holder) {
-    iterateModels(holder, new IterateModelsCallback() {
-      @Override
-      public void onModel(EpoxyModel model, Object boundObject, View view) {
-        //noinspection unchecked
-        model.onViewDetachedFromWindow(boundObject);
-      }
-    });
-  }
-
-  private void iterateModels(Holder holder, IterateModelsCallback callback) {
     int modelCount = models.size();
     for (int i = 0; i < modelCount; i++) {
-      EpoxyModel model = models.get(i);
-      View view = holder.views.get(i);
-      EpoxyHolder epoxyHolder = holder.holders.get(i);
-      Object objectToBind = (model instanceof EpoxyModelWithHolder) ? epoxyHolder : view;
-
-      callback.onModel(model, objectToBind, view);
+      EpoxyModel model = holder.boundModels[i];
+      //noinspection unchecked
+      model.onViewDetachedFromWindow(getObjectToBind(holder, i, model));
     }
   }
 
-  private interface IterateModelsCallback {
-    void onModel(EpoxyModel model, Object boundObject, View view);
+  private static Object getObjectToBind(Holder holder, int index, EpoxyModel model) {
+    return (model instanceof EpoxyModelWithHolder)
+        ? holder.holders[index]
+        : holder.views[index];
   }
 
   @Override
@@ -195,66 +272,86 @@ public class EpoxyModelGroup extends EpoxyModelWithHolder<Holder> {
   }
 
   protected class Holder extends EpoxyHolder {
-    private List<View> views;
-    private List<EpoxyHolder> holders;
+    private View[] views;
+    private EpoxyHolder[] holders;
+    /** The model last bound to each view, if {@link #bound}. */
+    private EpoxyModel[] boundModels;
+    /** The hash code of the model last bound to each view, if {@link #hashCodesKnown}. */
+    private int[] boundHashCodes;
+    /** Whether the group last bound had been diffed, which saves the hash codes of its models. */
+    private boolean hashCodesKnown;
+    /** Whether models are bound to the views, which are unbound when the holder is recycled. */
+    private boolean bound;
 
     @Override
     protected void bindView(View itemView) {
       int modelCount = models.size();
-      views = new ArrayList<>(modelCount);
-      holders = new ArrayList<>(modelCount);
+      views = new View[modelCount];
+      holders = new EpoxyHolder[modelCount];
+      boundModels = new EpoxyModel[modelCount];
+      boundHashCodes = new int[modelCount];
+
+      // The stubs are all found before any are inflated, since inflated views may contain stubs too
+      ViewStub[] stubsWithIds = new ViewStub[Math.min(STUB_IDS.length, modelCount)];
+      List<ViewStub> stubs = new ArrayList<>(modelCount);
+      findViewStubs(itemView, stubsWithIds, stubs);
 
+      int nextStub = 0;
       for (int i = 0; i < modelCount; i++) {
         EpoxyModel<?> model = models.get(i);
-        ViewStub viewStub = getViewStub(itemView, i, model);
+        ViewStub viewStub = i < stubsWithIds.length ? stubsWithIds[i] : null;
+        if (viewStub == null) {
+          if (nextStub == stubs.size()) {
+            throw new IllegalStateException(
+                "The expected view for your model " + model + " at position " + i
+                    + " wasn't found. Does your layout have a ViewStub for each model?");
+          }
+          viewStub = stubs.get(nextStub++);
+        }
         viewStub.setLayoutResource(model.getLayout());
         View view = viewStub.inflate();
 
         if (model instanceof EpoxyModelWithHolder) {
           EpoxyHolder holder = ((EpoxyModelWithHolder) model).createNewHolder();
           holder.bindView(view);
-          holders.add(holder);
-        } else {
-          holders.add(null);
+          holders[i] = holder;
         }
 
-        views.add(view);
+        views[i] = view;
       }
     }
 
-    private ViewStub getViewStub(View itemView, int i, EpoxyModel<?> model) {
-      View stub = itemView.findViewById(getIdForIndex(i));
-
-      if (stub == null) {
-        throw new IllegalStateException(
-            "The expected view for your model " + model + " at position " + i
-                + " wasn't found. Are you using the correct stub id?");
-      }
-
-      if (stub instanceof ViewStub) {
-        return (ViewStub) stub;
+    /**
+     * Puts the view stubs in the view's hierarchy with the id of one of the models at the index of
+     * that model, and adds the other stubs to the list in layout order.
+     */
+    private void findViewStubs(View view, ViewStub[] stubsWithIds, List<ViewStub> stubs) {
+      int idIndex = getIndexForId(view.getId());
+      if (view instanceof ViewStub) {
+        if (idIndex != -1 && idIndex < stubsWithIds.length) {
+          stubsWithIds[idIndex] = (ViewStub) view;
+        } else {
+          stubs.add((ViewStub) view);
+        }
+      } else if (idIndex != -1) {
+        throw new IllegalStateException("Your layout should provide a ViewStub. See the "
+            + "layout() method javadoc for more info.");
+      } else if (view instanceof ViewGroup) {
+        ViewGroup viewGroup = (ViewGroup) view;
+        for (int i = 0; i < viewGroup.getChildCount(); i++) {
+          findViewStubs(viewGroup.getChildAt(i), stubsWithIds, stubs);
+        }
       }
-
-      throw new IllegalStateException(
-          "Your layout should provide a ViewStub. See the layout() method javadoc for more info.");
     }
 
-    private int getIdForIndex(int modelIndex) {
-      switch (modelIndex) {
-        case 0:
-          return R.id.epoxy_model_group_view_stub_1;
-        case 1:
-          return R.id.epoxy_model_group_view_stub_2;
-        case 2:
-          return R.id.epoxy_model_group_view_stub_3;
-        case 3:
-          return R.id.epoxy_model_group_view_stub_4;
-        case 4:
-          return R.id.epoxy_model_group_view_stub_5;
-        default:
-          throw new IllegalStateException(
-              "No support for more than " + MAX_MODELS_SUPPORTED + " models");
+    /** @return The index of the model that uses a stub with the given id, or -1 if none do. */
+    private int getIndexForId(int id) {
+      for (int i = 0; i < STUB_IDS.length; i++) {
+        if (STUB_IDS[i] == id) {
+          return i;
+        }
       }
+      return -1;
     }
   }
 
@@ -275,10 +372,23 @@ public class EpoxyModelGroup extends EpoxyModelWithHolder<Holder> {
     return models.equals(that.models);
   }
 
+  /**
+   * The same as including {@code models.hashCode()}, and also saves the hash code of each model so
+   * that a bind after the diffing notifies a change can tell which models changed.
+   */
   @Override
   public int hashCode() {
+    int modelsHashCode = 1;
+    int modelCount = models.size();
+    for (int i = 0; i < modelCount; i++) {
+      int hashCode = models.get(i).hashCode();
+      modelHashCodes[i] = hashCode;
+      modelsHashCode = 31 * modelsHashCode + hashCode;
+    }
+    modelsHashed = true;
+
     int result = super.hashCode();
-    result = 31 * result + models.hashCode();
+    result = 31 * result + modelsHashCode;
     return result;
   }
 }
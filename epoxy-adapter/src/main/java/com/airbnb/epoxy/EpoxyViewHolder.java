@@ -4,6 +4,7 @@ package com.airbnb.epoxy;
 import android.support.annotation.LayoutRes;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
+import android.view.View;
 import android.view.ViewGroup;
 
 import java.util.List;
@@ -18,6 +19,11 @@ public class EpoxyViewHolder extends RecyclerView.ViewHolder {
     super(LayoutInflater.from(parent.getContext()).inflate(layoutId, parent, false));
   }
 
+  /** Creates a holder for a view that was already inflated, such as one inflated ahead of time. */
+  public EpoxyViewHolder(View view) {
+    super(view);
+  }
+
   public void bind(@SuppressWarnings("rawtypes") EpoxyModel model, List<Object> payloads) {
     this.payloads = payloads;
 
@@ -49,6 +55,10 @@ public class EpoxyViewHolder extends RecyclerView.ViewHolder {
     payloads = null;
   }
 
+  boolean isBound() {
+    return epoxyModel != null;
+  }
+
   public List<Object> getPayloads() {
     assertBound();
     return payloads;
@@ -0,0 +1,100 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.LayoutRes;
+
+/**
+ * How an adapter has used the view holders of one view type, as tracked by {@link
+ * EpoxyAdapter#getLayoutStats()}. The counts keep updating as the adapter is used.
+ * <p>
+ * The view type of a model is its layout, so these are the stats of the layout. The exception is
+ * {@link EpoxyModelGroup}s, which get a view type for each combination of their layout and the
+ * layouts of their models.
+ * <p>
+ * The peak bound count is the most holders of the view type that were bound at once, which is how
+ * many a RecyclerView needs to show them all and is a good size for the view type's pool. It can be
+ * passed to {@link android.support.v7.widget.RecyclerView.RecycledViewPool#setMaxRecycledViews(int,
+ * int)} with the view type to hard code pool sizes measured in a debug build. That only works for
+ * layouts, since the view types of groups are assigned as they are first used and can be different
+ * each time the app runs.
+ */
+public final class LayoutStats {
+  private final int viewType;
+  @LayoutRes private final int layout;
+  private int createdCount;
+  private int recycledCount;
+  private int boundCount;
+  private int peakBoundCount;
+
+  LayoutStats(int viewType) {
+    this.viewType = viewType;
+    layout = ModelGroupViewTypes.getLayout(viewType);
+  }
+
+  /**
+   * @return The view type of the holders. This is their layout, unless they are holders of {@link
+   * EpoxyModelGroup}s, whose view types are negative and aren't the same between runs of the app.
+   */
+  public int getViewType() {
+    return viewType;
+  }
+
+  /**
+   * @return The layout the holders inflate. For {@link EpoxyModelGroup}s this is the group's
+   * layout, which groups with different models may share under different view types.
+   */
+  @LayoutRes
+  public int getLayout() {
+    return layout;
+  }
+
+  /** @return How many holders were created for the layout, each of which inflated a view. */
+  public int getCreatedCount() {
+    return createdCount;
+  }
+
+  /** @return How many times a holder of the layout was unbound and recycled. */
+  public int getRecycledCount() {
+    return recycledCount;
+  }
+
+  /** @return How many holders of the layout are currently bound. */
+  public int getBoundCount() {
+    return boundCount;
+  }
+
+  /** @return The most holders of the layout that have been bound at the same time. */
+  public int getPeakBoundCount() {
+    return peakBoundCount;
+  }
+
+  void onCreated() {
+    createdCount++;
+  }
+
+  /** @return True if this raised the peak bound count. */
+  boolean onBound() {
+    boundCount++;
+    if (boundCount > peakBoundCount) {
+      peakBoundCount = boundCount;
+      return true;
+    }
+    return false;
+  }
+
+  void onRecycled() {
+    recycledCount++;
+    boundCount--;
+  }
+
+  @Override
+  public String toString() {
+    return "LayoutStats{"
+        + "viewType=" + viewType
+        + ", layout=" + layout
+        + ", createdCount=" + createdCount
+        + ", recycledCount=" + recycledCount
+        + ", boundCount=" + boundCount
+        + ", peakBoundCount=" + peakBoundCount
+        + '}';
+  }
+}
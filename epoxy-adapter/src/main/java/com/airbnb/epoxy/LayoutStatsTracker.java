@@ -0,0 +1,93 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.RecyclerView.RecycledViewPool;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the {@link LayoutStats} of an adapter's view types, and optionally sizes the pool of the
+ * RecyclerView the adapter is attached to from them. Each view type's pool is sized to the most
+ * holders of the view type that were bound at once. That grows the pool for layouts that fill the
+ * screen, such as grid items, and shrinks it below RecyclerView's default of 5 for layouts that are
+ * shown once, such as headers.
+ */
+class LayoutStatsTracker {
+  private final SparseArray<LayoutStats> statsByViewType = new SparseArray<>();
+  private boolean poolSizingEnabled;
+  @Nullable private RecyclerView recyclerView;
+
+  void enablePoolSizing() {
+    poolSizingEnabled = true;
+    sizePools();
+  }
+
+  void attach(RecyclerView recyclerView) {
+    if (this.recyclerView == null) {
+      this.recyclerView = recyclerView;
+      sizePools();
+    }
+  }
+
+  void detach(RecyclerView recyclerView) {
+    if (this.recyclerView == recyclerView) {
+      this.recyclerView = null;
+    }
+  }
+
+  void onCreated(int viewType) {
+    getOrCreate(viewType).onCreated();
+  }
+
+  void onBound(int viewType) {
+    LayoutStats stats = getOrCreate(viewType);
+    if (stats.onBound()) {
+      sizePool(stats);
+    }
+  }
+
+  void onRecycled(int viewType) {
+    getOrCreate(viewType).onRecycled();
+  }
+
+  List<LayoutStats> getStats() {
+    List<LayoutStats> stats = new ArrayList<>(statsByViewType.size());
+    for (int i = 0; i < statsByViewType.size(); i++) {
+      stats.add(statsByViewType.valueAt(i));
+    }
+    return stats;
+  }
+
+  private LayoutStats getOrCreate(int viewType) {
+    LayoutStats stats = statsByViewType.get(viewType);
+    if (stats == null) {
+      stats = new LayoutStats(viewType);
+      statsByViewType.put(viewType, stats);
+    }
+    return stats;
+  }
+
+  private void sizePools() {
+    for (int i = 0; i < statsByViewType.size(); i++) {
+      sizePool(statsByViewType.valueAt(i));
+    }
+  }
+
+  private void sizePool(LayoutStats stats) {
+    if (!poolSizingEnabled || recyclerView == null || stats.getPeakBoundCount() == 0) {
+      return;
+    }
+
+    RecycledViewPool pool = recyclerView.getRecycledViewPool();
+    if (pool instanceof SharedRecycledViewPool) {
+      // Other adapters using the pool may need more views of the view type than this one
+      ((SharedRecycledViewPool) pool)
+          .requestMaxRecycledViews(stats.getViewType(), stats.getPeakBoundCount());
+    } else {
+      pool.setMaxRecycledViews(stats.getViewType(), stats.getPeakBoundCount());
+    }
+  }
+}
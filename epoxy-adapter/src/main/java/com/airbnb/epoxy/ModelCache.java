@@ -0,0 +1,121 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of models by id that evicts the least recently used model when it is full. Each
+ * model is stored with the hash code it was built for, so a model whose content has changed since
+ * is treated as missing and rebuilt.
+ * <p>
+ * Entries are kept in fixed size parallel arrays, linked in order of use by index, so that looking
+ * up and adding models doesn't box ids or allocate entries while the adapter binds.
+ */
+class ModelCache {
+  private static final int NONE = -1;
+
+  private final ModelStateMap slotById;
+  private final long[] ids;
+  private final int[] hashCodes;
+  private final EpoxyModel<?>[] models;
+  /** The slot used just before each slot, or {@link #NONE} if it is the most recently used. */
+  private final int[] newer;
+  /** The slot used just after each slot, or {@link #NONE} if it is the least recently used. */
+  private final int[] older;
+  private int newest = NONE;
+  private int oldest = NONE;
+  private int size;
+
+  ModelCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+    }
+
+    slotById = new ModelStateMap(maxSize);
+    ids = new long[maxSize];
+    hashCodes = new int[maxSize];
+    models = new EpoxyModel<?>[maxSize];
+    newer = new int[maxSize];
+    older = new int[maxSize];
+  }
+
+  int size() {
+    return size;
+  }
+
+  int maxSize() {
+    return models.length;
+  }
+
+  /**
+   * @return The cached model with this id if it was built for the given hash code, or null if
+   * there is none.
+   */
+  @Nullable
+  EpoxyModel<?> get(long id, int hashCode) {
+    int slot = slotById.get(id);
+    if (slot == NONE || hashCodes[slot] != hashCode) {
+      return null;
+    }
+
+    unlink(slot);
+    linkAsNewest(slot);
+    return models[slot];
+  }
+
+  /** Caches the model, replacing any model with the same id and evicting the oldest if full. */
+  void put(long id, int hashCode, EpoxyModel<?> model) {
+    int slot = slotById.get(id);
+    if (slot != NONE) {
+      unlink(slot);
+    } else if (size < models.length) {
+      slot = size++;
+    } else {
+      slot = oldest;
+      unlink(slot);
+      slotById.remove(ids[slot]);
+    }
+
+    ids[slot] = id;
+    hashCodes[slot] = hashCode;
+    models[slot] = model;
+    slotById.put(id, slot);
+    linkAsNewest(slot);
+  }
+
+  void clear() {
+    slotById.clear();
+    Arrays.fill(models, null);
+    newest = NONE;
+    oldest = NONE;
+    size = 0;
+  }
+
+  private void unlink(int slot) {
+    if (newer[slot] == NONE) {
+      newest = older[slot];
+    } else {
+      older[newer[slot]] = older[slot];
+    }
+
+    if (older[slot] == NONE) {
+      oldest = newer[slot];
+    } else {
+      newer[older[slot]] = newer[slot];
+    }
+  }
+
+  private void linkAsNewest(int slot) {
+    newer[slot] = NONE;
+    older[slot] = newest;
+    if (newest != NONE) {
+      newer[newest] = slot;
+    }
+    newest = slot;
+
+    if (oldest == NONE) {
+      oldest = slot;
+    }
+  }
+}
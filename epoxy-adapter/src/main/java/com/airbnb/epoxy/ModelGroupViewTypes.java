@@ -0,0 +1,78 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.LayoutRes;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns view types to {@link EpoxyModelGroup}s. A group's view is its layout plus a view inflated
+ * for each of its models, so two groups can only share views if they have the same layout and the
+ * same view types for their models, in the same order. Each such signature gets its own view type.
+ * <p>
+ * Layout resources are always positive, so group view types are negative, starting below {@link
+ * RecyclerView#INVALID_TYPE}. They are assigned once per process, which keeps them consistent
+ * between adapters that share a {@link RecyclerView.RecycledViewPool}.
+ */
+final class ModelGroupViewTypes {
+  private static final Map<Signature, Integer> VIEW_TYPES = new HashMap<>();
+  /** The layout of each group view type, used to inflate the group's view. */
+  private static final SparseIntArray LAYOUTS = new SparseIntArray();
+  private static int nextViewType = RecyclerView.INVALID_TYPE - 1;
+
+  private ModelGroupViewTypes() {
+  }
+
+  /** @return The view type for groups with the given layout and models of the given view types. */
+  static synchronized int getViewType(@LayoutRes int layout, int[] modelViewTypes) {
+    Signature signature = new Signature(layout, modelViewTypes);
+    Integer viewType = VIEW_TYPES.get(signature);
+    if (viewType == null) {
+      viewType = nextViewType--;
+      VIEW_TYPES.put(signature, viewType);
+      LAYOUTS.put(viewType, layout);
+    }
+    return viewType;
+  }
+
+  /**
+   * @return The layout to inflate for the view type, which is the view type itself unless it was
+   * assigned to groups.
+   */
+  @LayoutRes
+  static synchronized int getLayout(int viewType) {
+    return LAYOUTS.get(viewType, viewType);
+  }
+
+  private static final class Signature {
+    private final int layout;
+    private final int[] modelViewTypes;
+
+    Signature(int layout, int[] modelViewTypes) {
+      this.layout = layout;
+      this.modelViewTypes = modelViewTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Signature)) {
+        return false;
+      }
+
+      Signature that = (Signature) o;
+
+      return layout == that.layout && Arrays.equals(modelViewTypes, that.modelViewTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * layout + Arrays.hashCode(modelViewTypes);
+    }
+  }
+}
@@ -4,7 +4,9 @@ import android.support.annotation.NonNull;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
@@ -21,10 +23,25 @@ class ModelList extends ArrayList<EpoxyModel<?>> {
   interface ModelListObserver {
     void onItemRangeInserted(int positionStart, int itemCount);
     void onItemRangeRemoved(int positionStart, int itemCount);
+
+    /**
+     * Models in this range were replaced by models with different ids. Reordering the list, such
+     * as with a sort or shuffle, is reported this way.
+     */
+    void onItemRangeReplaced(int positionStart, int itemCount);
   }
 
   private boolean notificationsPaused;
   private ModelListObserver observer;
+  /**
+   * Maps the id of each model to its position, so models can be found without searching the list.
+   * It is updated lazily, since a change only marks the positions after it as stale, and those are
+   * indexed again the next time a model is looked up. Entries may be left over for models that were
+   * removed or replaced, so every lookup checks the id of the model at the position it finds.
+   */
+  private final ModelStateMap positionById = new ModelStateMap();
+  /** How many positions at the start of the list have their ids in {@link #positionById}. */
+  private int indexedCount;
 
   void pauseNotifications() {
     if (notificationsPaused) {
@@ -56,18 +73,134 @@ class ModelList extends ArrayList<EpoxyModel<?>> {
     }
   }
 
+  private void notifyReplacement(int positionStart, int itemCount) {
+    if (!notificationsPaused && observer != null) {
+      observer.onItemRangeReplaced(positionStart, itemCount);
+    }
+  }
+
+  /**
+   * Returns the position of a model with the given id, or -1 if there is none. If several models
+   * have the id, any one of their positions may be returned.
+   * <p>
+   * This takes constant time if the list hasn't changed since the last lookup, and otherwise only
+   * indexes the positions from the first one that changed. If no model is found at the indexed
+   * position the list is searched, since without diffing a model's id may be changed after it was
+   * added, which the index can't notice.
+   */
+  int indexOfId(long id) {
+    int position = positionById.get(id);
+    if (isIndexedAt(position, id)) {
+      return position;
+    }
+
+    if (indexedCount < size()) {
+      indexPositions();
+      position = positionById.get(id);
+      if (isIndexedAt(position, id)) {
+        return position;
+      }
+    }
+
+    int size = size();
+    for (int i = 0; i < size; i++) {
+      if (get(i).id() == id) {
+        // The list is fully indexed, so the next lookup will find it
+        positionById.put(id, i);
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the position of this exact model instance, or -1 if it isn't in the list. The model is
+   * found by its id, so this only needs to search the list if the model isn't there, or another
+   * model has the same id.
+   */
+  int indexOfModel(EpoxyModel<?> model) {
+    int position = indexOfId(model.id());
+    if (position != -1 && get(position) == model) {
+      return position;
+    }
+
+    int size = size();
+    for (int i = 0; i < size; i++) {
+      if (model == get(i)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private boolean isIndexedAt(int position, long id) {
+    return position != -1 && position < indexedCount && get(position).id() == id;
+  }
+
+  private void indexPositions() {
+    int size = size();
+    if (positionById.size() > 2 * size) {
+      // Drop the entries left over for removed models once they outnumber the current ones
+      positionById.clear();
+      indexedCount = 0;
+    }
+
+    positionById.ensureCapacity(size);
+    for (int i = indexedCount; i < size; i++) {
+      positionById.put(get(i).id(), i);
+    }
+    indexedCount = size;
+  }
+
+  /** Marks the positions from the given one onward as needing to be indexed again. */
+  private void invalidatePositionsFrom(int position) {
+    if (position < indexedCount) {
+      indexedCount = position;
+    }
+  }
+
   @Override
   public EpoxyModel<?> set(int index, EpoxyModel<?> element) {
     EpoxyModel<?> previousModel = super.set(index, element);
+    if (index < indexedCount) {
+      positionById.put(element.id(), index);
+    }
 
+    // A model replaced by one with the same id is just a change to its content, which the differ
+    // finds by checking hash codes
     if (previousModel.id() != element.id()) {
-      notifyRemoval(index, 1);
-      notifyInsertion(index, 1);
+      notifyReplacement(index, 1);
     }
 
     return previousModel;
   }
 
+  /**
+   * Overridden since newer ArrayList implementations sort the backing array directly instead of
+   * calling {@link #set(int, EpoxyModel)}, which would not be noticed. Collections.sort calls this
+   * on those versions. The whole list is reported as a single replacement.
+   */
+  public void sort(Comparator<? super EpoxyModel<?>> comparator) {
+    EpoxyModel<?>[] sortedModels = toArray(new EpoxyModel<?>[size()]);
+    Arrays.sort(sortedModels, comparator);
+    replaceWith(sortedModels);
+  }
+
+  private void replaceWith(EpoxyModel<?>[] newModels) {
+    if (newModels.length == 0) {
+      return;
+    }
+
+    for (int i = 0; i < newModels.length; i++) {
+      super.set(i, newModels[i]);
+    }
+    modCount++;
+    invalidatePositionsFrom(0);
+    notifyReplacement(0, newModels.length);
+  }
+
   @Override
   public boolean add(EpoxyModel<?> epoxyModel) {
     notifyInsertion(size(), 1);
@@ -77,6 +210,7 @@ class ModelList extends ArrayList<EpoxyModel<?>> {
   @Override
   public void add(int index, EpoxyModel<?> element) {
     notifyInsertion(index, 1);
+    invalidatePositionsFrom(index);
     super.add(index, element);
   }
 
@@ -89,12 +223,14 @@ class ModelList extends ArrayList<EpoxyModel<?>> {
   @Override
   public boolean addAll(int index, Collection<? extends EpoxyModel<?>> c) {
     notifyInsertion(index, c.size());
+    invalidatePositionsFrom(index);
     return super.addAll(index, c);
   }
 
   @Override
   public EpoxyModel<?> remove(int index) {
     notifyRemoval(index, 1);
+    invalidatePositionsFrom(index);
     return super.remove(index);
   }
 
@@ -107,6 +243,7 @@ class ModelList extends ArrayList<EpoxyModel<?>> {
     }
 
     notifyRemoval(index, 1);
+    invalidatePositionsFrom(index);
     super.remove(index);
     return true;
   }
@@ -115,6 +252,8 @@ class ModelList extends ArrayList<EpoxyModel<?>> {
   public void clear() {
     if (!isEmpty()) {
       notifyRemoval(0, size());
+      positionById.clear();
+      indexedCount = 0;
       super.clear();
     }
   }
@@ -126,6 +265,7 @@ class ModelList extends ArrayList<EpoxyModel<?>> {
     }
 
     notifyRemoval(fromIndex, toIndex - fromIndex);
+    invalidatePositionsFrom(fromIndex);
     super.removeRange(fromIndex, toIndex);
   }
 
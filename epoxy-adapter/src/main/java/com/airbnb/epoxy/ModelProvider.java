@@ -0,0 +1,30 @@
+package com.airbnb.epoxy;
+
+/**
+ * Supplies models to an {@link EpoxyAdapter} one position at a time, for lists that are too large
+ * to build a model for every item up front. Ids and hash codes are read for every position when
+ * the adapter diffs, so they should be cheap to compute without building the model, while models
+ * are only built for the positions RecyclerView shows.
+ *
+ * @see EpoxyAdapter#setModelProvider(ModelProvider, int)
+ */
+public interface ModelProvider {
+  /** The number of items in the list. */
+  int getCount();
+
+  /**
+   * The id of the item at the given position. This must be the same as the id of the model built
+   * for it, and unique in the list.
+   */
+  long idAt(int position);
+
+  /**
+   * A hash of the content of the item at the given position, which must change whenever the model
+   * built for it would be bound differently. The model's {@link EpoxyModel#hashCode()} meets this
+   * requirement, but anything cheaper that changes along with the content works too.
+   */
+  int hashCodeAt(int position);
+
+  /** Builds the model for the item at the given position. */
+  EpoxyModel<?> buildAt(int position);
+}
@@ -0,0 +1,116 @@
+package com.airbnb.epoxy;
+
+/**
+ * Serves models from a {@link ModelProvider} for an adapter in lazy mode. The adapter reports the
+ * ids and hash codes the provider had when it was last notified, and models are only built when
+ * RecyclerView asks for the model at a position, then kept in a {@link ModelCache}.
+ * <p>
+ * Diffs are computed by {@link ListDiffer} from the provider's ids and hash codes, so no models
+ * need to be built or kept alive to find what changed.
+ */
+class ModelProviderHelper {
+  private final ModelProvider provider;
+  private final ModelCache modelCache;
+  private final ListDiffer differ = new ListDiffer();
+  // The ids and hash codes that were last notified, and the ones being read for the next diff. The
+  // two are swapped for each diff so that neither allocates once they have grown to fit the list.
+  private long[] ids = new long[0];
+  private int[] hashCodes = new int[0];
+  private int count;
+  private long[] newIds = new long[0];
+  private int[] newHashCodes = new int[0];
+
+  /** Forwards the operations of a diff to the adapter's notify calls. */
+  private final DiffCallback adapterCallback;
+
+  ModelProviderHelper(EpoxyAdapter adapter, ModelProvider provider, int cacheSize) {
+    adapterCallback = new AdapterDiffCallback(adapter);
+    this.provider = provider;
+    modelCache = new ModelCache(cacheSize);
+    readProviderState();
+    swapState();
+  }
+
+  int getNotifiedCount() {
+    return count;
+  }
+
+  long getNotifiedId(int position) {
+    assertValidPosition(position);
+    return ids[position];
+  }
+
+  /**
+   * Returns the model for the given position, building it with the provider if it isn't cached.
+   * The provider is expected to have the same items it had when the adapter was last notified.
+   */
+  EpoxyModel<?> getModel(int position) {
+    assertValidPosition(position);
+    long id = ids[position];
+    int hashCode = hashCodes[position];
+
+    EpoxyModel<?> model = modelCache.get(id, hashCode);
+    if (model != null) {
+      return model;
+    }
+
+    model = provider.buildAt(position);
+    if (model.id() != id) {
+      throw new IllegalStateException("The model built for position " + position + " has id "
+          + model.id() + " but the provider's id for it is " + id + ". The provider must be "
+          + "notified with notifyModelsChanged after its items change.");
+    }
+
+    model.addedToAdapter = true;
+    modelCache.put(id, hashCode, model);
+    return model;
+  }
+
+  /**
+   * Reads the current ids and hash codes from the provider and notifies the adapter of what
+   * changed since the last time.
+   */
+  void notifyModelChanges() {
+    long[] previousIds = ids;
+    int[] previousHashCodes = hashCodes;
+    int previousCount = count;
+
+    // The new state is in place before notifying, so the adapter already reports it to
+    // RecyclerView when it reacts to the notify calls
+    readProviderState();
+    swapState();
+
+    differ.diff(previousIds, previousHashCodes, previousCount, ids, hashCodes, count,
+        adapterCallback);
+  }
+
+  private void readProviderState() {
+    int newCount = provider.getCount();
+    if (newIds.length < newCount) {
+      newIds = new long[newCount];
+      newHashCodes = new int[newCount];
+    }
+
+    for (int i = 0; i < newCount; i++) {
+      newIds[i] = provider.idAt(i);
+      newHashCodes[i] = provider.hashCodeAt(i);
+    }
+    count = newCount;
+  }
+
+  private void swapState() {
+    long[] tempIds = ids;
+    ids = newIds;
+    newIds = tempIds;
+
+    int[] tempHashCodes = hashCodes;
+    hashCodes = newHashCodes;
+    newHashCodes = tempHashCodes;
+  }
+
+  private void assertValidPosition(int position) {
+    if (position < 0 || position >= count) {
+      throw new IndexOutOfBoundsException("Position " + position + ", count " + count);
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package com.airbnb.epoxy;
+
+import java.util.Arrays;
+
+/**
+ * Stores the information about each model in a list that we need to determine if it changed. The
+ * state is kept in parallel arrays instead of an object per model, so building the state for a
+ * diff doesn't allocate and the differ walks contiguous memory. The arrays only ever grow, so a
+ * list can be cleared and rebuilt for each diff without allocating once it fits the models.
+ */
+class ModelStateList {
+  private static final int MIN_CAPACITY = 16;
+  /**
+   * The pair of each state in a gap opened by {@link #insertRange(int, int)}. The ids in a gap are
+   * left over from the states that were shifted out of it, so they must not be indexed.
+   */
+  private static final int GAP = -2;
+
+  long[] ids;
+  int[] hashCodes;
+  /** The content version of each model when its hash code was read. */
+  int[] contentVersions;
+  /**
+   * The attributes each model recorded as changed since its previous hash code was read, as taken
+   * from {@link EpoxyModel#takeChangedAttributes()} when its hash code was read.
+   */
+  long[] changedAttributes;
+  /**
+   * The index of the item with the same id in the other list when diffing two lists. This will be
+   * -1 if the item doesn't exist, in the case of insertions or removals. This is an optimization to
+   * prevent having to look up the matching pair in the map every time.
+   */
+  int[] pairs;
+  /**
+   * The models the states were built from. This lets the adapter keep serving the models that
+   * RecyclerView was last notified of while an asynchronous diff is in progress.
+   */
+  EpoxyModel<?>[] models;
+  final ModelStateMap indexById;
+  private int size;
+
+  ModelStateList() {
+    this(MIN_CAPACITY);
+  }
+
+  ModelStateList(int expectedSize) {
+    int capacity = Math.max(expectedSize, MIN_CAPACITY);
+    ids = new long[capacity];
+    hashCodes = new int[capacity];
+    contentVersions = new int[capacity];
+    changedAttributes = new long[capacity];
+    pairs = new int[capacity];
+    models = new EpoxyModel<?>[capacity];
+    indexById = new ModelStateMap(expectedSize);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** @return The index of the state with the given id, or -1 if there is none. */
+  int indexOf(long id) {
+    return indexById.get(id);
+  }
+
+  /**
+   * Adds a state for the given model to the end of the list.
+   *
+   * @param hashCode The current hash code of the model.
+   * @return The index of a state that already has the same id, or -1 if the id is unique. In that
+   * case the list is left in an undefined state.
+   */
+  int add(EpoxyModel<?> model, int hashCode) {
+    ensureCapacity(size + 1);
+    size++;
+    return set(size - 1, model, hashCode);
+  }
+
+  /**
+   * Opens a gap of the given number of states at the given index. Each state in the gap must then
+   * be filled in with {@link #set(int, EpoxyModel, int)}. Until then the gap's models are null,
+   * and its states are not indexed by id.
+   */
+  void insertRange(int index, int count) {
+    ensureCapacity(size + count);
+    shift(index, index + count, size - index);
+    Arrays.fill(models, index, index + count, null);
+    Arrays.fill(pairs, index, index + count, GAP);
+    size += count;
+    updateIndexes(index + count, size);
+  }
+
+  /**
+   * Replaces the state at the given index. The id previously at that index is not removed, so this
+   * is only meant for states in a gap opened by {@link #insertRange(int, int)} or {@link
+   * #add(EpoxyModel, int)}.
+   *
+   * @param hashCode The current hash code of the model.
+   * @return The index of a state that already has the same id, or -1 if the id is unique.
+   */
+  int set(int index, EpoxyModel<?> model, int hashCode) {
+    long id = model.id();
+    ids[index] = id;
+    hashCodes[index] = hashCode;
+    contentVersions[index] = model.getContentVersion();
+    changedAttributes[index] = model.takeChangedAttributes();
+    pairs[index] = -1;
+    models[index] = model;
+    return indexById.put(id, index);
+  }
+
+  /** Whether the state at the given index is in a gap that hasn't been filled in yet. */
+  boolean isGap(int index) {
+    return pairs[index] == GAP;
+  }
+
+  /**
+   * Whether the state at the given index was built from this model instance, and the model hasn't
+   * been marked dirty since, meaning the stored hash code may be reused.
+   */
+  boolean isUnchanged(int index, EpoxyModel<?> model) {
+    return models[index] == model && contentVersions[index] == model.getContentVersion();
+  }
+
+  /** Updates the stored hash code of the model at the given index. */
+  void setHashCode(int index, EpoxyModel<?> model, int hashCode) {
+    hashCodes[index] = hashCode;
+    contentVersions[index] = model.getContentVersion();
+    changedAttributes[index] = model.takeChangedAttributes();
+    models[index] = model;
+  }
+
+  void removeRange(int index, int count) {
+    for (int i = index; i < index + count; i++) {
+      if (!isGap(i)) {
+        indexById.remove(ids[i]);
+      }
+    }
+
+    shift(index + count, index, size - index - count);
+    Arrays.fill(models, size - count, size, null);
+    size -= count;
+    updateIndexes(index, size);
+  }
+
+  void move(int fromIndex, int toIndex) {
+    long id = ids[fromIndex];
+    int hashCode = hashCodes[fromIndex];
+    int contentVersion = contentVersions[fromIndex];
+    long changed = changedAttributes[fromIndex];
+    EpoxyModel<?> model = models[fromIndex];
+    boolean gap = isGap(fromIndex);
+
+    if (fromIndex < toIndex) {
+      // shift the affected items left
+      shift(fromIndex + 1, fromIndex, toIndex - fromIndex);
+    } else {
+      // shift the affected items right
+      shift(toIndex, toIndex + 1, fromIndex - toIndex);
+    }
+
+    ids[toIndex] = id;
+    hashCodes[toIndex] = hashCode;
+    contentVersions[toIndex] = contentVersion;
+    changedAttributes[toIndex] = changed;
+    pairs[toIndex] = gap ? GAP : -1;
+    models[toIndex] = model;
+    updateIndexes(Math.min(fromIndex, toIndex), Math.max(fromIndex, toIndex) + 1);
+  }
+
+  /**
+   * Reorders the states, moving the state at each index i to index targets[i]. Only the ids of
+   * states that moved are indexed again, and all pairs are reset.
+   *
+   * @param targets A permutation of the indexes of the list.
+   */
+  void permute(int[] targets) {
+    // Pairs are overwritten by every diff, so they are used here to mark the indexes that already
+    // hold their final state
+    Arrays.fill(pairs, 0, size, -1);
+
+    for (int start = 0; start < size; start++) {
+      if (pairs[start] != -1 || targets[start] == start) {
+        continue;
+      }
+
+      // Follow the cycle of the permutation that starts here, carrying each displaced state to its
+      // target until we are back at the start
+      long id = ids[start];
+      int hashCode = hashCodes[start];
+      int contentVersion = contentVersions[start];
+      long changed = changedAttributes[start];
+      EpoxyModel<?> model = models[start];
+      int index = start;
+      do {
+        int target = targets[index];
+        long displacedId = ids[target];
+        int displacedHashCode = hashCodes[target];
+        int displacedContentVersion = contentVersions[target];
+        long displacedChanged = changedAttributes[target];
+        EpoxyModel<?> displacedModel = models[target];
+
+        ids[target] = id;
+        hashCodes[target] = hashCode;
+        contentVersions[target] = contentVersion;
+        changedAttributes[target] = changed;
+        models[target] = model;
+        pairs[target] = target;
+        indexById.put(id, target);
+
+        id = displacedId;
+        hashCode = displacedHashCode;
+        contentVersion = displacedContentVersion;
+        changed = displacedChanged;
+        model = displacedModel;
+        index = target;
+      } while (index != start);
+    }
+
+    Arrays.fill(pairs, 0, size, -1);
+  }
+
+  /** Removes all states, keeping the backing arrays. */
+  void clear() {
+    Arrays.fill(models, 0, size, null);
+    indexById.clear();
+    size = 0;
+  }
+
+  /** Makes this list an unpaired copy of the given one. */
+  void copyFrom(ModelStateList other) {
+    clear();
+    ensureCapacity(other.size);
+    System.arraycopy(other.ids, 0, ids, 0, other.size);
+    System.arraycopy(other.hashCodes, 0, hashCodes, 0, other.size);
+    System.arraycopy(other.contentVersions, 0, contentVersions, 0, other.size);
+    System.arraycopy(other.changedAttributes, 0, changedAttributes, 0, other.size);
+    System.arraycopy(other.models, 0, models, 0, other.size);
+    Arrays.fill(pairs, 0, other.size, -1);
+    size = other.size;
+    updateIndexes(0, size);
+  }
+
+  void ensureCapacity(int capacity) {
+    indexById.ensureCapacity(capacity);
+    if (capacity <= ids.length) {
+      return;
+    }
+
+    int newCapacity = Math.max(capacity, ids.length * 2);
+    ids = Arrays.copyOf(ids, newCapacity);
+    hashCodes = Arrays.copyOf(hashCodes, newCapacity);
+    contentVersions = Arrays.copyOf(contentVersions, newCapacity);
+    changedAttributes = Arrays.copyOf(changedAttributes, newCapacity);
+    pairs = Arrays.copyOf(pairs, newCapacity);
+    models = Arrays.copyOf(models, newCapacity);
+  }
+
+  private void shift(int fromIndex, int toIndex, int count) {
+    System.arraycopy(ids, fromIndex, ids, toIndex, count);
+    System.arraycopy(hashCodes, fromIndex, hashCodes, toIndex, count);
+    System.arraycopy(contentVersions, fromIndex, contentVersions, toIndex, count);
+    System.arraycopy(changedAttributes, fromIndex, changedAttributes, toIndex, count);
+    System.arraycopy(pairs, fromIndex, pairs, toIndex, count);
+    System.arraycopy(models, fromIndex, models, toIndex, count);
+  }
+
+  private void updateIndexes(int startIndex, int endIndex) {
+    for (int i = startIndex; i < endIndex; i++) {
+      if (!isGap(i)) {
+        indexById.put(ids[i], i);
+      }
+    }
+  }
+}
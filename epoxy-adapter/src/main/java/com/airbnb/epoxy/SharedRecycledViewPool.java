@@ -0,0 +1,206 @@
+package com.airbnb.epoxy;
+
+import android.app.Activity;
+import android.app.Application.ActivityLifecycleCallbacks;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.RecyclerView.RecycledViewPool;
+import android.support.v7.widget.RecyclerView.ViewHolder;
+import android.util.SparseIntArray;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link RecycledViewPool} that can be shared by every RecyclerView in an Activity, so that
+ * screens and nested carousels showing the same models reuse each other's views instead of each
+ * inflating their own. Since EpoxyAdapter uses a model's layout as its view type, view types mean
+ * the same thing in every EpoxyAdapter and the pool is safe to share between them. {@link
+ * EpoxyModelGroup}s instead get negative view types, which are assigned once per process so that
+ * they are shared the same way, but which can be different each time the app runs.
+ * <p>
+ * Use {@link #get(Context)} to get the pool for a RecyclerView's context, and set it with {@link
+ * RecyclerView#setRecycledViewPool(RecycledViewPool)}. Each Activity has its own pool, which is
+ * cleared and dropped when the Activity is destroyed. Contexts that don't belong to an Activity
+ * share a pool for the application. Views are only put in the pool of the context they were
+ * created with, so a view never outlives its Activity through the pool.
+ * <p>
+ * The number of views kept for a view type can be set with {@link #setMaxRecycledViews(int,
+ * int)}. Otherwise it is the largest number requested by an adapter that sizes pools, or {@link
+ * #setDefaultMaxRecycledViews(int)} if there is none.
+ * <p>
+ * Pools must only be used from the main thread.
+ */
+public class SharedRecycledViewPool extends RecycledViewPool {
+  /** The number of views RecyclerView keeps for each view type by default. */
+  private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+  /** Marks a layout as using the default max, which may change later. */
+  private static final int USE_DEFAULT_MAX = -1;
+
+  /** The pool for each Activity, and for the application context. */
+  private static final Map<Context, SharedRecycledViewPool> POOLS = new HashMap<>();
+  private static final ActivityLifecycleCallbacks DESTROY_CALLBACKS = new DestroyCallbacks();
+  private static boolean registeredCallbacks;
+
+  private final Context scope;
+  /** The max for each view type seen so far, or {@link #USE_DEFAULT_MAX}. */
+  private final SparseIntArray maxRecycledViews = new SparseIntArray();
+  /**
+   * The largest max requested by the adapters using the pool for each view type, which replaces
+   * the default max for the view type.
+   */
+  private final SparseIntArray requestedMaxRecycledViews = new SparseIntArray();
+  private int defaultMaxRecycledViews = DEFAULT_MAX_RECYCLED_VIEWS;
+  private boolean destroyed;
+
+  /**
+   * @return The pool for the Activity that the context belongs to, or the application's pool if it
+   * doesn't belong to an Activity. Calls with the same Activity return the same pool until the
+   * Activity is destroyed.
+   */
+  public static SharedRecycledViewPool get(Context context) {
+    Context scope = scopeOf(context);
+    SharedRecycledViewPool pool = POOLS.get(scope);
+    if (pool == null) {
+      pool = new SharedRecycledViewPool(scope);
+      POOLS.put(scope, pool);
+
+      if (scope instanceof Activity && !registeredCallbacks) {
+        ((Activity) scope).getApplication().registerActivityLifecycleCallbacks(DESTROY_CALLBACKS);
+        registeredCallbacks = true;
+      }
+    }
+    return pool;
+  }
+
+  private SharedRecycledViewPool(Context scope) {
+    this.scope = scope;
+  }
+
+  /**
+   * Sets how many views are kept for each view type that hasn't been given its own max with {@link
+   * #setMaxRecycledViews(int, int)} or been sized by an adapter. The default is 5, the same as a
+   * RecyclerView's own pool. A shared pool may need more, since it serves several RecyclerViews at
+   * once.
+   */
+  public void setDefaultMaxRecycledViews(int max) {
+    defaultMaxRecycledViews = max;
+    for (int i = 0; i < maxRecycledViews.size(); i++) {
+      if (maxRecycledViews.valueAt(i) == USE_DEFAULT_MAX) {
+        applyDefaultMax(maxRecycledViews.keyAt(i));
+      }
+    }
+  }
+
+  /**
+   * Sets how many views are kept for the given view type, overriding the default max. For most
+   * models this is their layout. A group's view type can be found from {@link
+   * LayoutStats#getViewType()} while the app runs, but shouldn't be hard coded.
+   */
+  @Override
+  public void setMaxRecycledViews(int viewType, int max) {
+    maxRecycledViews.put(viewType, max);
+    super.setMaxRecycledViews(viewType, max);
+  }
+
+  /**
+   * Used by adapters that size pools from how many views of each view type they use, see {@link
+   * EpoxyAdapter#enableViewPoolSizing()}. Since adapters sharing the pool may need different
+   * amounts, the largest request is used. A max set with {@link #setMaxRecycledViews(int, int)}
+   * takes precedence.
+   */
+  void requestMaxRecycledViews(int viewType, int max) {
+    if (max <= requestedMaxRecycledViews.get(viewType)) {
+      return;
+    }
+
+    requestedMaxRecycledViews.put(viewType, max);
+    if (maxRecycledViews.get(viewType, USE_DEFAULT_MAX) == USE_DEFAULT_MAX) {
+      maxRecycledViews.put(viewType, USE_DEFAULT_MAX);
+      applyDefaultMax(viewType);
+    }
+  }
+
+  @Override
+  public void putRecycledView(ViewHolder scrap) {
+    if (destroyed || scopeOf(scrap.itemView.getContext()) != scope) {
+      // The view would keep its Activity around, or would be used in a different Activity
+      return;
+    }
+
+    int viewType = scrap.getItemViewType();
+    if (maxRecycledViews.indexOfKey(viewType) < 0) {
+      maxRecycledViews.put(viewType, USE_DEFAULT_MAX);
+      applyDefaultMax(viewType);
+    }
+
+    super.putRecycledView(scrap);
+  }
+
+  /** Sets the max of a view type without its own max to what was requested, or the default. */
+  private void applyDefaultMax(int viewType) {
+    int requestedMax = requestedMaxRecycledViews.get(viewType);
+    super.setMaxRecycledViews(viewType, requestedMax > 0 ? requestedMax : defaultMaxRecycledViews);
+  }
+
+  /** Drops the pool's views and stops it from keeping any more. */
+  private void destroy() {
+    destroyed = true;
+    clear();
+  }
+
+  /** The Activity the context belongs to, or the application context if there isn't one. */
+  private static Context scopeOf(Context context) {
+    Activity activity = findActivity(context);
+    return activity != null ? activity : context.getApplicationContext();
+  }
+
+  @Nullable
+  private static Activity findActivity(Context context) {
+    while (context instanceof ContextWrapper) {
+      if (context instanceof Activity) {
+        return (Activity) context;
+      }
+      context = ((ContextWrapper) context).getBaseContext();
+    }
+    return null;
+  }
+
+  private static class DestroyCallbacks implements ActivityLifecycleCallbacks {
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+      SharedRecycledViewPool pool = POOLS.remove(activity);
+      if (pool != null) {
+        pool.destroy();
+      }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+  }
+}
@@ -19,6 +19,21 @@ public class SimpleEpoxyAdapter extends EpoxyAdapter {
     super.enableDiffing();
   }
 
+  @Override
+  public void enableHiddenModelSkipping() {
+    super.enableHiddenModelSkipping();
+  }
+
+  @Override
+  public void enableViewPoolSizing() {
+    super.enableViewPoolSizing();
+  }
+
+  @Override
+  public void setViewStateLimits(int maxStates, int maxBytes) {
+    super.setViewStateLimits(maxStates, maxBytes);
+  }
+
   @Override
   public void notifyModelsChanged() {
     super.notifyModelsChanged();
@@ -29,11 +44,31 @@ public class SimpleEpoxyAdapter extends EpoxyAdapter {
     return super.getBoundViewHolders();
   }
 
+  @Override
+  public void beginUpdate() {
+    super.beginUpdate();
+  }
+
+  @Override
+  public void endUpdate() {
+    super.endUpdate();
+  }
+
+  @Override
+  public boolean isInBatchUpdate() {
+    return super.isInBatchUpdate();
+  }
+
   @Override
   public void notifyModelChanged(EpoxyModel<?> model) {
     super.notifyModelChanged(model);
   }
 
+  @Override
+  public void notifyModelChanged(long id) {
+    super.notifyModelChanged(id);
+  }
+
   @Override
   public void addModels(EpoxyModel<?>... modelsToAdd) {
     super.addModels(modelsToAdd);
@@ -59,6 +94,11 @@ public class SimpleEpoxyAdapter extends EpoxyAdapter {
     super.removeModel(model);
   }
 
+  @Override
+  public void removeModelById(long id) {
+    super.removeModelById(id);
+  }
+
   @Override
   public void removeAllModels() {
     super.removeAllModels();
@@ -128,4 +168,9 @@ public class SimpleEpoxyAdapter extends EpoxyAdapter {
   public int getModelPosition(EpoxyModel<?> model) {
     return super.getModelPosition(model);
   }
+
+  @Override
+  public int getModelPositionById(long id) {
+    return super.getModelPositionById(id);
+  }
 }
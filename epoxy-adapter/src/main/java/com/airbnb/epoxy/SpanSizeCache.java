@@ -0,0 +1,205 @@
+package com.airbnb.epoxy;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * Caches the span size of each adapter position for the adapter's span size lookup, along with
+ * the span index and span group index that GridLayoutManager derives from the sizes. It observes
+ * the adapter, so the item notifications of diffs and helper methods patch the cache in place
+ * instead of clearing it.
+ * <p>
+ * Span sizes are computed lazily the first time a position is looked up. Span and group indexes
+ * depend on every earlier size, so they are kept for a prefix of positions and extended from the
+ * end of that prefix, which a change to any position shortens to that position.
+ * <p>
+ * When the whole data set changes the cache is only rebuilt on the next lookup, since observers
+ * are called in reverse order of registration and the adapter's item count may not be updated yet
+ * when this is notified, such as when hidden models are skipped.
+ */
+class SpanSizeCache extends RecyclerView.AdapterDataObserver {
+  private static final int UNKNOWN = -1;
+
+  private final EpoxyAdapter adapter;
+  private int[] spanSizes = new int[0];
+  private int[] spanIndexes = new int[0];
+  private int[] groupIndexes = new int[0];
+  /** The number of positions being tracked, which matches the adapter's item count. */
+  private int size;
+  /** How many positions at the start have their span index and group index cached. */
+  private int indexedCount;
+  /** The span count that the span and group indexes were computed for. */
+  private int indexedSpanCount;
+  /** Whether the cache was cleared and needs to be rebuilt from the adapter's item count. */
+  private boolean cleared = true;
+
+  SpanSizeCache(EpoxyAdapter adapter) {
+    this.adapter = adapter;
+  }
+
+  /**
+   * Whether the position is tracked by the cache, which it may not be while views animate out.
+   * This must be checked before the position is looked up.
+   */
+  boolean contains(int position) {
+    if (cleared) {
+      cleared = false;
+      size = 0;
+      indexedCount = 0;
+      insert(0, adapter.getItemCount());
+    }
+    return position >= 0 && position < size;
+  }
+
+  int getSpanSize(int position) {
+    int spanSize = spanSizes[position];
+    if (spanSize == UNKNOWN) {
+      spanSize = adapter.getModelSpanSize(position);
+      spanSizes[position] = spanSize;
+    }
+    return spanSize;
+  }
+
+  int getSpanIndex(int position, int spanCount) {
+    indexUpTo(position, spanCount);
+    return spanIndexes[position];
+  }
+
+  int getSpanGroupIndex(int position, int spanCount) {
+    indexUpTo(position, spanCount);
+    return groupIndexes[position];
+  }
+
+  /** Forgets all sizes, such as when the span count given to models changes. */
+  void clear() {
+    cleared = true;
+  }
+
+  /**
+   * Places each position from the end of the cached prefix up to the given one the same way
+   * GridLayoutManager does, starting a new group when an item doesn't fit in the current one.
+   */
+  private void indexUpTo(int position, int spanCount) {
+    if (spanCount != indexedSpanCount) {
+      indexedSpanCount = spanCount;
+      indexedCount = 0;
+    }
+
+    if (position < indexedCount) {
+      return;
+    }
+
+    int span = 0;
+    int group = 0;
+    if (indexedCount > 0) {
+      int last = indexedCount - 1;
+      span = spanIndexes[last] + getSpanSize(last);
+      group = groupIndexes[last];
+      if (span >= spanCount) {
+        span = 0;
+        group++;
+      }
+    }
+
+    for (int i = indexedCount; i <= position; i++) {
+      int spanSize = getSpanSize(i);
+      if (span + spanSize > spanCount) {
+        span = 0;
+        group++;
+      }
+
+      spanIndexes[i] = span;
+      groupIndexes[i] = group;
+
+      span += spanSize;
+      if (span >= spanCount) {
+        span = 0;
+        group++;
+      }
+    }
+
+    indexedCount = position + 1;
+  }
+
+  private void invalidateIndexesFrom(int position) {
+    indexedCount = Math.min(indexedCount, position);
+  }
+
+  private void insert(int positionStart, int itemCount) {
+    int newSize = size + itemCount;
+    if (spanSizes.length < newSize) {
+      int capacity = Math.max(newSize, spanSizes.length * 2);
+      spanSizes = Arrays.copyOf(spanSizes, capacity);
+      spanIndexes = Arrays.copyOf(spanIndexes, capacity);
+      groupIndexes = Arrays.copyOf(groupIndexes, capacity);
+    }
+
+    System.arraycopy(spanSizes, positionStart, spanSizes, positionStart + itemCount,
+        size - positionStart);
+    Arrays.fill(spanSizes, positionStart, positionStart + itemCount, UNKNOWN);
+    size = newSize;
+    invalidateIndexesFrom(positionStart);
+  }
+
+  @Override
+  public void onChanged() {
+    clear();
+  }
+
+  @Override
+  public void onItemRangeChanged(int positionStart, int itemCount) {
+    if (cleared) {
+      // The rebuilt cache will include the change
+      return;
+    }
+
+    Arrays.fill(spanSizes, positionStart, positionStart + itemCount, UNKNOWN);
+    invalidateIndexesFrom(positionStart);
+  }
+
+  @Override
+  public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+    onItemRangeChanged(positionStart, itemCount);
+  }
+
+  @Override
+  public void onItemRangeInserted(int positionStart, int itemCount) {
+    if (cleared) {
+      return;
+    }
+
+    insert(positionStart, itemCount);
+  }
+
+  @Override
+  public void onItemRangeRemoved(int positionStart, int itemCount) {
+    if (cleared) {
+      return;
+    }
+
+    System.arraycopy(spanSizes, positionStart + itemCount, spanSizes, positionStart,
+        size - positionStart - itemCount);
+    size -= itemCount;
+    invalidateIndexesFrom(positionStart);
+  }
+
+  @Override
+  public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+    if (cleared) {
+      return;
+    }
+
+    // RecyclerView only supports moving a single item
+    int spanSize = spanSizes[fromPosition];
+    if (fromPosition < toPosition) {
+      System.arraycopy(spanSizes, fromPosition + 1, spanSizes, fromPosition,
+          toPosition - fromPosition);
+    } else {
+      System.arraycopy(spanSizes, toPosition, spanSizes, toPosition + 1,
+          fromPosition - toPosition);
+    }
+    spanSizes[toPosition] = spanSize;
+    invalidateIndexesFrom(Math.min(fromPosition, toPosition));
+  }
+}
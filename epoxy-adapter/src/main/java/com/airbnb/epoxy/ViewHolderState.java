@@ -3,6 +3,7 @@ package com.airbnb.epoxy;
 
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.annotation.Nullable;
 import android.support.v4.os.ParcelableCompat;
 import android.support.v4.os.ParcelableCompatCreatorCallbacks;
 import android.support.v4.util.LongSparseArray;
@@ -29,9 +30,29 @@ import java.util.Collection;
  * <p/>
  * This class relies on the adapter having stable ids, as the state of a view is mapped to the id of
  * the {@link EpoxyModel}.
+ * <p/>
+ * By default a state is kept for every model that was ever saved. Limits can be set with {@link
+ * #setLimits(int, int)}, in which case the least recently used states are evicted to stay within
+ * them. A state is used when it is saved or restored.
  */
 @SuppressWarnings("WeakerAccess")
 class ViewHolderState extends LongSparseArray<ViewState> implements Parcelable {
+  /** The most states to keep. */
+  private int maxStates = Integer.MAX_VALUE;
+  /** The most approximate bytes of state to keep. States are only measured if this is limited. */
+  private int maxBytes = Integer.MAX_VALUE;
+  /** The approximate bytes of all the states, if they are measured. */
+  private int totalBytes;
+  /** Set along with the limits, since removed models would otherwise only be evicted as unused. */
+  private boolean evictRemovedModels;
+  /**
+   * The states are linked from the least to the most recently used through {@link
+   * ViewState#previous} and {@link ViewState#next}, so the least recently used can be found and
+   * each use can be recorded without searching.
+   */
+  @Nullable private ViewState leastRecentlyUsed;
+  @Nullable private ViewState mostRecentlyUsed;
+
   public ViewHolderState() {
   }
 
@@ -44,13 +65,16 @@ class ViewHolderState extends LongSparseArray<ViewState> implements Parcelable {
     return 0;
   }
 
+  /**
+   * The states are written from the least to the most recently used, so that the order they are
+   * used in is kept when they are read back.
+   */
   @Override
   public void writeToParcel(Parcel dest, int flags) {
-    final int size = size();
-    dest.writeInt(size);
-    for (int i = 0; i < size; i++) {
-      dest.writeLong(keyAt(i));
-      dest.writeParcelable(valueAt(i), 0);
+    dest.writeInt(size());
+    for (ViewState state = leastRecentlyUsed; state != null; state = state.next) {
+      dest.writeLong(state.id);
+      dest.writeParcelable(state, 0);
     }
   }
 
@@ -67,13 +91,62 @@ class ViewHolderState extends LongSparseArray<ViewState> implements Parcelable {
       for (int i = 0; i < size; i++) {
         long key = source.readLong();
         ViewState value = source.readParcelable(ViewState.class.getClassLoader());
-        state.put(key, value);
+        state.add(key, value);
       }
 
       return state;
     }
   };
 
+  /**
+   * Set the most states to keep and the most bytes they may take up, as measured by parceling each
+   * state when it is first saved and whenever a save changes it. Either can be {@link
+   * Integer#MAX_VALUE} to leave it unlimited. This also enables {@link #onModelRemoved(long)}.
+   */
+  public void setLimits(int maxStates, int maxBytes) {
+    if (maxStates < 1 || maxBytes < 1) {
+      throw new IllegalArgumentException(
+          "Limits must be positive. States: " + maxStates + " Bytes: " + maxBytes);
+    }
+
+    boolean wasMeasuring = isMeasuring();
+    this.maxStates = maxStates;
+    this.maxBytes = maxBytes;
+    evictRemovedModels = true;
+
+    if (wasMeasuring != isMeasuring()) {
+      totalBytes = 0;
+      for (ViewState state = leastRecentlyUsed; state != null; state = state.next) {
+        state.approximateBytes = 0;
+        measure(state);
+      }
+    }
+    trimToLimits();
+  }
+
+  /** Use the same limits as the given state, which this is replacing. */
+  public void copyLimitsFrom(ViewHolderState other) {
+    if (other.evictRemovedModels) {
+      setLimits(other.maxStates, other.maxBytes);
+    }
+  }
+
+  public boolean evictsRemovedModels() {
+    return evictRemovedModels;
+  }
+
+  /** Evict the state of a model that was removed from the adapter, if limits are set. */
+  public void onModelRemoved(long id) {
+    if (!evictRemovedModels) {
+      return;
+    }
+
+    ViewState state = get(id);
+    if (state != null) {
+      evict(state);
+    }
+  }
+
   public boolean hasStateForHolder(EpoxyViewHolder holder) {
     return get(holder.getItemId()) != null;
   }
@@ -96,10 +169,16 @@ class ViewHolderState extends LongSparseArray<ViewState> implements Parcelable {
     ViewState state = get(holder.getItemId());
     if (state == null) {
       state = new ViewState();
+      state.save(holder.itemView);
+      add(holder.getItemId(), state);
+    } else if (state.save(holder.itemView)) {
+      markUsed(state);
+      measure(state);
+    } else {
+      markUsed(state);
     }
 
-    state.save(holder.itemView);
-    put(holder.getItemId(), state);
+    trimToLimits();
   }
 
   /**
@@ -114,6 +193,83 @@ class ViewHolderState extends LongSparseArray<ViewState> implements Parcelable {
     ViewState state = get(holder.getItemId());
     if (state != null) {
       state.restore(holder.itemView);
+      markUsed(state);
+    }
+  }
+
+  /** Put a new state as the most recently used. */
+  private void add(long id, ViewState state) {
+    state.id = id;
+    put(id, state);
+    link(state);
+    measure(state);
+  }
+
+  private void evict(ViewState state) {
+    unlink(state);
+    totalBytes -= state.approximateBytes;
+    delete(state.id);
+  }
+
+  private void trimToLimits() {
+    while (leastRecentlyUsed != null && (size() > maxStates || totalBytes > maxBytes)) {
+      evict(leastRecentlyUsed);
+    }
+  }
+
+  private void markUsed(ViewState state) {
+    if (state != mostRecentlyUsed) {
+      unlink(state);
+      link(state);
+    }
+  }
+
+  /** Links the state as the most recently used. */
+  private void link(ViewState state) {
+    state.previous = mostRecentlyUsed;
+    state.next = null;
+    if (mostRecentlyUsed != null) {
+      mostRecentlyUsed.next = state;
+    } else {
+      leastRecentlyUsed = state;
+    }
+    mostRecentlyUsed = state;
+  }
+
+  private void unlink(ViewState state) {
+    if (state.previous != null) {
+      state.previous.next = state.next;
+    } else {
+      leastRecentlyUsed = state.next;
+    }
+
+    if (state.next != null) {
+      state.next.previous = state.previous;
+    } else {
+      mostRecentlyUsed = state.previous;
+    }
+
+    state.previous = null;
+    state.next = null;
+  }
+
+  private boolean isMeasuring() {
+    return maxBytes != Integer.MAX_VALUE;
+  }
+
+  /** Updates the approximate bytes of the state, if states are measured. */
+  private void measure(ViewState state) {
+    if (!isMeasuring()) {
+      return;
+    }
+
+    Parcel parcel = Parcel.obtain();
+    try {
+      state.writeToParcel(parcel, 0);
+      totalBytes += parcel.dataSize() - state.approximateBytes;
+      state.approximateBytes = parcel.dataSize();
+    } finally {
+      parcel.recycle();
     }
   }
 
@@ -122,6 +278,14 @@ class ViewHolderState extends LongSparseArray<ViewState> implements Parcelable {
    * parcelable support.
    */
   public static class ViewState extends SparseArray<Parcelable> implements Parcelable {
+    // These are only used by ViewHolderState to track how recently each state was used, and are
+    // not parceled.
+    long id;
+    @Nullable ViewState previous;
+    @Nullable ViewState next;
+    int approximateBytes;
+    /** Identifies the saved states, so a save that doesn't change any of them can be noticed. */
+    private int savedStatesHash;
 
     public ViewState() {
     }
@@ -133,12 +297,24 @@ class ViewHolderState extends LongSparseArray<ViewState> implements Parcelable {
       }
     }
 
-    public void save(View view) {
+    /**
+     * @return Whether the view saved any state objects that weren't already saved, such as when its
+     * state changed. Views without state to save reuse the same empty state.
+     */
+    public boolean save(View view) {
       int originalId = view.getId();
       setIdIfNoneExists(view);
 
       view.saveHierarchyState(this);
       view.setId(originalId);
+
+      int hash = size();
+      for (int i = 0; i < size(); i++) {
+        hash = 31 * hash + System.identityHashCode(valueAt(i));
+      }
+      boolean changed = hash != savedStatesHash;
+      savedStatesHash = hash;
+      return changed;
     }
 
     public void restore(View view) {
@@ -166,18 +342,23 @@ class ViewHolderState extends LongSparseArray<ViewState> implements Parcelable {
       return 0;
     }
 
+    /**
+     * Writes the same data as {@link Parcel#writeIntArray(int[])} and {@link
+     * Parcel#writeParcelableArray(Parcelable[], int)} would with arrays of the keys and values,
+     * without creating the arrays, since states are also parceled to measure them when saved.
+     */
     @Override
     public void writeToParcel(Parcel parcel, int flags) {
       int size = size();
-      int[] keys = new int[size];
-      Parcelable[] values = new Parcelable[size];
+      parcel.writeInt(size);
+      parcel.writeInt(size);
       for (int i = 0; i < size; ++i) {
-        keys[i] = keyAt(i);
-        values[i] = valueAt(i);
+        parcel.writeInt(keyAt(i));
       }
       parcel.writeInt(size);
-      parcel.writeIntArray(keys);
-      parcel.writeParcelableArray(values, flags);
+      for (int i = 0; i < size; ++i) {
+        parcel.writeParcelable(valueAt(i), flags);
+      }
     }
 
     public static final Creator<ViewState> CREATOR =
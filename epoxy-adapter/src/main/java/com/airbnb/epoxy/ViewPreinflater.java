@@ -0,0 +1,172 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.LayoutRes;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Inflates views for an adapter's layouts on a background thread before RecyclerView asks for
+ * them, so the first views of each layout aren't inflated on the main thread. Inflation starts once
+ * the adapter is attached to a RecyclerView, which is used as the parent of the views so they get
+ * the right layout params. A separate LayoutInflater is used, since inflating locks the inflater
+ * and would otherwise block inflation on the main thread.
+ * <p>
+ * Each layout gets at most the requested number of views. Views created on the main thread count
+ * toward that too, in case RecyclerView needs them before the background thread is done.
+ */
+class ViewPreinflater {
+  /** Shared by all adapters by default. Only one thread is ever created. */
+  private static final Executor DEFAULT_EXECUTOR =
+      Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "epoxy-preinflate");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  // All fields are guarded by this object's lock, since views are added from the background thread
+  /** How many views were requested for each layout. */
+  private final SparseIntArray requestedCounts = new SparseIntArray();
+  /** How many views of each requested layout were inflated, here or on the main thread. */
+  private final SparseIntArray suppliedCounts = new SparseIntArray();
+  private final SparseArray<ArrayDeque<View>> pooledViews = new SparseArray<>();
+  private Executor executor = DEFAULT_EXECUTOR;
+  @Nullable private ViewGroup parent;
+  @Nullable private LayoutInflater inflater;
+  /** Incremented when detached, so inflations started for a previous parent are dropped. */
+  private int generation;
+
+  synchronized void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  /** Inflates up to the given number of views for the layout, once attached to a parent. */
+  synchronized void request(@LayoutRes int layoutRes, int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count must not be negative: " + count);
+    }
+
+    requestedCounts.put(layoutRes, count);
+    if (parent != null) {
+      start(layoutRes);
+    }
+  }
+
+  /** Starts inflating the requested views with the given parent, if there isn't one already. */
+  synchronized void attach(ViewGroup parent) {
+    if (this.parent != null) {
+      return;
+    }
+
+    this.parent = parent;
+    inflater = LayoutInflater.from(parent.getContext()).cloneInContext(parent.getContext());
+    for (int i = 0; i < requestedCounts.size(); i++) {
+      start(requestedCounts.keyAt(i));
+    }
+  }
+
+  /** Drops the views inflated for the parent, since they hold on to its context. */
+  synchronized void detach(ViewGroup parent) {
+    if (this.parent != parent) {
+      return;
+    }
+
+    this.parent = null;
+    inflater = null;
+    generation++;
+    pooledViews.clear();
+    suppliedCounts.clear();
+  }
+
+  /**
+   * @return A view that was inflated ahead of time for the layout, or null if there is none and
+   * the caller should inflate it.
+   */
+  @Nullable
+  synchronized View take(@LayoutRes int layoutRes) {
+    ArrayDeque<View> views = pooledViews.get(layoutRes);
+    if (views != null && !views.isEmpty()) {
+      return views.poll();
+    }
+
+    if (requestedCounts.indexOfKey(layoutRes) >= 0) {
+      suppliedCounts.put(layoutRes, suppliedCounts.get(layoutRes) + 1);
+    }
+    return null;
+  }
+
+  synchronized int getPooledCount(@LayoutRes int layoutRes) {
+    ArrayDeque<View> views = pooledViews.get(layoutRes);
+    return views == null ? 0 : views.size();
+  }
+
+  private void start(int layoutRes) {
+    executor.execute(new Inflation(layoutRes, generation, inflater, parent));
+  }
+
+  /** Claims the next view to inflate, unless enough were supplied or the parent changed. */
+  private synchronized boolean claimView(int layoutRes, int generation) {
+    if (generation != this.generation
+        || suppliedCounts.get(layoutRes) >= requestedCounts.get(layoutRes)) {
+      return false;
+    }
+
+    suppliedCounts.put(layoutRes, suppliedCounts.get(layoutRes) + 1);
+    return true;
+  }
+
+  private synchronized void addView(int layoutRes, int generation, View view) {
+    if (generation != this.generation) {
+      return;
+    }
+
+    ArrayDeque<View> views = pooledViews.get(layoutRes);
+    if (views == null) {
+      views = new ArrayDeque<>();
+      pooledViews.put(layoutRes, views);
+    }
+    views.add(view);
+  }
+
+  /** Inflates the views for one layout one at a time, so each can be taken once it is ready. */
+  private class Inflation implements Runnable {
+    private final int layoutRes;
+    private final int generation;
+    private final LayoutInflater inflater;
+    private final ViewGroup parent;
+
+    Inflation(int layoutRes, int generation, LayoutInflater inflater, ViewGroup parent) {
+      this.layoutRes = layoutRes;
+      this.generation = generation;
+      this.inflater = inflater;
+      this.parent = parent;
+    }
+
+    @Override
+    public void run() {
+      while (claimView(layoutRes, generation)) {
+        View view;
+        try {
+          view = inflater.inflate(layoutRes, parent, false);
+        } catch (RuntimeException e) {
+          // Some views can only be created on the main thread, such as ones that create a Handler.
+          // Those are left to be inflated normally.
+          return;
+        }
+
+        addView(layoutRes, generation, view);
+      }
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package com.airbnb.epoxy;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps between the index of each model in the models list and its position in the adapter, for an
+ * adapter that leaves hidden models out. A Fenwick tree over the shown flag of each model counts
+ * how many models are shown before any index, so both directions take O(log n) time, as does
+ * showing or hiding a single model.
+ * <p>
+ * Models added to or removed from the end of the list are also O(log n). Changes anywhere else
+ * shift every later flag, so the tree is rebuilt in O(n) time, which is no worse than the shift of
+ * the models list itself.
+ */
+class VisibleModelIndex {
+  private boolean[] shown = new boolean[0];
+  /** One based, so the node at i counts the shown flags of indexes i - (i & -i) to i - 1. */
+  private int[] tree = new int[1];
+  private int size;
+
+  /** How many models are shown, which is the item count of the adapter. */
+  int visibleCount() {
+    return countShownBefore(size);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isShown(int index) {
+    assertValidIndex(index);
+    return shown[index];
+  }
+
+  /**
+   * @return The adapter position of the model at the given index if it is shown, or the position
+   * it would have if it were shown.
+   */
+  int visiblePositionOf(int index) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+    return countShownBefore(index);
+  }
+
+  /** @return The index in the models list of the model shown at the given adapter position. */
+  int modelIndexAt(int visiblePosition) {
+    if (visiblePosition < 0 || visiblePosition >= visibleCount()) {
+      throw new IndexOutOfBoundsException(
+          "Position " + visiblePosition + ", visible count " + visibleCount());
+    }
+
+    // Walk down the tree for the last node whose prefix has no more than the given number of
+    // shown models. The model right after it is the one at the position.
+    int node = 0;
+    int remaining = visiblePosition;
+    for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+      int next = node + step;
+      if (next <= size && tree[next] <= remaining) {
+        node = next;
+        remaining -= tree[next];
+      }
+    }
+    return node;
+  }
+
+  void setShown(int index, boolean isShown) {
+    assertValidIndex(index);
+    if (shown[index] == isShown) {
+      return;
+    }
+
+    shown[index] = isShown;
+    int delta = isShown ? 1 : -1;
+    for (int node = index + 1; node <= size; node += node & -node) {
+      tree[node] += delta;
+    }
+  }
+
+  /** Rebuilds the index from the current shown flags of the models. */
+  void reset(List<EpoxyModel<?>> models) {
+    size = 0;
+    insert(0, models.size(), models);
+  }
+
+  /**
+   * Adds the flags of the models that were inserted to the models list at the given index.
+   *
+   * @param models The models list, which already has the models inserted.
+   */
+  void insert(int index, int count, List<EpoxyModel<?>> models) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+
+    ensureCapacity(size + count);
+    if (index == size) {
+      for (int i = index; i < index + count; i++) {
+        append(models.get(i).isShown());
+      }
+      return;
+    }
+
+    System.arraycopy(shown, index, shown, index + count, size - index);
+    for (int i = index; i < index + count; i++) {
+      shown[i] = models.get(i).isShown();
+    }
+    size += count;
+    rebuildTree();
+  }
+
+  void remove(int index, int count) {
+    if (index < 0 || count < 0 || index + count > size) {
+      throw new IndexOutOfBoundsException(
+          "Index " + index + ", count " + count + ", size " + size);
+    }
+
+    // The nodes before the removed flags don't count anything after them, so removing from the
+    // end doesn't change them
+    boolean removingFromEnd = index + count == size;
+    System.arraycopy(shown, index + count, shown, index, size - index - count);
+    size -= count;
+    if (!removingFromEnd) {
+      rebuildTree();
+    }
+  }
+
+  private void append(boolean isShown) {
+    shown[size] = isShown;
+    size++;
+
+    // The new node counts the flags in its range before it, plus its own
+    int node = size;
+    int rangeStart = node - (node & -node);
+    tree[node] = countShownBefore(node - 1) - countShownBefore(rangeStart) + (isShown ? 1 : 0);
+  }
+
+  private int countShownBefore(int index) {
+    int count = 0;
+    for (int node = index; node > 0; node -= node & -node) {
+      count += tree[node];
+    }
+    return count;
+  }
+
+  private void rebuildTree() {
+    Arrays.fill(tree, 0, size + 1, 0);
+    for (int node = 1; node <= size; node++) {
+      tree[node] += shown[node - 1] ? 1 : 0;
+      int parent = node + (node & -node);
+      if (parent <= size) {
+        tree[parent] += tree[node];
+      }
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (shown.length < capacity) {
+      int newCapacity = Math.max(capacity, shown.length * 2);
+      shown = Arrays.copyOf(shown, newCapacity);
+      tree = Arrays.copyOf(tree, newCapacity + 1);
+    }
+  }
+
+  private void assertValidIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+  }
+}
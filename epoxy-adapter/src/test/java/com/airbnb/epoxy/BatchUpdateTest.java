@@ -0,0 +1,178 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.airbnb.epoxy.ModelTestUtils.convertToTestModels;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Tests {@link EpoxyAdapter#beginUpdate()} and {@link EpoxyAdapter#endUpdate()}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class BatchUpdateTest {
+  private static final int MODEL_COUNT = 20;
+
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final TestObserver observer = new TestObserver();
+  private final TestObserver differObserver = new TestObserver();
+
+  @Before
+  public void setUp() {
+    for (int i = 0; i < MODEL_COUNT; i++) {
+      adapter.addModel(new TestModel());
+    }
+    adapter.registerAdapterDataObserver(observer);
+    observer.setUpForNextDiff(convertToTestModels(models));
+  }
+
+  @Test
+  public void notificationsAreSentWhenTheBatchEnds() {
+    adapter.beginUpdate();
+    adapter.addModel(new TestModel());
+    adapter.removeModel(models.get(0));
+    assertEquals(0, observer.operationCount);
+    assertTrue(adapter.isInBatchUpdate());
+
+    adapter.endUpdate();
+    assertFalse(adapter.isInBatchUpdate());
+    assertEquals(2, observer.operationCount);
+    checkState();
+  }
+
+  @Test
+  public void hidingNeighborsIsOneRangeChange() {
+    adapter.beginUpdate();
+    adapter.hideModels(models.subList(5, 15));
+    adapter.endUpdate();
+
+    assertEquals(1, observer.operationCount);
+    for (int i = 0; i < MODEL_COUNT; i++) {
+      assertEquals(i >= 5 && i < 15, observer.modelsAfterDiffing.get(i).updated);
+    }
+    checkState();
+  }
+
+  @Test
+  public void hidingOutOfOrderIsOneRangeChange() {
+    List<EpoxyModel<?>> modelsToHide = new ArrayList<>();
+    for (int i = 9; i >= 0; i--) {
+      modelsToHide.add(models.get(i));
+    }
+
+    adapter.beginUpdate();
+    adapter.hideModels(modelsToHide);
+    adapter.endUpdate();
+
+    assertEquals(1, observer.operationCount);
+    checkState();
+  }
+
+  @Test
+  public void adjacentInsertionsAndRemovalsAreMerged() {
+    adapter.beginUpdate();
+    for (int i = 0; i < 3; i++) {
+      adapter.addModel(new TestModel());
+    }
+    for (int i = 0; i < 4; i++) {
+      adapter.removeModel(models.get(2));
+    }
+    adapter.endUpdate();
+
+    assertEquals(2, observer.operationCount);
+    checkState();
+  }
+
+  @Test
+  public void insertingAndRemovingAtTheEndKeepsTheOtherModels() {
+    adapter.beginUpdate();
+    adapter.removeModel(models.get(1));
+    TestModel model = new TestModel();
+    adapter.addModel(model);
+    adapter.removeModel(model);
+    adapter.endUpdate();
+    checkState();
+
+    // The differ should still know the id of the model that is now last
+    TestModel duplicate = new TestModel();
+    duplicate.id(models.get(models.size() - 1).id());
+    try {
+      adapter.addModel(duplicate);
+      fail("Duplicate id was not detected");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void mixedChangesGiveTheNewList() {
+    adapter.beginUpdate();
+    TestModel first = new TestModel();
+    adapter.insertModelBefore(first, models.get(0));
+    adapter.insertModelAfter(new TestModel(), first);
+    adapter.removeModel(models.get(7));
+    adapter.hideModels(models.subList(3, 6));
+    adapter.notifyModelChanged(models.get(10));
+    adapter.removeAllAfterModel(models.get(15));
+    adapter.endUpdate();
+
+    checkState();
+  }
+
+  @Test
+  public void nestedBatchesNotifyWhenTheOutermostEnds() {
+    adapter.beginUpdate();
+    adapter.beginUpdate();
+    adapter.addModel(new TestModel());
+    adapter.endUpdate();
+    assertEquals(0, observer.operationCount);
+
+    adapter.endUpdate();
+    assertEquals(1, observer.operationCount);
+    checkState();
+  }
+
+  @Test
+  public void showModelsOutsideABatchNotifiesEachModel() {
+    adapter.hideModels(models.get(2), models.get(3));
+
+    assertEquals(2, observer.operationCount);
+    checkState();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void endWithoutBeginThrows() {
+    adapter.endUpdate();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void cannotDiffDuringABatch() {
+    adapter.beginUpdate();
+    adapter.notifyModelsChanged();
+  }
+
+  /**
+   * Checks that the notifications gave the current models list, and that the differ was kept up
+   * to date by them.
+   */
+  private void checkState() {
+    assertEquals(models.size(), observer.modelsAfterDiffing.size());
+    for (int i = 0; i < models.size(); i++) {
+      TestModel model = observer.modelsAfterDiffing.get(i);
+      if (model != InsertedModel.INSTANCE) {
+        assertTrue(model == models.get(i));
+      }
+    }
+
+    adapter.registerAdapterDataObserver(differObserver);
+    adapter.notifyModelsChanged();
+    assertEquals(0, differObserver.operationCount);
+  }
+}
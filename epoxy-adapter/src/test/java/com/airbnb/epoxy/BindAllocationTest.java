@@ -0,0 +1,165 @@
+package com.airbnb.epoxy;
+
+import android.support.v7.widget.RecyclerView;
+
+import com.airbnb.viewmodeladapter.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that once enough view holders have been created, scrolling doesn't allocate when binding,
+ * unbinding, attaching, or detaching views. The scroll is simulated by calling the adapter the same
+ * way RecyclerView does as items enter and leave the screen.
+ * <p>
+ * The JIT can allocate on the test thread while it is compiling, so each step of the scroll is
+ * measured several times, and a step only fails if it allocated every time. Anything allocated by
+ * a bind shows up every time its step is repeated.
+ */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class BindAllocationTest {
+  private static final int ITEM_LAYOUT = R.layout.view_holder_empty_view;
+  private static final int GROUP_LAYOUT = R.layout.epoxy_model_group_vertical;
+  private static final int MODEL_COUNT = 200;
+  private static final int VISIBLE_COUNT = 12;
+  private static final int WARM_UP_SCROLLS = 2;
+  /** Scrolls down and back up this many times, measuring each step every time. */
+  private static final int MEASURED_REPEATS = 3;
+  private static final int STEPS = MODEL_COUNT - VISIBLE_COUNT;
+
+  private final SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+  private final RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.application);
+  private final ArrayDeque<EpoxyViewHolder> visibleHolders = new ArrayDeque<>(VISIBLE_COUNT + 1);
+  private final SimplePool pool = new SimplePool();
+  private com.sun.management.ThreadMXBean threadBean;
+
+  @Before
+  public void setUp() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    threadBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    for (int i = 0; i < MODEL_COUNT; i++) {
+      if (i % 3 == 0) {
+        adapter.addModels(new EpoxyModelGroup(GROUP_LAYOUT, item(), item(), item()));
+      } else if (i % 7 == 0) {
+        adapter.addModels(item().hide());
+      } else {
+        adapter.addModels(item());
+      }
+    }
+  }
+
+  @Test
+  public void scrollingDoesNotAllocate() {
+    for (int position = 0; position < VISIBLE_COUNT; position++) {
+      visibleHolders.addLast(show(position));
+    }
+
+    // The fewest bytes allocated by each step, with the steps down followed by the steps up
+    long[] leastAllocatedBytes = new long[2 * STEPS];
+    Arrays.fill(leastAllocatedBytes, Long.MAX_VALUE);
+    for (int scroll = 0; scroll < WARM_UP_SCROLLS + 2 * MEASURED_REPEATS; scroll++) {
+      boolean down = scroll % 2 == 0;
+      for (int step = 0; step < STEPS; step++) {
+        int top = down ? step : STEPS - step;
+        long allocatedBytes = measureScroll(down, top);
+        if (scroll >= WARM_UP_SCROLLS) {
+          int index = down ? step : STEPS + step;
+          leastAllocatedBytes[index] = Math.min(leastAllocatedBytes[index], allocatedBytes);
+        }
+      }
+    }
+
+    for (int i = 0; i < leastAllocatedBytes.length; i++) {
+      assertEquals("Bytes allocated by every scroll " + (i < STEPS ? "down" : "up") + " at step "
+          + (i % STEPS), 0, leastAllocatedBytes[i]);
+    }
+  }
+
+  /** Scrolls by one item, with the given position at the top of the screen before scrolling. */
+  private long measureScroll(boolean down, int top) {
+    long threadId = Thread.currentThread().getId();
+    // Reading the allocated bytes may allocate itself, so that is measured and subtracted
+    long measureStart = threadBean.getThreadAllocatedBytes(threadId);
+    long scrollStart = threadBean.getThreadAllocatedBytes(threadId);
+    if (down) {
+      hide(visibleHolders.pollFirst());
+      visibleHolders.addLast(show(top + VISIBLE_COUNT));
+    } else {
+      hide(visibleHolders.pollLast());
+      visibleHolders.addFirst(show(top - 1));
+    }
+    long scrollEnd = threadBean.getThreadAllocatedBytes(threadId);
+    return (scrollEnd - scrollStart) - (scrollStart - measureStart);
+  }
+
+  private EpoxyViewHolder show(int position) {
+    int viewType = adapter.getItemViewType(position);
+    EpoxyViewHolder holder = pool.take(viewType);
+    if (holder == null) {
+      holder = adapter.createViewHolder(recyclerView, viewType);
+    }
+
+    adapter.bindViewHolder(holder, position);
+    adapter.onViewAttachedToWindow(holder);
+    return holder;
+  }
+
+  private void hide(EpoxyViewHolder holder) {
+    adapter.onViewDetachedFromWindow(holder);
+    adapter.onViewRecycled(holder);
+    pool.put(holder);
+  }
+
+  private static TestModel item() {
+    TestModel model = new TestModel();
+    model.layout(ITEM_LAYOUT);
+    return model;
+  }
+
+  /** Keeps recycled holders by view type without allocating once each type has been seen. */
+  private static class SimplePool {
+    private final int[] viewTypes = new int[4];
+    private final List<ArrayDeque<EpoxyViewHolder>> holders = new ArrayList<>();
+
+    EpoxyViewHolder take(int viewType) {
+      for (int i = 0; i < holders.size(); i++) {
+        if (viewTypes[i] == viewType) {
+          return holders.get(i).pollFirst();
+        }
+      }
+      return null;
+    }
+
+    void put(EpoxyViewHolder holder) {
+      int viewType = holder.getItemViewType();
+      for (int i = 0; i < holders.size(); i++) {
+        if (viewTypes[i] == viewType) {
+          holders.get(i).addLast(holder);
+          return;
+        }
+      }
+
+      viewTypes[holders.size()] = viewType;
+      ArrayDeque<EpoxyViewHolder> holdersOfType = new ArrayDeque<>(VISIBLE_COUNT * 2);
+      holdersOfType.addLast(holder);
+      holders.add(holdersOfType);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.airbnb.epoxy.ModelTestUtils.addModels;
+import static com.airbnb.epoxy.ModelTestUtils.changeValues;
+import static com.airbnb.epoxy.ModelTestUtils.remove;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests {@link EpoxyAdapter#setDiffMetricsListener(DiffMetricsListener)}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class DiffMetricsTest {
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final RecordingListener listener = new RecordingListener();
+
+  @Before
+  public void setUp() {
+    addModels(10, models);
+    adapter.notifyModelsChanged();
+    adapter.setDiffMetricsListener(listener);
+  }
+
+  @Test
+  public void noChanges() {
+    changeValues(models, 2, 4);
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, listener.diffCount);
+    assertEquals(DiffMetrics.PATH_NO_CHANGES, listener.path);
+    assertEquals(10, listener.modelCount);
+    assertEquals(1, listener.updateCount);
+    assertEquals(0, listener.addCount + listener.removeCount + listener.moveCount);
+    assertEquals(0, listener.prepareStateNanos);
+  }
+
+  @Test
+  public void onlyInsertions() {
+    addModels(2, models, 0);
+    addModels(3, models);
+    adapter.notifyModelsChanged();
+
+    assertEquals(DiffMetrics.PATH_INSERTIONS_OR_REMOVALS, listener.path);
+    assertEquals(15, listener.modelCount);
+    assertEquals(2, listener.addCount);
+    assertEquals(0, listener.updateCount);
+  }
+
+  @Test
+  public void onlyRemovals() {
+    remove(models, 0, 2);
+    adapter.notifyModelsChanged();
+
+    assertEquals(DiffMetrics.PATH_INSERTIONS_OR_REMOVALS, listener.path);
+    assertEquals(8, listener.modelCount);
+    assertEquals(1, listener.removeCount);
+  }
+
+  @Test
+  public void fullDiff() {
+    models.add(models.remove(0));
+    remove(models, 3, 1);
+    addModels(1, models);
+    changeValues(models, 0, 1);
+    adapter.notifyModelsChanged();
+
+    assertEquals(DiffMetrics.PATH_FULL_DIFF, listener.path);
+    assertFalse(listener.async);
+    assertFalse(listener.exceededBudget);
+    assertEquals(10, listener.modelCount);
+    assertEquals(1, listener.addCount);
+    assertEquals(1, listener.removeCount);
+    assertEquals(1, listener.moveCount);
+    assertEquals(1, listener.updateCount);
+    assertTrue(listener.prepareStateNanos > 0);
+    assertTrue(listener.notifyNanos > 0);
+    assertEquals(listener.prepareStateNanos + listener.removalsNanos + listener.insertionsNanos
+            + listener.movesNanos + listener.changesNanos + listener.notifyNanos,
+        listener.totalNanos);
+  }
+
+  @Test
+  public void exceededBudget() {
+    adapter.setDiffOperationBudget(0);
+    models.add(models.remove(0));
+    adapter.notifyModelsChanged();
+
+    assertTrue(listener.exceededBudget);
+    assertEquals(0, listener.moveCount);
+    assertEquals(1, listener.updateCount);
+  }
+
+  @Test
+  public void asyncDiff() {
+    final List<Runnable> tasks = new ArrayList<>();
+    adapter.setDiffExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        tasks.add(command);
+      }
+    });
+
+    models.add(models.remove(0));
+    adapter.notifyModelsChangedAsync();
+    assertEquals(0, listener.diffCount);
+
+    tasks.get(0).run();
+    assertEquals(1, listener.diffCount);
+    assertEquals(DiffMetrics.PATH_FULL_DIFF, listener.path);
+    assertTrue(listener.async);
+    assertEquals(1, listener.moveCount);
+    assertEquals(10, listener.modelCount);
+  }
+
+  @Test
+  public void removedListenerIsNotCalled() {
+    adapter.setDiffMetricsListener(null);
+    adapter.notifyModelsChanged();
+
+    assertEquals(0, listener.diffCount);
+  }
+
+  /** Copies the metrics, since the instance is reused. */
+  private static class RecordingListener implements DiffMetricsListener {
+    int diffCount;
+    int path;
+    boolean async;
+    boolean exceededBudget;
+    int modelCount;
+    long prepareStateNanos;
+    long removalsNanos;
+    long insertionsNanos;
+    long movesNanos;
+    long changesNanos;
+    long notifyNanos;
+    long totalNanos;
+    int addCount;
+    int removeCount;
+    int moveCount;
+    int updateCount;
+
+    @Override
+    public void onDiffComplete(DiffMetrics metrics) {
+      diffCount++;
+      path = metrics.getPath();
+      async = metrics.isAsync();
+      exceededBudget = metrics.exceededBudget();
+      modelCount = metrics.getModelCount();
+      prepareStateNanos = metrics.getPrepareStateNanos();
+      removalsNanos = metrics.getRemovalsNanos();
+      insertionsNanos = metrics.getInsertionsNanos();
+      movesNanos = metrics.getMovesNanos();
+      changesNanos = metrics.getChangesNanos();
+      notifyNanos = metrics.getNotifyNanos();
+      totalNanos = metrics.getTotalNanos();
+      addCount = metrics.getAddCount();
+      removeCount = metrics.getRemoveCount();
+      moveCount = metrics.getMoveCount();
+      updateCount = metrics.getUpdateCount();
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.airbnb.epoxy.ModelTestUtils.addModels;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that once the differ's buffers have grown to fit the models, diffing doesn't allocate.
+ * <p>
+ * The JIT can occasionally allocate a few bytes on the test thread while it is compiling, so
+ * instead of requiring every diff to allocate nothing we require nearly all of them to. Anything
+ * allocated per model, per operation, or per diff would show up in every diff.
+ */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class DifferAllocationTest {
+  private static final int MODEL_COUNT = 500;
+  private static final int WARM_UP_DIFFS = 10;
+  private static final int MEASURED_DIFFS = 50;
+  private static final int MAX_DIFFS_WITH_ALLOCATIONS = MEASURED_DIFFS / 10;
+
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private com.sun.management.ThreadMXBean threadBean;
+
+  @Before
+  public void setUp() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    threadBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    addModels(MODEL_COUNT, models);
+    adapter.notifyModelsChanged();
+  }
+
+  @Test
+  public void updatingHashesDoesNotAllocate() {
+    int diffsWithAllocations = 0;
+    for (int i = 0; i < WARM_UP_DIFFS + MEASURED_DIFFS; i++) {
+      ModelTestUtils.changeValue(models.get(i % MODEL_COUNT));
+      ModelTestUtils.changeValue(models.get((i * 7) % MODEL_COUNT));
+
+      long allocatedBytes = measureDiff();
+      if (i >= WARM_UP_DIFFS && allocatedBytes != 0) {
+        diffsWithAllocations++;
+      }
+    }
+
+    assertTrue("Diffs that allocated: " + diffsWithAllocations,
+        diffsWithAllocations <= MAX_DIFFS_WITH_ALLOCATIONS);
+  }
+
+  @Test
+  public void payloadsDoNotAllocate() {
+    adapter.enableDiffPayloads();
+    int diffsWithAllocations = 0;
+    for (int i = 0; i < WARM_UP_DIFFS + MEASURED_DIFFS; i++) {
+      EpoxyModel<?> model = models.get(i % MODEL_COUNT);
+      ModelTestUtils.changeValue(model);
+      // Attributes past the first few, since small values are already cached by Long.valueOf
+      model.markDirty(1L << (10 + i % 3));
+
+      long allocatedBytes = measureDiff();
+      if (i >= WARM_UP_DIFFS && allocatedBytes != 0) {
+        diffsWithAllocations++;
+      }
+    }
+
+    assertTrue("Diffs that allocated: " + diffsWithAllocations,
+        diffsWithAllocations <= MAX_DIFFS_WITH_ALLOCATIONS);
+  }
+
+  @Test
+  public void fullDiffDoesNotAllocate() {
+    Random random = new Random(3);
+    List<EpoxyModel<?>> original = new ArrayList<>(models);
+    List<EpoxyModel<?>> shuffled = new ArrayList<>(models);
+    // Remove and insert some models along with moving them
+    shuffled.subList(0, 10).clear();
+    addModels(10, shuffled, MODEL_COUNT / 2);
+    Collections.shuffle(shuffled, random);
+
+    int diffsWithAllocations = 0;
+    for (int i = 0; i < WARM_UP_DIFFS + MEASURED_DIFFS; i++) {
+      models.clear();
+      models.addAll(i % 2 == 0 ? shuffled : original);
+      ModelTestUtils.changeValue(models.get(random.nextInt(MODEL_COUNT)));
+
+      long allocatedBytes = measureDiff();
+      if (i >= WARM_UP_DIFFS && allocatedBytes != 0) {
+        diffsWithAllocations++;
+      }
+    }
+
+    assertTrue("Diffs that allocated: " + diffsWithAllocations,
+        diffsWithAllocations <= MAX_DIFFS_WITH_ALLOCATIONS);
+  }
+
+  private long measureDiff() {
+    long threadId = Thread.currentThread().getId();
+    // Reading the allocated bytes may allocate itself, so that is measured and subtracted
+    long measureStart = threadBean.getThreadAllocatedBytes(threadId);
+    long diffStart = threadBean.getThreadAllocatedBytes(threadId);
+    adapter.notifyModelsChanged();
+    long diffEnd = threadBean.getThreadAllocatedBytes(threadId);
+    return (diffEnd - diffStart) - (diffStart - measureStart);
+  }
+}
@@ -0,0 +1,160 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static com.airbnb.epoxy.ModelTestUtils.addModels;
+import static com.airbnb.epoxy.ModelTestUtils.changeValues;
+import static com.airbnb.epoxy.ModelTestUtils.convertToTestModels;
+import static com.airbnb.epoxy.ModelTestUtils.remove;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/** Tests {@link EpoxyAdapter#notifyModelsChangedAsync()}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class DifferAsyncTest {
+  private final TestObserver testObserver = new TestObserver();
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final QueueExecutor executor = new QueueExecutor();
+
+  @Before
+  public void setUp() {
+    adapter.setDiffExecutor(executor);
+    addModels(models);
+    adapter.notifyModelsChanged();
+    adapter.registerAdapterDataObserver(testObserver);
+    testObserver.setUpForNextDiff(convertToTestModels(models));
+  }
+
+  @Test
+  public void diffIsAppliedWhenExecutorRuns() {
+    remove(models, 0, 5);
+    addModels(3, models, 10);
+    Collections.shuffle(models, new Random(1));
+    changeValues(models, 0, 4);
+
+    adapter.notifyModelsChangedAsync();
+    assertEquals(0, testObserver.operationCount);
+
+    executor.runAll();
+    assertNotifiedModelsMatch();
+  }
+
+  @Test
+  public void adapterShowsNotifiedModelsWhileDiffing() {
+    List<EpoxyModel<?>> originalModels = new ArrayList<>(models);
+    remove(models, 0, 5);
+
+    adapter.notifyModelsChangedAsync();
+    assertEquals(originalModels.size(), adapter.getItemCount());
+    for (int i = 0; i < originalModels.size(); i++) {
+      assertEquals(originalModels.get(i).id(), adapter.getItemId(i));
+    }
+
+    executor.runAll();
+    assertEquals(models.size(), adapter.getItemCount());
+    assertNotifiedModelsMatch();
+  }
+
+  @Test
+  public void newerDiffCancelsOlderDiff() {
+    remove(models, 0, 5);
+    adapter.notifyModelsChangedAsync();
+
+    addModels(2, models, 0);
+    adapter.notifyModelsChangedAsync();
+
+    assertEquals(2, executor.tasks.size());
+    executor.runAll();
+
+    // The first diff is stale and should not notify anything
+    assertEquals(2, testObserver.operationCount);
+    assertNotifiedModelsMatch();
+  }
+
+  @Test
+  public void syncDiffCancelsAsyncDiff() {
+    remove(models, 0, 5);
+    adapter.notifyModelsChangedAsync();
+    adapter.notifyModelsChanged();
+    assertNotifiedModelsMatch();
+
+    testObserver.operationCount = 0;
+    executor.runAll();
+    assertEquals(0, testObserver.operationCount);
+  }
+
+  @Test
+  public void resultIsDiscardedIfModelsChangeWhileDiffing() {
+    remove(models, 0, 5);
+    adapter.notifyModelsChangedAsync();
+
+    models.remove(0);
+    executor.runNext();
+
+    // The diff should have been restarted to include the later change
+    assertEquals(0, testObserver.operationCount);
+    assertTrue(adapter.getItemCount() != models.size());
+
+    executor.runAll();
+    assertNotifiedModelsMatch();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void notifyingInsertionWhileDiffingThrows() {
+    adapter.notifyModelsChangedAsync();
+    adapter.addModel(new TestModel());
+  }
+
+  @Test
+  public void notifyingChangeWhileDiffingRestartsDiff() {
+    changeValues(models, 0, 1);
+    adapter.notifyModelsChangedAsync();
+    adapter.notifyItemChanged(0);
+
+    executor.runAll();
+    assertEquals(models.size(), adapter.getItemCount());
+    assertNotifiedModelsMatch();
+  }
+
+  private void assertNotifiedModelsMatch() {
+    List<TestModel> expected = convertToTestModels(models);
+    assertEquals(expected.size(), testObserver.modelsAfterDiffing.size());
+
+    for (int i = 0; i < expected.size(); i++) {
+      TestModel notifiedModel = testObserver.modelsAfterDiffing.get(i);
+      if (notifiedModel != InsertedModel.INSTANCE) {
+        assertEquals(expected.get(i).id(), notifiedModel.id());
+      }
+    }
+  }
+
+  private static class QueueExecutor implements Executor {
+    final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    void runNext() {
+      tasks.remove(0).run();
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        runNext();
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.airbnb.epoxy;
+
+import android.support.v7.widget.RecyclerView.AdapterDataObserver;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static com.airbnb.epoxy.ModelTestUtils.addModels;
+import static com.airbnb.epoxy.ModelTestUtils.changeValues;
+import static com.airbnb.epoxy.ModelTestUtils.remove;
+import static org.junit.Assert.assertEquals;
+
+/** Tests {@link EpoxyAdapter#setDiffOperationBudget(int)}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class DifferBudgetTest {
+  private static final int MODEL_COUNT = 100;
+  private static final int BUDGET = 10;
+
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final RecordingObserver observer = new RecordingObserver();
+
+  @Before
+  public void setUp() {
+    adapter.setDiffOperationBudget(BUDGET);
+    addModels(MODEL_COUNT, models);
+    adapter.notifyModelsChanged();
+    adapter.registerAdapterDataObserver(observer);
+  }
+
+  @Test
+  public void diffWithinBudgetIsNotified() {
+    models.add(models.remove(0));
+    changeValues(models, 10, 20);
+    adapter.notifyModelsChanged();
+
+    assertEquals(2, observer.operations.size());
+    assertEquals("move 0 99", observer.operations.get(0));
+    assertEquals("change 10 10", observer.operations.get(1));
+  }
+
+  @Test
+  public void tooManyMovesNotifiesWholeListChanged() {
+    Collections.shuffle(models, new Random(1));
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.operations.size());
+    assertEquals("change 0 100", observer.operations.get(0));
+  }
+
+  @Test
+  public void tooManyRemovalsNotifiesWholeListChanged() {
+    for (int i = MODEL_COUNT - 2; i >= 0; i -= 4) {
+      remove(models, i, 1);
+    }
+    adapter.notifyModelsChanged();
+
+    assertEquals(2, observer.operations.size());
+    assertEquals("change 0 75", observer.operations.get(0));
+    assertEquals("remove 75 25", observer.operations.get(1));
+  }
+
+  @Test
+  public void tooManyInsertionsNotifiesWholeListChanged() {
+    for (int i = 0; i <= MODEL_COUNT + 20; i += 6) {
+      addModels(1, models, i);
+    }
+    adapter.notifyModelsChanged();
+
+    assertEquals(2, observer.operations.size());
+    assertEquals("change 0 100", observer.operations.get(0));
+    assertEquals("insert 100 21", observer.operations.get(1));
+  }
+
+  @Test
+  public void stateIsUpdatedAfterExceedingBudget() {
+    Collections.shuffle(models, new Random(1));
+    adapter.notifyModelsChanged();
+    observer.operations.clear();
+
+    models.add(models.remove(0));
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.operations.size());
+    assertEquals("move 0 99", observer.operations.get(0));
+  }
+
+  @Test
+  public void asyncDiffRespectsBudget() {
+    adapter.setDiffExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    });
+
+    List<EpoxyModel<?>> shuffledModels = new ArrayList<>(models);
+    Collections.shuffle(shuffledModels, new Random(1));
+    models.clear();
+    models.addAll(shuffledModels);
+    adapter.notifyModelsChangedAsync();
+
+    assertEquals(1, observer.operations.size());
+    assertEquals("change 0 100", observer.operations.get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeBudgetIsNotAllowed() {
+    adapter.setDiffOperationBudget(-1);
+  }
+
+  private static class RecordingObserver extends AdapterDataObserver {
+    final List<String> operations = new ArrayList<>();
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+      operations.add("change " + positionStart + " " + itemCount);
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+      onItemRangeChanged(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+      operations.add("insert " + positionStart + " " + itemCount);
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+      operations.add("remove " + positionStart + " " + itemCount);
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      operations.add("move " + fromPosition + " " + toPosition);
+    }
+  }
+}
@@ -207,6 +207,15 @@ public class DifferCorrectnessTest {
     diffAndValidate();
   }
 
+  @Test
+  public void shuffleLargeList() {
+    addModels(2000, models);
+    diffAndValidate();
+
+    Collections.shuffle(models, new Random(1));
+    diffAndValidate();
+  }
+
   @Test
   public void removeAll() {
     addModels(models);
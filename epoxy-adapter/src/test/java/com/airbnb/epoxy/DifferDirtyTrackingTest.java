@@ -0,0 +1,138 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests {@link EpoxyAdapter#enableDirtyTracking()}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class DifferDirtyTrackingTest {
+  private static final int MODEL_COUNT = 10;
+
+  private final TestObserver testObserver = new TestObserver();
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final List<CountingModel> countingModels = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    adapter.enableDirtyTracking();
+    for (int i = 0; i < MODEL_COUNT; i++) {
+      countingModels.add(new CountingModel());
+    }
+    models.addAll(countingModels);
+    adapter.notifyModelsChanged();
+
+    adapter.registerAdapterDataObserver(testObserver);
+    testObserver.setUpForNextDiff(new ArrayList<TestModel>(countingModels));
+    resetHashCodeCounts();
+  }
+
+  @Test
+  public void untouchedModelsAreNotHashed() {
+    adapter.notifyModelsChanged();
+
+    assertEquals(0, totalHashCodeCount());
+    assertEquals(0, testObserver.operationCount);
+  }
+
+  @Test
+  public void untouchedModelsAreNotHashedInFullDiff() {
+    models.add(models.remove(0));
+    adapter.notifyModelsChanged();
+
+    assertEquals(0, totalHashCodeCount());
+    assertEquals(1, testObserver.operationCount);
+  }
+
+  @Test
+  public void markedModelIsHashed() {
+    CountingModel model = countingModels.get(3);
+    model.randomizeValue().markDirty();
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, totalHashCodeCount());
+    assertEquals(1, model.hashCodeCount);
+    assertEquals(1, testObserver.operationCount);
+    assertTrue(testObserver.modelsAfterDiffing.get(3).updated);
+  }
+
+  @Test
+  public void baseSettersMarkModelDirty() {
+    countingModels.get(1).hide();
+    countingModels.get(2).layout(1);
+    adapter.notifyModelsChanged();
+
+    assertEquals(2, totalHashCodeCount());
+    assertTrue(testObserver.modelsAfterDiffing.get(1).updated);
+    assertTrue(testObserver.modelsAfterDiffing.get(2).updated);
+  }
+
+  @Test
+  public void newInstanceIsHashed() {
+    CountingModel replacement = new CountingModel();
+    replacement.id(models.get(5).id());
+    models.set(5, replacement);
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, replacement.hashCodeCount);
+    assertTrue(testObserver.modelsAfterDiffing.get(5).updated);
+  }
+
+  @Test
+  public void changeWithoutMarkingDirtyIsNotNoticed() {
+    countingModels.get(0).randomizeValue();
+    adapter.notifyModelsChanged();
+
+    assertEquals(0, totalHashCodeCount());
+    assertFalse(testObserver.modelsAfterDiffing.get(0).updated);
+  }
+
+  @Test
+  public void modelChangedInPlaceMarksGroupDirty() {
+    CountingModel child = countingModels.get(3);
+    models.set(3, new EpoxyModelGroup(1, child));
+    adapter.notifyModelsChanged();
+    testObserver.setUpForNextDiff(new ArrayList<TestModel>(countingModels));
+    testObserver.operationCount = 0;
+
+    child.randomizeValue().markDirty();
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, testObserver.operationCount);
+    assertTrue(testObserver.modelsAfterDiffing.get(3).updated);
+  }
+
+  private void resetHashCodeCounts() {
+    for (CountingModel model : countingModels) {
+      model.hashCodeCount = 0;
+    }
+  }
+
+  private int totalHashCodeCount() {
+    int count = 0;
+    for (CountingModel model : countingModels) {
+      count += model.hashCodeCount;
+    }
+    return count;
+  }
+
+  private static class CountingModel extends TestModel {
+    int hashCodeCount;
+
+    @Override
+    public int hashCode() {
+      hashCodeCount++;
+      return super.hashCode();
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package com.airbnb.epoxy;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static com.airbnb.epoxy.ModelTestUtils.addModels;
+import static com.airbnb.epoxy.ModelTestUtils.changeValues;
+import static com.airbnb.epoxy.ModelTestUtils.convertToTestModels;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests {@link EpoxyAdapter#enableMoveBatching()}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class DifferMoveBatchingTest {
+  private static final boolean SHOW_LOGS = false;
+  private static final int MODEL_COUNT = 1000;
+  private static final int BLOCK_SIZE = 200;
+
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final TestObserver testObserver = new TestObserver(SHOW_LOGS);
+
+  @Test
+  public void blockMovedToEndIsBatched() {
+    setUpModels(MODEL_COUNT);
+
+    List<EpoxyModel<?>> block = models.subList(0, BLOCK_SIZE);
+    List<EpoxyModel<?>> blockCopy = new ArrayList<>(block);
+    block.clear();
+    models.addAll(blockCopy);
+
+    diffAndValidate();
+    assertEquals(2, testObserver.operationCount);
+  }
+
+  @Test
+  public void blockMovedToFrontIsBatched() {
+    setUpModels(MODEL_COUNT);
+
+    List<EpoxyModel<?>> block = models.subList(MODEL_COUNT - BLOCK_SIZE, MODEL_COUNT);
+    List<EpoxyModel<?>> blockCopy = new ArrayList<>(block);
+    block.clear();
+    models.addAll(0, blockCopy);
+
+    diffAndValidate();
+    assertEquals(2, testObserver.operationCount);
+  }
+
+  @Test
+  public void singleMoveIsNotBatched() {
+    setUpModels(10);
+
+    models.add(models.remove(0));
+
+    diffAndValidate();
+    assertEquals(1, testObserver.operationCount);
+  }
+
+  @Test
+  public void blockMovesWithInsertionsRemovalsAndChanges() {
+    Random random = new Random(7);
+    setUpModels(100);
+
+    for (int i = 0; i < 100; i++) {
+      moveRandomBlock(random);
+      addModels(random.nextInt(5), models, random.nextInt(models.size()));
+      ModelTestUtils.remove(models, random.nextInt(models.size() - 5), random.nextInt(5));
+      changeValues(models, random.nextInt(models.size()), random.nextInt(10));
+
+      diffAndValidate();
+    }
+  }
+
+  @Test
+  public void asyncDiffBatchesMoves() {
+    setUpModels(MODEL_COUNT);
+    adapter.setDiffExecutor(new ImmediateExecutor());
+
+    List<EpoxyModel<?>> block = models.subList(0, BLOCK_SIZE);
+    List<EpoxyModel<?>> blockCopy = new ArrayList<>(block);
+    block.clear();
+    models.addAll(blockCopy);
+
+    testObserver.operationCount = 0;
+    adapter.notifyModelsChangedAsync();
+    assertEquals(2, testObserver.operationCount);
+  }
+
+  /**
+   * Compares the number of notify calls for a few types of moves, with and without batching. The
+   * counts are printed if {@link #SHOW_LOGS} is enabled.
+   */
+  @Test
+  public void notifyCallCounts() {
+    String[] names = {"move block to end", "swap halves", "shuffle blocks of 10",
+        "shuffle blocks of 2", "shuffle items"};
+    int[] unbatchedCounts = new int[names.length];
+    int[] batchedCounts = new int[names.length];
+
+    for (int scenario = 0; scenario < names.length; scenario++) {
+      unbatchedCounts[scenario] = countNotifyCalls(scenario, false);
+      batchedCounts[scenario] = countNotifyCalls(scenario, true);
+      assertTrue(batchedCounts[scenario] <= unbatchedCounts[scenario]);
+
+      if (SHOW_LOGS) {
+        System.out.println(names[scenario] + ": " + unbatchedCounts[scenario]
+            + " notify calls without move batching, " + batchedCounts[scenario]
+            + " with move batching");
+      }
+    }
+
+    // Without batching each item of the block is moved, with batching the block is removed and
+    // inserted again
+    assertEquals(BLOCK_SIZE, unbatchedCounts[0]);
+    assertEquals(2, batchedCounts[0]);
+    // The same goes for the half of the list that is moved
+    assertEquals(MODEL_COUNT / 2, unbatchedCounts[1]);
+    assertEquals(2, batchedCounts[1]);
+    assertTrue(batchedCounts[2] < unbatchedCounts[2]);
+  }
+
+  private static int countNotifyCalls(int scenario, boolean batchMoves) {
+    TestAdapter adapter = new TestAdapter();
+    if (batchMoves) {
+      adapter.enableMoveBatching();
+    }
+    List<EpoxyModel<?>> models = adapter.models;
+    addModels(MODEL_COUNT, models);
+    adapter.notifyModelsChanged();
+
+    Random random = new Random(scenario);
+    switch (scenario) {
+      case 0:
+        List<EpoxyModel<?>> block = models.subList(0, BLOCK_SIZE);
+        List<EpoxyModel<?>> blockCopy = new ArrayList<>(block);
+        block.clear();
+        models.addAll(blockCopy);
+        break;
+      case 1:
+        Collections.rotate(models, MODEL_COUNT / 2);
+        break;
+      case 2:
+        shuffleBlocks(models, 10, random);
+        break;
+      case 3:
+        shuffleBlocks(models, 2, random);
+        break;
+      case 4:
+        Collections.shuffle(models, random);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown scenario " + scenario);
+    }
+
+    TestObserver observer = new TestObserver();
+    observer.setUpForNextDiff(convertToTestModels(models));
+    adapter.registerAdapterDataObserver(observer);
+    adapter.notifyModelsChanged();
+    return observer.operationCount;
+  }
+
+  private static void shuffleBlocks(List<EpoxyModel<?>> models, int blockSize, Random random) {
+    List<List<EpoxyModel<?>>> blocks = new ArrayList<>();
+    for (int i = 0; i < models.size(); i += blockSize) {
+      blocks.add(new ArrayList<>(models.subList(i, Math.min(i + blockSize, models.size()))));
+    }
+    Collections.shuffle(blocks, random);
+
+    models.clear();
+    for (List<EpoxyModel<?>> block : blocks) {
+      models.addAll(block);
+    }
+  }
+
+  private void moveRandomBlock(Random random) {
+    int blockStart = random.nextInt(models.size() / 2);
+    List<EpoxyModel<?>> block = models.subList(blockStart, blockStart + random.nextInt(20));
+    List<EpoxyModel<?>> blockCopy = new ArrayList<>(block);
+    block.clear();
+    models.addAll(random.nextInt(models.size()), blockCopy);
+  }
+
+  private void setUpModels(int count) {
+    adapter.enableMoveBatching();
+    addModels(count, models);
+    adapter.notifyModelsChanged();
+
+    adapter.registerAdapterDataObserver(testObserver);
+    testObserver.setUpForNextDiff(convertToTestModels(models));
+  }
+
+  /**
+   * Checks that applying the notify calls to the previous models produces the current models.
+   * Items from a batched run are re-inserted, so they show up as inserted models.
+   */
+  private void diffAndValidate() {
+    testObserver.operationCount = 0;
+    adapter.notifyModelsChanged();
+
+    List<TestModel> newModels = convertToTestModels(models);
+    assertEquals(newModels.size(), testObserver.modelsAfterDiffing.size());
+    for (int i = 0; i < newModels.size(); i++) {
+      TestModel model = testObserver.modelsAfterDiffing.get(i);
+      if (model != InsertedModel.INSTANCE) {
+        assertEquals(newModels.get(i).id(), model.id());
+      }
+      model.updated = false;
+    }
+
+    testObserver.setUpForNextDiff(newModels);
+  }
+
+  private static class ImmediateExecutor implements Executor {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.airbnb.epoxy;
+
+import android.support.v7.widget.RecyclerView.AdapterDataObserver;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/** Tests {@link EpoxyAdapter#enableDiffPayloads()}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class DifferPayloadTest {
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final PayloadObserver observer = new PayloadObserver();
+
+  @Before
+  public void setUp() {
+    adapter.enableDiffPayloads();
+    for (int i = 0; i < 5; i++) {
+      models.add(new AttributeModel(i, "title", 0));
+    }
+    adapter.notifyModelsChanged();
+    adapter.registerAdapterDataObserver(observer);
+  }
+
+  @Test
+  public void changedAttributesAreSentAsPayload() {
+    models.set(1, copy(1).count(1));
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.changes.size());
+    assertEquals(AttributeModel.COUNT_CHANGED, observer.changes.get(0).payload);
+  }
+
+  @Test
+  public void changedAttributesAreSentAsPayloadInFullDiff() {
+    AttributeModel changedModel = copy(1).title("new title").count(1);
+    models.remove(1);
+    models.add(changedModel);
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.changes.size());
+    Change change = observer.changes.get(0);
+    assertEquals(4, change.positionStart);
+    assertEquals(AttributeModel.TITLE_CHANGED | AttributeModel.COUNT_CHANGED, change.payload);
+  }
+
+  @Test
+  public void changesWithEqualPayloadsAreBatched() {
+    models.set(1, copy(1).count(1));
+    models.set(2, copy(2).count(1));
+    models.set(3, copy(3).title("new title"));
+    adapter.notifyModelsChanged();
+
+    assertEquals(2, observer.changes.size());
+    assertChange(observer.changes.get(0), 1, 2, AttributeModel.COUNT_CHANGED);
+    assertChange(observer.changes.get(1), 3, 1, AttributeModel.TITLE_CHANGED);
+  }
+
+  @Test
+  public void recordedAttributesAreSentIfModelIsChangedInPlace() {
+    ((AttributeModel) models.get(1)).count(1);
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.changes.size());
+    assertEquals(AttributeModel.COUNT_CHANGED, observer.changes.get(0).payload);
+  }
+
+  @Test
+  public void recordedAttributesAreSentInFullDiff() {
+    AttributeModel changedModel = (AttributeModel) models.get(3);
+    changedModel.title("new title");
+    models.remove(1);
+    models.add(new AttributeModel(10, "title", 0));
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.changes.size());
+    Change change = observer.changes.get(0);
+    assertEquals(2, change.positionStart);
+    assertEquals(AttributeModel.TITLE_CHANGED, change.payload);
+  }
+
+  @Test
+  public void recordedAttributesAreOnlySentOnce() {
+    AttributeModel model = (AttributeModel) models.get(1);
+    // Setting the same title records it without changing the hash code, so nothing is notified
+    model.title("title");
+    adapter.notifyModelsChanged();
+    assertEquals(0, observer.changes.size());
+
+    model.count(1);
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.changes.size());
+    assertEquals(AttributeModel.COUNT_CHANGED, observer.changes.get(0).payload);
+  }
+
+  @Test
+  public void noPayloadIfModelIsChangedInPlaceWithoutRecordingAttributes() {
+    // The model can't compare against its previous state, so it should be fully rebound
+    ((AttributeModel) models.get(1)).count = 1;
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.changes.size());
+    assertNull(observer.changes.get(0).payload);
+  }
+
+  @Test
+  public void noPayloadIfNotEnabled() {
+    TestAdapter adapter = new TestAdapter();
+    adapter.models.add(new AttributeModel(0, "title", 0));
+    adapter.notifyModelsChanged();
+    adapter.registerAdapterDataObserver(observer);
+
+    adapter.models.set(0, new AttributeModel(0, "title", 1));
+    adapter.notifyModelsChanged();
+
+    assertEquals(1, observer.changes.size());
+    assertNull(observer.changes.get(0).payload);
+  }
+
+  @Test
+  public void asyncDiffSendsPayloads() {
+    final List<Runnable> tasks = new ArrayList<>();
+    adapter.setDiffExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        tasks.add(command);
+      }
+    });
+
+    models.set(1, copy(1).count(1));
+    adapter.notifyModelsChangedAsync();
+    tasks.get(0).run();
+
+    assertEquals(1, observer.changes.size());
+    assertEquals(AttributeModel.COUNT_CHANGED, observer.changes.get(0).payload);
+  }
+
+  @Test
+  public void getChangedAttributesCombinesPayloads() {
+    List<Object> payloads =
+        Arrays.asList(AttributeModel.TITLE_CHANGED, "other payload", AttributeModel.COUNT_CHANGED);
+
+    assertEquals(AttributeModel.TITLE_CHANGED | AttributeModel.COUNT_CHANGED,
+        EpoxyModel.getChangedAttributes(payloads));
+  }
+
+  private AttributeModel copy(int position) {
+    AttributeModel model = (AttributeModel) models.get(position);
+    return new AttributeModel(model.id(), model.title, model.count);
+  }
+
+  private static void assertChange(Change change, int positionStart, int itemCount,
+      long payload) {
+    assertEquals(positionStart, change.positionStart);
+    assertEquals(itemCount, change.itemCount);
+    assertEquals(payload, change.payload);
+  }
+
+  private static class AttributeModel extends EpoxyModel<View> {
+    static final long TITLE_CHANGED = 1L;
+    static final long COUNT_CHANGED = 1L << 1;
+
+    String title;
+    int count;
+
+    AttributeModel(long id, String title, int count) {
+      super(id);
+      this.title = title;
+      this.count = count;
+    }
+
+    /** Like generated setters, the setters record which attribute changed. */
+    AttributeModel title(String title) {
+      this.title = title;
+      markDirty(TITLE_CHANGED);
+      return this;
+    }
+
+    AttributeModel count(int count) {
+      this.count = count;
+      markDirty(COUNT_CHANGED);
+      return this;
+    }
+
+    @Override
+    protected int getDefaultLayout() {
+      return 0;
+    }
+
+    @Override
+    public long diffAttributes(EpoxyModel<?> other) {
+      AttributeModel that = (AttributeModel) other;
+      long changedAttributes = 0;
+      if (!title.equals(that.title)) {
+        changedAttributes |= TITLE_CHANGED;
+      }
+      if (count != that.count) {
+        changedAttributes |= COUNT_CHANGED;
+      }
+      return changedAttributes;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = super.hashCode();
+      result = 31 * result + title.hashCode();
+      result = 31 * result + count;
+      return result;
+    }
+  }
+
+  private static class Change {
+    final int positionStart;
+    final int itemCount;
+    final Object payload;
+
+    Change(int positionStart, int itemCount, Object payload) {
+      this.positionStart = positionStart;
+      this.itemCount = itemCount;
+      this.payload = payload;
+    }
+  }
+
+  private static class PayloadObserver extends AdapterDataObserver {
+    final List<Change> changes = new ArrayList<>();
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+      changes.add(new Change(positionStart, itemCount, payload));
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.airbnb.epoxy.ModelTestUtils.addModels;
+import static com.airbnb.epoxy.ModelTestUtils.convertToTestModels;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that reordering the models list, and replaying insertions recorded by the list, notify the
+ * right changes without a full diff.
+ */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class DifferReorderTest {
+  private static final int MODEL_COUNT = 50;
+
+  private final TestAdapter adapter = new TestAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final TestObserver observer = new TestObserver();
+  private final PathListener listener = new PathListener();
+
+  @Before
+  public void setUp() {
+    addModels(MODEL_COUNT, models);
+    adapter.notifyModelsChanged();
+    adapter.registerAdapterDataObserver(observer);
+    adapter.setDiffMetricsListener(listener);
+    observer.setUpForNextDiff(convertToTestModels(models));
+  }
+
+  @Test
+  public void shuffle() {
+    Collections.shuffle(models, new Random(1));
+    diffAndCheck(DiffMetrics.PATH_REORDER);
+  }
+
+  @Test
+  public void sort() {
+    Collections.sort(models, new Comparator<EpoxyModel<?>>() {
+      @Override
+      public int compare(EpoxyModel<?> first, EpoxyModel<?> second) {
+        return Long.compare(first.id(), second.id());
+      }
+    });
+    diffAndCheck(DiffMetrics.PATH_REORDER);
+  }
+
+  @Test
+  public void swap() {
+    Collections.swap(models, 3, 40);
+    diffAndCheck(DiffMetrics.PATH_REORDER);
+    assertEquals(2, observer.operationCount);
+  }
+
+  @Test
+  public void reorderWithChangedModel() {
+    Collections.reverse(models);
+    models.set(5, ((TestModel) models.get(5)).clone().randomizeValue());
+    diffAndCheck(DiffMetrics.PATH_REORDER);
+  }
+
+  @Test
+  public void replacementWithNewIdNeedsFullDiff() {
+    Collections.swap(models, 3, 40);
+    models.set(10, new TestModel());
+    diffAndCheck(DiffMetrics.PATH_FULL_DIFF);
+  }
+
+  @Test
+  public void reorderOverBudgetNeedsFullDiff() {
+    adapter.setDiffOperationBudget(5);
+    Collections.reverse(models);
+    adapter.notifyModelsChanged();
+
+    assertEquals(DiffMetrics.PATH_FULL_DIFF, listener.path);
+    assertTrue(listener.exceededBudget);
+  }
+
+  @Test
+  public void repeatedReorders() {
+    Random random = new Random(2);
+    for (int i = 0; i < 20; i++) {
+      Collections.shuffle(models.subList(random.nextInt(10), MODEL_COUNT - random.nextInt(10)),
+          random);
+      diffAndCheck(DiffMetrics.PATH_REORDER);
+      observer.setUpForNextDiff(convertToTestModels(models));
+    }
+  }
+
+  @Test
+  public void insertionsInAnyOrder() {
+    addModels(2, models, 30);
+    addModels(3, models, 10);
+    addModels(1, models, 0);
+    diffAndCheck(DiffMetrics.PATH_INSERTIONS_OR_REMOVALS);
+  }
+
+  private void diffAndCheck(@DiffMetrics.Path int expectedPath) {
+    adapter.notifyModelsChanged();
+
+    assertEquals(expectedPath, listener.path);
+    assertFalse(listener.exceededBudget);
+
+    List<TestModel> expectedModels = convertToTestModels(models);
+    assertEquals(expectedModels.size(), observer.modelsAfterDiffing.size());
+    for (int i = 0; i < expectedModels.size(); i++) {
+      TestModel model = observer.modelsAfterDiffing.get(i);
+      TestModel expected = expectedModels.get(i);
+      if (model == InsertedModel.INSTANCE) {
+        assertFalse(observer.initialModels.contains(expected));
+        continue;
+      }
+
+      assertEquals(expected.id(), model.id());
+      assertEquals(expected.hashCode() != model.hashCode(), model.updated);
+    }
+
+    // The state list was updated to the new order, so nothing is left to notify
+    int operationCount = observer.operationCount;
+    adapter.notifyModelsChanged();
+    assertEquals(DiffMetrics.PATH_NO_CHANGES, listener.path);
+    assertEquals(operationCount, observer.operationCount);
+  }
+
+  private static class PathListener implements DiffMetricsListener {
+    int path;
+    boolean exceededBudget;
+
+    @Override
+    public void onDiffComplete(DiffMetrics metrics) {
+      path = metrics.getPath();
+      exceededBudget = metrics.exceededBudget();
+    }
+  }
+}
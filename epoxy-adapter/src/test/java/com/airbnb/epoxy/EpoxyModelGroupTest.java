@@ -0,0 +1,325 @@
+package com.airbnb.epoxy;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewStub;
+import android.widget.LinearLayout;
+
+import com.airbnb.viewmodeladapter.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class EpoxyModelGroupTest {
+  private static final int GROUP_LAYOUT = R.layout.epoxy_model_group_vertical;
+  private static final int OTHER_GROUP_LAYOUT = R.layout.epoxy_model_group_horizontal;
+  private static final int LAYOUT_1 = R.layout.view_holder_empty_view;
+  private static final int LAYOUT_2 = R.layout.epoxy_model_group_horizontal;
+
+  @Test
+  public void groupsWithTheSameLayoutsShareAViewType() {
+    EpoxyModelGroup group = group(GROUP_LAYOUT, model(LAYOUT_1), model(LAYOUT_2));
+    EpoxyModelGroup sameLayouts = group(GROUP_LAYOUT, model(LAYOUT_1), model(LAYOUT_2));
+
+    assertEquals(group.getViewType(), sameLayouts.getViewType());
+    assertTrue(group.getViewType() < RecyclerView.INVALID_TYPE);
+  }
+
+  @Test
+  public void viewTypeDependsOnTheLayoutsOfTheModels() {
+    int viewType = group(GROUP_LAYOUT, model(LAYOUT_1), model(LAYOUT_2)).getViewType();
+
+    assertNotEquals(viewType,
+        group(OTHER_GROUP_LAYOUT, model(LAYOUT_1), model(LAYOUT_2)).getViewType());
+    assertNotEquals(viewType, group(GROUP_LAYOUT, model(LAYOUT_2), model(LAYOUT_1)).getViewType());
+    assertNotEquals(viewType, group(GROUP_LAYOUT, model(LAYOUT_1)).getViewType());
+    assertNotEquals(viewType,
+        group(GROUP_LAYOUT, model(LAYOUT_1), model(LAYOUT_2), model(LAYOUT_2)).getViewType());
+  }
+
+  @Test
+  public void nestedGroupsAreComparedByTheirViewType() {
+    EpoxyModelGroup nested = group(GROUP_LAYOUT, model(LAYOUT_1));
+    EpoxyModelGroup otherNested = group(GROUP_LAYOUT, model(LAYOUT_2));
+
+    assertNotEquals(group(GROUP_LAYOUT, nested).getViewType(),
+        group(GROUP_LAYOUT, otherNested).getViewType());
+  }
+
+  @Test
+  public void changingTheLayoutChangesTheViewType() {
+    EpoxyModelGroup group = group(GROUP_LAYOUT, model(LAYOUT_1));
+    int viewType = group.getViewType();
+    group.layout(OTHER_GROUP_LAYOUT);
+
+    assertNotEquals(viewType, group.getViewType());
+    assertEquals(group(OTHER_GROUP_LAYOUT, model(LAYOUT_1)).getViewType(), group.getViewType());
+  }
+
+  @Test
+  public void adapterInflatesTheGroupLayoutForTheViewType() {
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    EpoxyModelGroup group = group(GROUP_LAYOUT, model(LAYOUT_1));
+    adapter.addModels(model(GROUP_LAYOUT), group);
+
+    assertEquals(GROUP_LAYOUT, adapter.getItemViewType(0));
+    assertEquals(group.getViewType(), adapter.getItemViewType(1));
+    assertEquals(GROUP_LAYOUT, ModelGroupViewTypes.getLayout(group.getViewType()));
+    assertEquals(LAYOUT_1, ModelGroupViewTypes.getLayout(LAYOUT_1));
+
+    RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.application);
+    EpoxyViewHolder holder = adapter.createViewHolder(recyclerView, adapter.getItemViewType(1));
+    assertEquals(group.getViewType(), holder.getItemViewType());
+  }
+
+  @Test
+  public void onlyChangedModelsAreBoundAgain() {
+    CountingModel image = new CountingModel();
+    CountingModel price = new CountingModel();
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    adapter.enableDiffing();
+    adapter.addModels(group(GROUP_LAYOUT, image, price));
+    EpoxyViewHolder holder = bind(adapter);
+
+    CountingModel changedPrice = price.changedCopy();
+    adapter.getModels().set(0, group(GROUP_LAYOUT, image, changedPrice));
+    adapter.notifyModelsChanged();
+    adapter.bindViewHolder(holder, 0);
+
+    assertEquals(1, image.bindCount);
+    assertEquals(1, price.bindCount);
+    assertEquals(1, changedPrice.bindCount);
+  }
+
+  @Test
+  public void onlyChangedModelsAreBoundWithPayloads() {
+    CountingModel image = new CountingModel();
+    CountingModel price = new CountingModel();
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    adapter.enableDiffing();
+    adapter.addModels(group(GROUP_LAYOUT, image, price));
+    EpoxyViewHolder holder = bind(adapter);
+
+    CountingModel changedPrice = price.changedCopy();
+    adapter.getModels().set(0, group(GROUP_LAYOUT, image, changedPrice));
+    adapter.notifyModelsChanged();
+    adapter.onBindViewHolder(holder, 0, Collections.<Object>singletonList("payload"));
+
+    assertEquals(1, image.bindCount);
+    assertEquals(0, image.payloadBindCount);
+    assertEquals(1, changedPrice.payloadBindCount);
+  }
+
+  @Test
+  public void modelsThatWereNotBoundAgainAreNotUnbound() {
+    CountingModel image = new CountingModel();
+    image.value(1);
+    CountingModel price = new CountingModel();
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    adapter.enableDiffing();
+    adapter.addModels(group(GROUP_LAYOUT, image, price));
+    EpoxyViewHolder holder = bind(adapter);
+
+    CountingModel sameImage = new CountingModel();
+    sameImage.id(image.id());
+    sameImage.value(1);
+    CountingModel changedPrice = price.changedCopy();
+    adapter.getModels().set(0, group(GROUP_LAYOUT, sameImage, changedPrice));
+    adapter.notifyModelsChanged();
+    adapter.bindViewHolder(holder, 0);
+    adapter.onViewRecycled(holder);
+
+    assertEquals(0, sameImage.bindCount);
+    assertEquals(0, sameImage.unbindCount);
+    assertEquals(1, image.unbindCount);
+    assertEquals(0, price.unbindCount);
+    assertEquals(1, changedPrice.unbindCount);
+  }
+
+  @Test
+  public void bindingDoesNotComputeHashCodes() {
+    CountingModel image = new CountingModel();
+    CountingModel price = new CountingModel();
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    adapter.addModels(group(GROUP_LAYOUT, image, price));
+    EpoxyViewHolder holder = bind(adapter);
+    adapter.onViewRecycled(holder);
+    adapter.bindViewHolder(holder, 0);
+
+    assertEquals(0, image.hashCodeCount);
+    assertEquals(0, price.hashCodeCount);
+  }
+
+  @Test
+  public void explicitRebindBindsAllModels() {
+    CountingModel image = new CountingModel();
+    CountingModel price = new CountingModel();
+    EpoxyModelGroup group = group(GROUP_LAYOUT, image, price);
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    adapter.enableDiffing();
+    adapter.addModels(group);
+    EpoxyViewHolder holder = bind(adapter);
+
+    // The listener is left out of the hash code, so only an explicit rebind can update it
+    Object clickListener = new Object();
+    price.clickListener = clickListener;
+    adapter.notifyModelChanged(group);
+    adapter.bindViewHolder(holder, 0);
+
+    assertEquals(2, image.bindCount);
+    assertEquals(2, price.bindCount);
+    assertSame(clickListener, price.boundClickListener);
+  }
+
+  @Test
+  public void allModelsAreBoundAfterRecycling() {
+    CountingModel image = new CountingModel();
+    CountingModel price = new CountingModel();
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    adapter.addModels(group(GROUP_LAYOUT, image, price));
+    EpoxyViewHolder holder = bind(adapter);
+
+    adapter.onViewRecycled(holder);
+    adapter.bindViewHolder(holder, 0);
+
+    assertEquals(2, image.bindCount);
+    assertEquals(2, price.bindCount);
+  }
+
+  @Test
+  public void modelsUseStubsInLayoutOrder() {
+    LinearLayout layout = new LinearLayout(RuntimeEnvironment.application);
+    CountingModel[] models = new CountingModel[8];
+    for (int i = 0; i < models.length; i++) {
+      models[i] = new CountingModel();
+      layout.addView(stub(0, i));
+    }
+
+    bindGroup(layout, group(GROUP_LAYOUT, models));
+    for (int i = 0; i < models.length; i++) {
+      assertEquals(i, models[i].boundView.getId());
+    }
+  }
+
+  @Test
+  public void stubIdsTakePrecedenceOverOrder() {
+    LinearLayout layout = new LinearLayout(RuntimeEnvironment.application);
+    layout.addView(stub(R.id.epoxy_model_group_view_stub_2, 1));
+    layout.addView(stub(R.id.epoxy_model_group_view_stub_1, 0));
+    layout.addView(stub(0, 2));
+    CountingModel[] models = {new CountingModel(), new CountingModel(), new CountingModel()};
+
+    bindGroup(layout, group(GROUP_LAYOUT, models));
+    for (int i = 0; i < models.length; i++) {
+      assertEquals(i, models[i].boundView.getId());
+    }
+  }
+
+  @Test
+  public void stubsWithIdsAreNotUsedByOtherModels() {
+    LinearLayout layout = new LinearLayout(RuntimeEnvironment.application);
+    layout.addView(stub(R.id.epoxy_model_group_view_stub_2, 1));
+    layout.addView(stub(0, 0));
+    CountingModel[] models = {new CountingModel(), new CountingModel()};
+
+    bindGroup(layout, group(GROUP_LAYOUT, models));
+    for (int i = 0; i < models.length; i++) {
+      assertEquals(i, models[i].boundView.getId());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void eachModelNeedsAStub() {
+    LinearLayout layout = new LinearLayout(RuntimeEnvironment.application);
+    layout.addView(stub(0, 0));
+
+    bindGroup(layout, group(GROUP_LAYOUT, new CountingModel(), new CountingModel()));
+  }
+
+  /** Creates a stub with the given id, which inflates a view with the given id. */
+  private static ViewStub stub(int id, int inflatedId) {
+    ViewStub stub = new ViewStub(RuntimeEnvironment.application);
+    if (id != 0) {
+      stub.setId(id);
+    }
+    stub.setInflatedId(inflatedId);
+    return stub;
+  }
+
+  private static void bindGroup(View view, EpoxyModelGroup group) {
+    EpoxyModelGroup.Holder holder = group.createNewHolder();
+    holder.bindView(view);
+    group.bind(holder);
+  }
+
+  private static EpoxyViewHolder bind(EpoxyAdapter adapter) {
+    RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.application);
+    EpoxyViewHolder holder = adapter.createViewHolder(recyclerView, adapter.getItemViewType(0));
+    adapter.bindViewHolder(holder, 0);
+    return holder;
+  }
+
+  private static EpoxyModelGroup group(int layout, EpoxyModel... models) {
+    return new EpoxyModelGroup(layout, models);
+  }
+
+  private static EpoxyModel model(int layout) {
+    return new TestModel().layout(layout);
+  }
+
+  private static class CountingModel extends TestModel {
+    int bindCount;
+    int payloadBindCount;
+    int unbindCount;
+    int hashCodeCount;
+    View boundView;
+    /** Not part of the hash code, like an attribute declared with hash = false. */
+    Object clickListener;
+    Object boundClickListener;
+
+    CountingModel() {
+      layout(LAYOUT_1);
+    }
+
+    CountingModel changedCopy() {
+      CountingModel copy = new CountingModel();
+      copy.id(id());
+      return copy;
+    }
+
+    @Override
+    public void bind(View view) {
+      bindCount++;
+      boundView = view;
+      boundClickListener = clickListener;
+    }
+
+    @Override
+    public void bind(View view, List<Object> payloads) {
+      payloadBindCount++;
+    }
+
+    @Override
+    public void unbind(View view) {
+      unbindCount++;
+    }
+
+    @Override
+    public int hashCode() {
+      hashCodeCount++;
+      return super.hashCode();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests {@link EpoxyAdapter#enableHiddenModelSkipping()}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class HiddenModelSkippingTest {
+  private final SkippingAdapter adapter = new SkippingAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private final TestObserver observer = new TestObserver();
+
+  @Before
+  public void setUp() {
+    for (int i = 0; i < 10; i++) {
+      adapter.addModel(new TestModel().show(i % 2 == 0));
+    }
+    adapter.registerAdapterDataObserver(observer);
+    observer.setUpForNextDiff(shownModels());
+  }
+
+  @Test
+  public void onlyShownModelsAreItems() {
+    assertEquals(5, adapter.getItemCount());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(models.get(i * 2).id(), adapter.getItemId(i));
+      assertEquals(models.get(i * 2).getLayout(), adapter.getItemViewType(i));
+    }
+  }
+
+  @Test
+  public void hidingRemovesTheItem() {
+    adapter.hideModel(models.get(4));
+
+    assertEquals(4, adapter.getItemCount());
+    assertEquals(1, observer.operationCount);
+    checkItems();
+  }
+
+  @Test
+  public void showingInsertsTheItem() {
+    adapter.showModel(models.get(3));
+
+    assertEquals(6, adapter.getItemCount());
+    assertEquals(1, observer.operationCount);
+    checkItems();
+  }
+
+  @Test
+  public void changingAHiddenModelIsNotNotified() {
+    adapter.notifyModelChanged(models.get(1));
+    adapter.notifyModelChanged(models.get(2));
+
+    assertEquals(1, observer.operationCount);
+    assertTrue(observer.modelsAfterDiffing.get(1).updated);
+  }
+
+  @Test
+  public void showingManyModelsInABatch() {
+    adapter.beginUpdate();
+    adapter.showModels(models);
+    adapter.endUpdate();
+
+    assertEquals(10, adapter.getItemCount());
+    checkItems();
+  }
+
+  @Test
+  public void hidingManyModelsInABatchIsOneRemoval() {
+    adapter.beginUpdate();
+    adapter.hideAllAfterModel(models.get(1));
+    adapter.endUpdate();
+
+    assertEquals(1, adapter.getItemCount());
+    assertEquals(1, observer.operationCount);
+    checkItems();
+  }
+
+  @Test
+  public void isEmptyWhenAllModelsAreHidden() {
+    adapter.hideAllAfterModel(models.get(0));
+    assertFalse(adapter.isEmpty());
+
+    adapter.hideModel(models.get(0));
+    assertTrue(adapter.isEmpty());
+  }
+
+  @Test
+  public void insertionsAndRemovalsUseAdapterPositions() {
+    adapter.insertModelBefore(new TestModel(), models.get(5));
+    adapter.insertModelAfter(new TestModel().hide(), models.get(0));
+    adapter.removeModel(models.get(8));
+    adapter.removeModel(models.get(3));
+    adapter.addModels(new TestModel().hide(), new TestModel(), new TestModel());
+    checkItems();
+
+    adapter.removeAllAfterModel(models.get(6));
+    checkItems();
+
+    adapter.removeAllModels();
+    assertEquals(0, adapter.getItemCount());
+    checkItems();
+  }
+
+  @Test
+  public void notifyDataSetChangedRebuildsTheIndex() {
+    models.get(1).show();
+    models.remove(0);
+    adapter.notifyDataSetChanged();
+
+    List<TestModel> shownModels = shownModels();
+    assertEquals(shownModels.size(), adapter.getItemCount());
+    for (int i = 0; i < shownModels.size(); i++) {
+      assertEquals(shownModels.get(i).id(), adapter.getItemId(i));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void diffingCannotBeEnabled() {
+    adapter.enableDiffing();
+  }
+
+  /** Checks that the notified items are the shown models, in order. */
+  private void checkItems() {
+    List<TestModel> shownModels = shownModels();
+    assertEquals(shownModels.size(), observer.modelsAfterDiffing.size());
+    for (int i = 0; i < shownModels.size(); i++) {
+      TestModel model = observer.modelsAfterDiffing.get(i);
+      assertTrue(model == InsertedModel.INSTANCE || model == shownModels.get(i));
+      assertEquals(shownModels.get(i).id(), adapter.getItemId(i));
+    }
+  }
+
+  private List<TestModel> shownModels() {
+    List<TestModel> shownModels = new ArrayList<>();
+    for (EpoxyModel<?> model : models) {
+      if (model.isShown()) {
+        shownModels.add((TestModel) model);
+      }
+    }
+    return shownModels;
+  }
+
+  private static class SkippingAdapter extends EpoxyAdapter {
+    SkippingAdapter() {
+      enableHiddenModelSkipping();
+    }
+  }
+}
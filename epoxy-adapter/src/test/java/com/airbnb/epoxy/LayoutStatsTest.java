@@ -0,0 +1,151 @@
+package com.airbnb.epoxy;
+
+import android.app.Activity;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.RecyclerView.RecycledViewPool;
+
+import com.airbnb.viewmodeladapter.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests {@link EpoxyAdapter#getLayoutStats()} and {@link EpoxyAdapter#enableViewPoolSizing()}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class LayoutStatsTest {
+  private static final int ITEM_LAYOUT = R.layout.view_holder_empty_view;
+  private static final int HEADER_LAYOUT = R.layout.epoxy_model_group_vertical;
+
+  private final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+  private final RecyclerView recyclerView = new RecyclerView(activity);
+  private final SimpleEpoxyAdapter adapter = createAdapter();
+
+  @Test
+  public void holdersAreCountedPerLayout() {
+    EpoxyViewHolder header = bind(adapter, 0);
+    EpoxyViewHolder firstItem = bind(adapter, 1);
+    bind(adapter, 2);
+    bind(adapter, 3);
+    adapter.onViewRecycled(firstItem);
+    adapter.bindViewHolder(firstItem, 4);
+    adapter.bindViewHolder(header, 0);
+
+    assertStats(adapter, HEADER_LAYOUT, 1, 0, 1, 1);
+    assertStats(adapter, ITEM_LAYOUT, 3, 1, 3, 3);
+
+    adapter.onViewRecycled(firstItem);
+    assertStats(adapter, ITEM_LAYOUT, 3, 2, 2, 3);
+  }
+
+  @Test
+  public void groupsAreCountedByViewType() {
+    adapter.addModels(new EpoxyModelGroup(HEADER_LAYOUT, new TestModel().layout(ITEM_LAYOUT),
+        new TestModel().layout(ITEM_LAYOUT)));
+    int groupPosition = adapter.getItemCount() - 1;
+    int groupViewType = adapter.getItemViewType(groupPosition);
+    bind(adapter, 0);
+    bind(adapter, groupPosition);
+
+    assertStats(adapter, HEADER_LAYOUT, 1, 0, 1, 1);
+    assertStats(adapter, groupViewType, 1, 0, 1, 1);
+    assertEquals(HEADER_LAYOUT, getStats(adapter, groupViewType).getLayout());
+  }
+
+  @Test
+  public void poolsAreSizedToThePeakBoundCount() {
+    adapter.enableViewPoolSizing();
+    adapter.onAttachedToRecyclerView(recyclerView);
+    for (int i = 0; i <= 8; i++) {
+      bind(adapter, i);
+    }
+
+    RecycledViewPool pool = recyclerView.getRecycledViewPool();
+    fillPool(pool, ITEM_LAYOUT);
+    fillPool(pool, HEADER_LAYOUT);
+    assertEquals(8, pooledCount(pool, ITEM_LAYOUT));
+    assertEquals(1, pooledCount(pool, HEADER_LAYOUT));
+  }
+
+  @Test
+  public void sharedPoolsUseTheLargestSizeOfTheirAdapters() {
+    SharedRecycledViewPool pool = SharedRecycledViewPool.get(activity);
+    pool.setMaxRecycledViews(HEADER_LAYOUT, 3);
+    recyclerView.setRecycledViewPool(pool);
+    adapter.enableViewPoolSizing();
+    adapter.onAttachedToRecyclerView(recyclerView);
+
+    RecyclerView otherRecyclerView = new RecyclerView(activity);
+    otherRecyclerView.setRecycledViewPool(pool);
+    SimpleEpoxyAdapter otherAdapter = createAdapter();
+    otherAdapter.enableViewPoolSizing();
+    otherAdapter.onAttachedToRecyclerView(otherRecyclerView);
+
+    for (int i = 0; i <= 7; i++) {
+      bind(adapter, i);
+    }
+    for (int i = 0; i <= 2; i++) {
+      bind(otherAdapter, i);
+    }
+
+    fillPool(pool, ITEM_LAYOUT);
+    fillPool(pool, HEADER_LAYOUT);
+    assertEquals(7, pooledCount(pool, ITEM_LAYOUT));
+    assertEquals(3, pooledCount(pool, HEADER_LAYOUT));
+  }
+
+  private SimpleEpoxyAdapter createAdapter() {
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    adapter.addModels(new TestModel().layout(HEADER_LAYOUT));
+    for (int i = 0; i < 20; i++) {
+      adapter.addModels(new TestModel().layout(ITEM_LAYOUT));
+    }
+    return adapter;
+  }
+
+  private EpoxyViewHolder bind(EpoxyAdapter adapter, int position) {
+    EpoxyViewHolder holder =
+        adapter.createViewHolder(recyclerView, adapter.getItemViewType(position));
+    adapter.bindViewHolder(holder, position);
+    return holder;
+  }
+
+  private void fillPool(RecycledViewPool pool, int layout) {
+    for (int i = 0; i < 20; i++) {
+      pool.putRecycledView(adapter.createViewHolder(recyclerView, layout));
+    }
+  }
+
+  /** Empties the pool of the given layout, returning how many views it had. */
+  private static int pooledCount(RecycledViewPool pool, int layout) {
+    int count = 0;
+    while (pool.getRecycledView(layout) != null) {
+      count++;
+    }
+    return count;
+  }
+
+  private static void assertStats(EpoxyAdapter adapter, int viewType, int created, int recycled,
+      int bound, int peakBound) {
+    LayoutStats stats = getStats(adapter, viewType);
+    assertEquals(created, stats.getCreatedCount());
+    assertEquals(recycled, stats.getRecycledCount());
+    assertEquals(bound, stats.getBoundCount());
+    assertEquals(peakBound, stats.getPeakBoundCount());
+  }
+
+  private static LayoutStats getStats(EpoxyAdapter adapter, int viewType) {
+    List<LayoutStats> allStats = adapter.getLayoutStats();
+    for (LayoutStats stats : allStats) {
+      if (stats.getViewType() == viewType) {
+        return stats;
+      }
+    }
+    throw new AssertionError("No stats for view type " + viewType);
+  }
+}
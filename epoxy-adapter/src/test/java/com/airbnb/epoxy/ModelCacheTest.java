@@ -0,0 +1,74 @@
+package com.airbnb.epoxy;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class ModelCacheTest {
+  private final ModelCache cache = new ModelCache(2);
+  private final TestModel first = new TestModel();
+  private final TestModel second = new TestModel();
+  private final TestModel third = new TestModel();
+
+  @Test
+  public void getReturnsModelForMatchingHashCode() {
+    cache.put(1, 10, first);
+
+    assertSame(first, cache.get(1, 10));
+    assertNull(cache.get(1, 11));
+    assertNull(cache.get(2, 10));
+  }
+
+  @Test
+  public void putReplacesModelWithSameId() {
+    cache.put(1, 10, first);
+    cache.put(1, 11, second);
+
+    assertSame(second, cache.get(1, 11));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void leastRecentlyUsedIsEvicted() {
+    cache.put(1, 10, first);
+    cache.put(2, 20, second);
+    cache.get(1, 10);
+    cache.put(3, 30, third);
+
+    assertSame(first, cache.get(1, 10));
+    assertNull(cache.get(2, 20));
+    assertSame(third, cache.get(3, 30));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void evictsInOrderOfInsertion() {
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i, first);
+      assertSame(first, cache.get(i, i));
+      if (i > 1) {
+        assertNull(cache.get(i - 2, i - 2));
+      }
+    }
+  }
+
+  @Test
+  public void clear() {
+    cache.put(1, 10, first);
+    cache.clear();
+
+    assertNull(cache.get(1, 10));
+    assertEquals(0, cache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void sizeMustBePositive() {
+    new ModelCache(0);
+  }
+}
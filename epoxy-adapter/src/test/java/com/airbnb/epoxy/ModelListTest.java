@@ -6,6 +6,8 @@ import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -37,8 +39,24 @@ public class ModelListTest {
   public void testSet() {
     modelList.set(0, new TestModel());
 
-    verify(observer).onItemRangeRemoved(0, 1);
-    verify(observer).onItemRangeInserted(0, 1);
+    verify(observer).onItemRangeReplaced(0, 1);
+    verifyNoMoreInteractions(observer);
+  }
+
+  @Test
+  public void testSortIsSingleReplacement() {
+    Collections.sort(modelList, new Comparator<EpoxyModel<?>>() {
+      @Override
+      public int compare(EpoxyModel<?> first, EpoxyModel<?> second) {
+        return Long.compare(first.id(), second.id());
+      }
+    });
+
+    for (int i = 1; i < modelList.size(); i++) {
+      assertTrue(modelList.get(i - 1).id() < modelList.get(i).id());
+    }
+    verify(observer).onItemRangeReplaced(0, 3);
+    verifyNoMoreInteractions(observer);
   }
 
   @Test
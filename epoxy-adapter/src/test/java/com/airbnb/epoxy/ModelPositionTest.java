@@ -0,0 +1,146 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static com.airbnb.epoxy.ModelTestUtils.addModels;
+import static com.airbnb.epoxy.ModelTestUtils.convertToTestModels;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests the index of model positions kept by {@link ModelList}, and the adapter methods on it. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class ModelPositionTest {
+  private final TestAdapter adapter = new TestAdapter();
+  private final ModelList models = (ModelList) adapter.models;
+  private final TestObserver observer = new TestObserver();
+
+  @Before
+  public void setUp() {
+    addModels(20, models);
+    adapter.notifyModelsChanged();
+    adapter.registerAdapterDataObserver(observer);
+    observer.setUpForNextDiff(convertToTestModels(models));
+  }
+
+  @Test
+  public void positionsFollowChangesToTheList() {
+    Random random = new Random(3);
+    for (int i = 0; i < 500; i++) {
+      changeRandomly(random);
+      checkPositions();
+    }
+  }
+
+  @Test
+  public void missingModelsAreNotFound() {
+    TestModel removed = (TestModel) models.remove(4);
+
+    assertEquals(-1, models.indexOfModel(removed));
+    assertEquals(-1, models.indexOfId(removed.id()));
+    assertEquals(-1, models.indexOfModel(new TestModel()));
+  }
+
+  @Test
+  public void modelIsFoundWhenAnotherHasTheSameId() {
+    TestModel copy = ((TestModel) models.get(8)).clone();
+    models.add(2, copy);
+
+    assertEquals(2, models.indexOfModel(copy));
+    assertEquals(9, models.indexOfModel(models.get(9)));
+  }
+
+  @Test
+  public void modelIsFoundAfterItsIdChanges() {
+    SimpleEpoxyAdapter adapter = new SimpleEpoxyAdapter();
+    TestModel model = new TestModel();
+    adapter.addModels(new TestModel(), model, new TestModel());
+    assertEquals(1, adapter.getModelPositionById(model.id()));
+
+    // Without diffing a model's id can be changed after it is added
+    long previousId = model.id();
+    model.id(previousId + 1);
+    assertEquals(1, adapter.getModelPositionById(model.id()));
+    assertEquals(-1, adapter.getModelPositionById(previousId));
+
+    adapter.removeModelById(model.id());
+    assertEquals(2, adapter.getModels().size());
+  }
+
+  @Test
+  public void notifyModelChangedById() {
+    adapter.notifyModelChanged(models.get(6).id());
+
+    assertEquals(1, observer.operationCount);
+    assertTrue(observer.modelsAfterDiffing.get(6).updated);
+  }
+
+  @Test
+  public void notifyModelChangedByMissingIdDoesNothing() {
+    adapter.notifyModelChanged(new TestModel().id());
+
+    assertEquals(0, observer.operationCount);
+  }
+
+  @Test
+  public void removeModelById() {
+    EpoxyModel<?> model = models.get(11);
+    adapter.removeModelById(model.id());
+
+    assertEquals(19, models.size());
+    assertEquals(-1, adapter.getModelPosition(model));
+    assertEquals(19, observer.modelsAfterDiffing.size());
+    assertTrue(observer.modelsAfterDiffing.get(11) == models.get(11));
+
+    adapter.notifyModelsChanged();
+    assertEquals(1, observer.operationCount);
+  }
+
+  private void changeRandomly(Random random) {
+    int size = models.size();
+    switch (random.nextInt(7)) {
+      case 0:
+        addModels(random.nextInt(3) + 1, models, random.nextInt(size + 1));
+        break;
+      case 1:
+        models.add(new TestModel());
+        break;
+      case 2:
+        if (size > 0) {
+          models.remove(random.nextInt(size));
+        }
+        break;
+      case 3:
+        int start = random.nextInt(size + 1);
+        models.subList(start, Math.min(size, start + random.nextInt(4))).clear();
+        break;
+      case 4:
+        if (size > 0) {
+          models.set(random.nextInt(size), new TestModel());
+        }
+        break;
+      case 5:
+        Collections.shuffle(models, random);
+        break;
+      default:
+        if (size > 1) {
+          Collections.swap(models, random.nextInt(size), random.nextInt(size));
+        }
+        break;
+    }
+  }
+
+  private void checkPositions() {
+    for (int i = 0; i < models.size(); i++) {
+      EpoxyModel<?> model = models.get(i);
+      assertEquals(i, models.indexOfModel(model));
+      assertEquals(i, models.indexOfId(model.id()));
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package com.airbnb.epoxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.airbnb.epoxy.ModelTestUtils.addModels;
+import static org.junit.Assert.assertEquals;
+
+/** Tests {@link EpoxyAdapter#setModelProvider(ModelProvider, int)}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class ModelProviderTest {
+  private static final int CACHE_SIZE = 3;
+
+  private final TestProvider provider = new TestProvider();
+  private final List<TestModel> items = provider.items;
+  private final TestObserver observer = new TestObserver();
+  private LazyAdapter adapter;
+
+  @Before
+  public void setUp() {
+    addModels(20, items);
+    adapter = new LazyAdapter(provider);
+    adapter.registerAdapterDataObserver(observer);
+    observer.setUpForNextDiff(items);
+  }
+
+  @Test
+  public void countAndIdsDoNotBuildModels() {
+    assertEquals(20, adapter.getItemCount());
+    for (int i = 0; i < items.size(); i++) {
+      assertEquals(items.get(i).id(), adapter.getItemId(i));
+    }
+
+    assertEquals(0, provider.buildCount);
+  }
+
+  @Test
+  public void modelsAreBuiltOnDemandAndCached() {
+    adapter.getItemViewType(5);
+    assertEquals(1, provider.buildCount);
+
+    adapter.getItemViewType(5);
+    assertEquals(1, provider.buildCount);
+  }
+
+  @Test
+  public void leastRecentlyUsedModelIsEvicted() {
+    adapter.getItemViewType(0);
+    adapter.getItemViewType(1);
+    adapter.getItemViewType(2);
+    adapter.getItemViewType(0);
+    adapter.getItemViewType(3);
+    assertEquals(4, provider.buildCount);
+
+    // 1 was the least recently used when 3 was added
+    adapter.getItemViewType(0);
+    assertEquals(4, provider.buildCount);
+    adapter.getItemViewType(1);
+    assertEquals(5, provider.buildCount);
+  }
+
+  @Test
+  public void changedModelIsRebuilt() {
+    adapter.getItemViewType(2);
+    items.set(2, items.get(2).clone().randomizeValue());
+    adapter.notifyModelsChanged();
+
+    adapter.getItemViewType(2);
+    assertEquals(2, provider.buildCount);
+  }
+
+  @Test
+  public void movedModelStaysCached() {
+    adapter.getItemViewType(0);
+    items.add(items.remove(0));
+    adapter.notifyModelsChanged();
+
+    adapter.getItemViewType(19);
+    assertEquals(1, provider.buildCount);
+  }
+
+  @Test
+  public void diffNotifiesChanges() {
+    items.remove(3);
+    items.add(7, items.remove(10));
+    items.set(4, items.get(4).clone().randomizeValue());
+    addModels(2, items, 12);
+    adapter.notifyModelsChanged();
+
+    assertEquals(items.size(), adapter.getItemCount());
+    assertEquals(items.size(), observer.modelsAfterDiffing.size());
+    for (int i = 0; i < items.size(); i++) {
+      TestModel model = observer.modelsAfterDiffing.get(i);
+      if (model != InsertedModel.INSTANCE) {
+        assertEquals(items.get(i).id(), model.id());
+        assertEquals(items.get(i).hashCode() != model.hashCode(), model.updated);
+      }
+    }
+
+    assertEquals(0, provider.buildCount);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void providerMustMatchNotifiedItems() {
+    addModels(1, items, 0);
+    adapter.getItemViewType(0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void diffingCannotBeEnabled() {
+    adapter.enableDiffing();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void asyncDiffIsNotSupported() {
+    adapter.notifyModelsChangedAsync();
+  }
+
+  private static class LazyAdapter extends EpoxyAdapter {
+    LazyAdapter(ModelProvider provider) {
+      setModelProvider(provider, CACHE_SIZE);
+    }
+  }
+
+  /** Builds copies of its items, and counts how many times it did. */
+  private static class TestProvider implements ModelProvider {
+    final List<TestModel> items = new ArrayList<>();
+    int buildCount;
+
+    @Override
+    public int getCount() {
+      return items.size();
+    }
+
+    @Override
+    public long idAt(int position) {
+      return items.get(position).id();
+    }
+
+    @Override
+    public int hashCodeAt(int position) {
+      return items.get(position).hashCode();
+    }
+
+    @Override
+    public EpoxyModel<?> buildAt(int position) {
+      buildCount++;
+      return items.get(position).clone();
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package com.airbnb.epoxy;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class ModelStateListTest {
+
+  private final ModelStateList stateList = new ModelStateList();
+  private final List<TestModel> models = new ArrayList<>();
+
+  @Test
+  public void addDetectsDuplicateIds() {
+    TestModel model = new TestModel();
+    assertEquals(-1, stateList.add(model, model.hashCode()));
+    assertEquals(0, stateList.add(new TestModel().id(model.id()), 0));
+  }
+
+  @Test
+  public void growsPastInitialCapacity() {
+    addModels(0, 100);
+    assertMatchesModels();
+  }
+
+  @Test
+  public void insertRange() {
+    addModels(0, 10);
+    addModels(4, 3);
+    assertMatchesModels();
+  }
+
+  @Test
+  public void removeRange() {
+    addModels(0, 10);
+    TestModel lastModel = models.get(9);
+
+    stateList.removeRange(2, 5);
+    models.subList(2, 7).clear();
+
+    assertMatchesModels();
+    assertEquals(-1, stateList.indexOf(new TestModel().id()));
+    // The removed slots no longer hold on to models
+    assertNull(stateList.models[5]);
+    assertSame(lastModel, stateList.models[4]);
+  }
+
+  @Test
+  public void removingAGapKeepsTheOtherIds() {
+    addModels(0, 3);
+    TestModel lastModel = models.get(2);
+
+    stateList.removeRange(1, 1);
+    stateList.insertRange(2, 1);
+    stateList.removeRange(2, 1);
+
+    assertEquals(1, stateList.indexOf(lastModel.id()));
+  }
+
+  @Test
+  public void move() {
+    addModels(0, 10);
+
+    stateList.move(1, 7);
+    models.add(7, models.remove(1));
+    assertMatchesModels();
+
+    stateList.move(8, 0);
+    models.add(0, models.remove(8));
+    assertMatchesModels();
+  }
+
+  @Test
+  public void copyFrom() {
+    addModels(0, 10);
+    stateList.pairs[3] = 5;
+
+    ModelStateList copy = new ModelStateList();
+    copy.copyFrom(stateList);
+
+    assertEquals(10, copy.size());
+    for (int i = 0; i < models.size(); i++) {
+      assertEquals(models.get(i).id(), copy.ids[i]);
+      assertEquals(i, copy.indexOf(models.get(i).id()));
+      assertEquals(-1, copy.pairs[i]);
+    }
+  }
+
+  @Test
+  public void insertRangeLeavesEmptyGap() {
+    addModels(0, 10);
+    stateList.insertRange(3, 2);
+
+    assertNull(stateList.models[3]);
+    assertNull(stateList.models[4]);
+  }
+
+  @Test
+  public void permute() {
+    addModels(0, 50);
+    List<TestModel> previousModels = new ArrayList<>(models);
+    Collections.shuffle(models, new Random(3));
+
+    int[] targets = new int[models.size()];
+    for (int i = 0; i < previousModels.size(); i++) {
+      targets[i] = models.indexOf(previousModels.get(i));
+    }
+
+    stateList.permute(targets);
+    assertMatchesModels();
+    for (int i = 0; i < models.size(); i++) {
+      assertEquals(-1, stateList.pairs[i]);
+    }
+  }
+
+  @Test
+  public void clearKeepsListUsable() {
+    addModels(0, 10);
+    stateList.clear();
+    models.clear();
+
+    assertEquals(0, stateList.size());
+    addModels(0, 3);
+    assertMatchesModels();
+  }
+
+  private void addModels(int index, int count) {
+    stateList.insertRange(index, count);
+    for (int i = index; i < index + count; i++) {
+      TestModel model = new TestModel();
+      models.add(i, model);
+      assertEquals(-1, stateList.set(i, model, model.hashCode()));
+    }
+  }
+
+  private void assertMatchesModels() {
+    assertEquals(models.size(), stateList.size());
+    for (int i = 0; i < models.size(); i++) {
+      TestModel model = models.get(i);
+      assertEquals(model.id(), stateList.ids[i]);
+      assertEquals(model.hashCode(), stateList.hashCodes[i]);
+      assertSame(model, stateList.models[i]);
+      assertEquals(i, stateList.indexOf(model.id()));
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.airbnb.epoxy;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.RecyclerView.ViewHolder;
+
+import com.airbnb.viewmodeladapter.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ActivityController;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class SharedRecycledViewPoolTest {
+  private static final int LAYOUT = R.layout.view_holder_empty_view;
+  private static final int OTHER_LAYOUT = R.layout.epoxy_model_group_vertical;
+
+  private final ActivityController<Activity> activityController =
+      Robolectric.buildActivity(Activity.class).create();
+  private final Activity activity = activityController.get();
+  private final EpoxyAdapter adapter = new TestAdapter();
+
+  @Test
+  public void contextsOfAnActivityShareItsPool() {
+    SharedRecycledViewPool pool = SharedRecycledViewPool.get(activity);
+
+    assertSame(pool, SharedRecycledViewPool.get(new ContextWrapper(activity)));
+    assertNotSame(pool, SharedRecycledViewPool.get(activity.getApplicationContext()));
+  }
+
+  @Test
+  public void holdersAreSharedBetweenRecyclerViews() {
+    SharedRecycledViewPool pool = SharedRecycledViewPool.get(activity);
+    ViewHolder holder = createHolder(activity, LAYOUT);
+    pool.putRecycledView(holder);
+
+    assertSame(holder, pool.getRecycledView(LAYOUT));
+  }
+
+  @Test
+  public void viewsOfOtherActivitiesAreNotPooled() {
+    Activity otherActivity = Robolectric.buildActivity(Activity.class).create().get();
+    SharedRecycledViewPool pool = SharedRecycledViewPool.get(activity);
+    pool.putRecycledView(createHolder(otherActivity, LAYOUT));
+
+    assertEquals(0, pooledCount(pool, LAYOUT));
+  }
+
+  @Test
+  public void destroyingTheActivityDropsItsPool() {
+    SharedRecycledViewPool pool = SharedRecycledViewPool.get(activity);
+    pool.putRecycledView(createHolder(activity, LAYOUT));
+
+    activityController.destroy();
+    assertEquals(0, pooledCount(pool, LAYOUT));
+
+    pool.putRecycledView(createHolder(activity, LAYOUT));
+    assertEquals(0, pooledCount(pool, LAYOUT));
+    assertNotSame(pool, SharedRecycledViewPool.get(activity));
+  }
+
+  @Test
+  public void layoutsWithoutAMaxUseTheDefault() {
+    SharedRecycledViewPool pool = SharedRecycledViewPool.get(activity);
+    pool.setMaxRecycledViews(OTHER_LAYOUT, 1);
+    for (int i = 0; i < 10; i++) {
+      pool.putRecycledView(createHolder(activity, LAYOUT));
+      pool.putRecycledView(createHolder(activity, OTHER_LAYOUT));
+    }
+    assertEquals(5, pooledCount(pool, LAYOUT));
+    assertEquals(1, pooledCount(pool, OTHER_LAYOUT));
+
+    pool.setDefaultMaxRecycledViews(8);
+    for (int i = 0; i < 10; i++) {
+      pool.putRecycledView(createHolder(activity, LAYOUT));
+      pool.putRecycledView(createHolder(activity, OTHER_LAYOUT));
+    }
+    assertEquals(8, pooledCount(pool, LAYOUT));
+    assertEquals(1, pooledCount(pool, OTHER_LAYOUT));
+  }
+
+  private ViewHolder createHolder(Context context, int layout) {
+    return adapter.createViewHolder(new RecyclerView(context), layout);
+  }
+
+  /** Empties the pool of the given layout, returning how many views it had. */
+  private static int pooledCount(SharedRecycledViewPool pool, int layout) {
+    int count = 0;
+    while (pool.getRecycledView(layout) != null) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,191 @@
+package com.airbnb.epoxy;
+
+import android.support.v7.widget.GridLayoutManager.SpanSizeLookup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests {@link EpoxyAdapter#enableSpanSizeCaching()}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class SpanSizeCacheTest {
+  private static final int SPAN_COUNT = 4;
+
+  private final Random random = new Random(5);
+  private final CachingAdapter adapter = new CachingAdapter();
+  private final List<EpoxyModel<?>> models = adapter.models;
+  private int spanSizeCalls;
+
+  @Before
+  public void setUp() {
+    adapter.setSpanCount(SPAN_COUNT);
+    for (int i = 0; i < 30; i++) {
+      models.add(new SpanModel(random.nextInt(SPAN_COUNT) + 1));
+    }
+    adapter.notifyModelsChanged();
+  }
+
+  @Test
+  public void spanSizesAreOnlyComputedOnce() {
+    checkLookups();
+    int calls = spanSizeCalls;
+
+    checkLookups();
+    assertEquals(calls, spanSizeCalls);
+  }
+
+  @Test
+  public void onlyChangedModelsAreComputedAgain() {
+    checkLookups();
+    int calls = spanSizeCalls;
+
+    ((SpanModel) models.get(3)).spans = 1;
+    models.add(10, new SpanModel(2));
+    adapter.notifyModelsChanged();
+
+    checkLookups();
+    assertEquals(calls + 2, spanSizeCalls);
+  }
+
+  @Test
+  public void diffsAndHelpersKeepTheCacheInSync() {
+    for (int i = 0; i < 100; i++) {
+      changeRandomly();
+      checkLookups();
+    }
+  }
+
+  @Test
+  public void changingTheSpanCountClearsTheCache() {
+    checkLookups();
+    int calls = spanSizeCalls;
+
+    adapter.setSpanCount(SPAN_COUNT - 1);
+    checkLookups();
+    assertEquals(calls + models.size(), spanSizeCalls);
+  }
+
+  @Test
+  public void hiddenModelsAreLeftOutOfTheCache() {
+    SkippingCachingAdapter skippingAdapter = new SkippingCachingAdapter();
+    List<EpoxyModel<?>> skippingModels = skippingAdapter.models;
+    for (int i = 0; i < 20; i++) {
+      skippingAdapter.addModel(new SpanModel(random.nextInt(SPAN_COUNT) + 1).show(i % 3 != 0));
+    }
+    checkLookups(skippingAdapter, shownModels(skippingModels));
+
+    // The index of shown models is rebuilt by an observer that is called after the cache's
+    skippingModels.get(0).show();
+    skippingModels.get(3).show();
+    skippingModels.remove(1);
+    skippingAdapter.notifyDataSetChanged();
+    skippingAdapter.hideModel(skippingModels.get(4));
+    skippingAdapter.addModel(new SpanModel(2));
+    checkLookups(skippingAdapter, shownModels(skippingModels));
+  }
+
+  private void changeRandomly() {
+    switch (random.nextInt(4)) {
+      case 0:
+        models.add(random.nextInt(models.size() + 1), new SpanModel(random.nextInt(3) + 1));
+        adapter.notifyModelsChanged();
+        break;
+      case 1:
+        models.remove(random.nextInt(models.size()));
+        adapter.notifyModelsChanged();
+        break;
+      case 2:
+        Collections.swap(models, random.nextInt(models.size()), random.nextInt(models.size()));
+        ((SpanModel) models.get(random.nextInt(models.size()))).spans = random.nextInt(3) + 1;
+        adapter.notifyModelsChanged();
+        break;
+      default:
+        SpanModel model = (SpanModel) models.get(random.nextInt(models.size()));
+        model.spans = random.nextInt(3) + 1;
+        adapter.notifyModelChanged(model);
+        break;
+    }
+  }
+
+  private void checkLookups() {
+    checkLookups(adapter, models);
+  }
+
+  /** Compares the lookup with span sizes, span indexes, and groups computed from the models. */
+  private static void checkLookups(EpoxyAdapter adapter, List<EpoxyModel<?>> models) {
+    SpanSizeLookup lookup = adapter.getSpanSizeLookup();
+    int spanCount = adapter.getSpanCount();
+    assertEquals(models.size(), adapter.getItemCount());
+    int span = 0;
+    int group = 0;
+    for (int i = 0; i < models.size(); i++) {
+      int spanSize = Math.min(((SpanModel) models.get(i)).spans, spanCount);
+      if (span + spanSize > spanCount) {
+        span = 0;
+        group++;
+      }
+
+      assertEquals(spanSize, lookup.getSpanSize(i));
+      assertEquals(span, lookup.getSpanIndex(i, spanCount));
+      assertEquals(group, lookup.getSpanGroupIndex(i, spanCount));
+
+      span += spanSize;
+      if (span == spanCount) {
+        span = 0;
+        group++;
+      }
+    }
+  }
+
+  private static List<EpoxyModel<?>> shownModels(List<EpoxyModel<?>> models) {
+    List<EpoxyModel<?>> shownModels = new ArrayList<>();
+    for (EpoxyModel<?> model : models) {
+      if (model.isShown()) {
+        shownModels.add(model);
+      }
+    }
+    return shownModels;
+  }
+
+  private class SpanModel extends TestModel {
+    int spans;
+
+    SpanModel(int spans) {
+      this.spans = spans;
+    }
+
+    @Override
+    public int getSpanSize(int totalSpanCount, int position, int itemCount) {
+      spanSizeCalls++;
+      return Math.min(spans, totalSpanCount);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * super.hashCode() + spans;
+    }
+  }
+
+  private static class CachingAdapter extends TestAdapter {
+    CachingAdapter() {
+      enableSpanSizeCaching();
+    }
+  }
+
+  private static class SkippingCachingAdapter extends EpoxyAdapter {
+    SkippingCachingAdapter() {
+      enableHiddenModelSkipping();
+      enableSpanSizeCaching();
+      setSpanCount(SPAN_COUNT);
+    }
+  }
+}
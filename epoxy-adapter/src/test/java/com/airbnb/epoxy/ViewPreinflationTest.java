@@ -0,0 +1,133 @@
+package com.airbnb.epoxy;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import com.airbnb.viewmodeladapter.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/** Tests {@link EpoxyAdapter#preinflateViews(int, int)}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class ViewPreinflationTest {
+  private static final int LAYOUT = R.layout.view_holder_empty_view;
+
+  private final QueueExecutor executor = new QueueExecutor();
+  private final PreinflatingAdapter adapter = new PreinflatingAdapter(executor);
+  private final RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.application);
+
+  @Test
+  public void viewsAreInflatedOnceAttached() {
+    executor.runAll();
+    assertEquals(0, adapter.viewPreinflater.getPooledCount(LAYOUT));
+
+    adapter.onAttachedToRecyclerView(recyclerView);
+    executor.runAll();
+    assertEquals(2, adapter.viewPreinflater.getPooledCount(LAYOUT));
+  }
+
+  @Test
+  public void holdersUsePreinflatedViews() {
+    adapter.onAttachedToRecyclerView(recyclerView);
+    executor.runAll();
+
+    View first = adapter.onCreateViewHolder(recyclerView, LAYOUT).itemView;
+    View second = adapter.onCreateViewHolder(recyclerView, LAYOUT).itemView;
+    View third = adapter.onCreateViewHolder(recyclerView, LAYOUT).itemView;
+
+    assertNotSame(first, second);
+    assertEquals(0, adapter.viewPreinflater.getPooledCount(LAYOUT));
+    assertNull(third.getParent());
+  }
+
+  @Test
+  public void viewsCreatedFirstOnTheMainThreadCountTowardTheRequest() {
+    adapter.onAttachedToRecyclerView(recyclerView);
+    adapter.onCreateViewHolder(recyclerView, LAYOUT);
+    executor.runAll();
+
+    assertEquals(1, adapter.viewPreinflater.getPooledCount(LAYOUT));
+  }
+
+  @Test
+  public void detachingDropsViews() {
+    adapter.onAttachedToRecyclerView(recyclerView);
+    executor.runAll();
+
+    adapter.onDetachedFromRecyclerView(recyclerView);
+    assertEquals(0, adapter.viewPreinflater.getPooledCount(LAYOUT));
+  }
+
+  @Test
+  public void inflationsForAPreviousParentAreDropped() {
+    adapter.onAttachedToRecyclerView(recyclerView);
+    adapter.onDetachedFromRecyclerView(recyclerView);
+    executor.runAll();
+
+    assertEquals(0, adapter.viewPreinflater.getPooledCount(LAYOUT));
+  }
+
+  @Test
+  public void layoutsRequestedAfterAttachingAreInflated() {
+    adapter.onAttachedToRecyclerView(recyclerView);
+    adapter.preinflateViews(LAYOUT, 3);
+    executor.runAll();
+
+    assertEquals(3, adapter.viewPreinflater.getPooledCount(LAYOUT));
+  }
+
+  @Test
+  public void otherLayoutsAreInflatedNormally() {
+    adapter.onAttachedToRecyclerView(recyclerView);
+    executor.runAll();
+
+    adapter.onCreateViewHolder(recyclerView, R.layout.epoxy_model_group_vertical);
+    assertEquals(0, adapter.viewPreinflater.getPooledCount(R.layout.epoxy_model_group_vertical));
+    assertEquals(2, adapter.viewPreinflater.getPooledCount(LAYOUT));
+  }
+
+  @Test
+  public void failedInflationsFallBackToTheMainThread() {
+    adapter.preinflateViews(0, 1);
+    adapter.onAttachedToRecyclerView(recyclerView);
+    executor.runAll();
+
+    assertEquals(0, adapter.viewPreinflater.getPooledCount(0));
+    assertEquals(2, adapter.viewPreinflater.getPooledCount(LAYOUT));
+  }
+
+  private static class PreinflatingAdapter extends EpoxyAdapter {
+    PreinflatingAdapter(Executor executor) {
+      setPreinflationExecutor(executor);
+      preinflateViews(LAYOUT, 2);
+    }
+  }
+
+  /** Runs submitted tasks only when asked, standing in for the background thread. */
+  private static class QueueExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.poll().run();
+      }
+    }
+  }
+}
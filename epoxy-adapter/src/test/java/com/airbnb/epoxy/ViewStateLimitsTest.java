@@ -0,0 +1,223 @@
+package com.airbnb.epoxy;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests {@link EpoxyAdapter#setViewStateLimits(int, int)}. */
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class ViewStateLimitsTest {
+  private final StateAdapter adapter = new StateAdapter();
+  private final RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.application);
+
+  @Test
+  public void leastRecentlyUsedStatesAreEvicted() {
+    adapter.setViewStateLimits(2, Integer.MAX_VALUE);
+    StateModel first = new StateModel(1, 10);
+    StateModel second = new StateModel(2, 10);
+    StateModel third = new StateModel(3, 10);
+    adapter.addModels(first, second, third);
+
+    bindAndRecycle(0);
+    bindAndRecycle(1);
+    // Restoring the first state makes the second the least recently used
+    bindAndRecycle(0);
+    bindAndRecycle(2);
+
+    ViewHolderState state = saveState();
+    assertTrue(hasState(state, first));
+    assertFalse(hasState(state, second));
+    assertTrue(hasState(state, third));
+  }
+
+  @Test
+  public void statesAreEvictedToStayWithinTheByteLimit() {
+    adapter.setViewStateLimits(Integer.MAX_VALUE, 2500);
+    StateModel first = new StateModel(1, 1000);
+    StateModel second = new StateModel(2, 1000);
+    StateModel large = new StateModel(3, 2000);
+    adapter.addModels(first, second, large);
+
+    bindAndRecycle(0);
+    bindAndRecycle(1);
+    ViewHolderState state = saveState();
+    assertTrue(hasState(state, first));
+    assertTrue(hasState(state, second));
+
+    bindAndRecycle(2);
+    state = saveState();
+    assertFalse(hasState(state, first));
+    assertFalse(hasState(state, second));
+    assertTrue(hasState(state, large));
+  }
+
+  @Test
+  public void statesAreOnlyMeasuredWhenTheyChange() {
+    adapter.setViewStateLimits(Integer.MAX_VALUE, 2500);
+    adapter.addModels(new StateModel(1, 1000), new StateModel(2, 500));
+
+    EpoxyViewHolder holder = bind(0);
+    adapter.onViewRecycled(holder);
+    adapter.bindViewHolder(holder, 0);
+    adapter.onViewRecycled(holder);
+    SizedState state = ((StateView) holder.itemView).state;
+    assertEquals(1, state.writeCount);
+
+    // A different model bound to the view saves a new state
+    adapter.bindViewHolder(holder, 1);
+    adapter.onViewRecycled(holder);
+    assertEquals(1, ((StateView) holder.itemView).state.writeCount);
+    assertEquals(1, state.writeCount);
+  }
+
+  @Test
+  public void removedModelsAreEvicted() {
+    adapter.enableDiffing();
+    adapter.setViewStateLimits(10, Integer.MAX_VALUE);
+    StateModel first = new StateModel(1, 10);
+    StateModel second = new StateModel(2, 10);
+    StateModel third = new StateModel(3, 10);
+    adapter.addModels(first, second, third);
+
+    bindAndRecycle(0);
+    bindAndRecycle(1);
+    adapter.removeModel(first);
+
+    ViewHolderState state = saveState();
+    assertFalse(hasState(state, first));
+    assertTrue(hasState(state, second));
+
+    // A removal along with an insertion needs a full diff
+    EpoxyViewHolder boundHolder = bind(0);
+    adapter.getModels().remove(second);
+    adapter.getModels().add(new StateModel(4, 10));
+    adapter.notifyModelsChanged();
+    // The removed view is recycled once it animates out
+    adapter.onViewRecycled(boundHolder);
+
+    state = saveState();
+    assertFalse(hasState(state, second));
+  }
+
+  @Test
+  public void statesAreKeptWithoutLimits() {
+    adapter.enableDiffing();
+    StateModel first = new StateModel(1, 1000);
+    StateModel second = new StateModel(2, 1000);
+    adapter.addModels(first, second);
+
+    bindAndRecycle(0);
+    bindAndRecycle(1);
+    adapter.removeModel(first);
+
+    ViewHolderState state = saveState();
+    assertTrue(hasState(state, first));
+    assertTrue(hasState(state, second));
+  }
+
+  private EpoxyViewHolder bind(int position) {
+    EpoxyViewHolder holder =
+        adapter.createViewHolder(recyclerView, adapter.getItemViewType(position));
+    adapter.bindViewHolder(holder, position);
+    return holder;
+  }
+
+  private void bindAndRecycle(int position) {
+    adapter.onViewRecycled(bind(position));
+  }
+
+  private ViewHolderState saveState() {
+    Bundle bundle = new Bundle();
+    adapter.onSaveInstanceState(bundle);
+    return bundle.getParcelable("saved_state_view_holders");
+  }
+
+  private static boolean hasState(ViewHolderState state, EpoxyModel<?> model) {
+    return state.get(model.id()) != null;
+  }
+
+  /** Creates views that save a state of the size given by their model. */
+  private static class StateAdapter extends SimpleEpoxyAdapter {
+    @Override
+    public EpoxyViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new EpoxyViewHolder(new StateView(parent.getContext()));
+    }
+  }
+
+  private static class StateModel extends EpoxyModel<View> {
+    private final int stateSize;
+
+    StateModel(long id, int stateSize) {
+      super(id);
+      this.stateSize = stateSize;
+    }
+
+    @Override
+    protected int getDefaultLayout() {
+      return 0;
+    }
+
+    @Override
+    public void bind(View view) {
+      ((StateView) view).stateSize = stateSize;
+    }
+
+    @Override
+    public boolean shouldSaveViewState() {
+      return true;
+    }
+  }
+
+  /** Saves the same state object until the state size changes, like a view with unchanged state. */
+  private static class StateView extends View {
+    int stateSize;
+    SizedState state;
+
+    StateView(Context context) {
+      super(context);
+    }
+
+    @Override
+    public void saveHierarchyState(SparseArray<Parcelable> container) {
+      if (state == null || state.bytes.length != stateSize) {
+        state = new SizedState(stateSize);
+      }
+      container.put(getId(), state);
+    }
+  }
+
+  private static class SizedState implements Parcelable {
+    private final byte[] bytes;
+    int writeCount;
+
+    SizedState(int size) {
+      bytes = new byte[size];
+    }
+
+    @Override
+    public int describeContents() {
+      return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+      writeCount++;
+      dest.writeByteArray(bytes);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.airbnb.epoxy;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
+@RunWith(TestRunner.class)
+public class VisibleModelIndexTest {
+  private final VisibleModelIndex index = new VisibleModelIndex();
+  private final List<EpoxyModel<?>> models = new ArrayList<>();
+
+  @Test
+  public void mapsBetweenIndexesAndPositions() {
+    addModels(true, false, false, true, true, false, true);
+    index.reset(models);
+
+    assertEquals(4, index.visibleCount());
+    assertEquals(0, index.modelIndexAt(0));
+    assertEquals(3, index.modelIndexAt(1));
+    assertEquals(4, index.modelIndexAt(2));
+    assertEquals(6, index.modelIndexAt(3));
+    assertEquals(1, index.visiblePositionOf(2));
+    assertEquals(3, index.visiblePositionOf(6));
+    assertEquals(4, index.visiblePositionOf(7));
+  }
+
+  @Test
+  public void showingAndHidingUpdatesPositions() {
+    addModels(false, false, false, false);
+    index.reset(models);
+    assertEquals(0, index.visibleCount());
+
+    index.setShown(2, true);
+    assertEquals(1, index.visibleCount());
+    assertEquals(2, index.modelIndexAt(0));
+
+    index.setShown(0, true);
+    index.setShown(2, false);
+    assertEquals(0, index.modelIndexAt(0));
+    assertEquals(1, index.visiblePositionOf(3));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void positionPastTheVisibleCountThrows() {
+    addModels(true, false);
+    index.reset(models);
+    index.modelIndexAt(1);
+  }
+
+  @Test
+  public void randomChangesMatchTheFlags() {
+    Random random = new Random(4);
+    for (int i = 0; i < 2000; i++) {
+      int size = models.size();
+      int operation = random.nextInt(4);
+      if (operation == 0 || size == 0) {
+        int position = random.nextBoolean() ? size : random.nextInt(size + 1);
+        int count = random.nextInt(4) + 1;
+        for (int j = 0; j < count; j++) {
+          models.add(position, new TestModel().show(random.nextBoolean()));
+        }
+        index.insert(position, count, models);
+      } else if (operation == 1) {
+        int position = random.nextInt(size);
+        int count = Math.min(size - position, random.nextInt(3) + 1);
+        models.subList(position, position + count).clear();
+        index.remove(position, count);
+      } else {
+        int position = random.nextInt(size);
+        boolean shown = random.nextBoolean();
+        models.get(position).show(shown);
+        index.setShown(position, shown);
+      }
+
+      checkIndex();
+    }
+  }
+
+  private void checkIndex() {
+    assertEquals(models.size(), index.size());
+    int visiblePosition = 0;
+    for (int i = 0; i < models.size(); i++) {
+      assertEquals(visiblePosition, index.visiblePositionOf(i));
+      if (models.get(i).isShown()) {
+        assertEquals(i, index.modelIndexAt(visiblePosition));
+        visiblePosition++;
+      }
+    }
+    assertEquals(visiblePosition, index.visibleCount());
+  }
+
+  private void addModels(boolean... shown) {
+    for (boolean isShown : shown) {
+      models.add(new TestModel().show(isShown));
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.airbnb.epoxy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Ways of changing a list of models between two diffs. Each workload builds the ids and hash codes
+ * of the old and new lists, where ids are unique and a model that changed gets a new hash code.
+ * Workloads that change part of the list change a tenth of the models.
+ */
+enum BenchmarkWorkload {
+  INSERT_ONLY {
+    @Override
+    void buildNewList(Lists lists, Random random) {
+      int insertCount = Math.max(1, lists.size() / 10);
+      for (int i = 0; i < insertCount; i++) {
+        lists.insert(random.nextInt(lists.newCount + 1));
+      }
+    }
+  },
+  REMOVE_ONLY {
+    @Override
+    void buildNewList(Lists lists, Random random) {
+      int removeCount = Math.max(1, lists.size() / 10);
+      for (int i = 0; i < removeCount; i++) {
+        lists.remove(random.nextInt(lists.newCount));
+      }
+    }
+  },
+  SHUFFLE {
+    @Override
+    void buildNewList(Lists lists, Random random) {
+      for (int i = lists.newCount - 1; i > 0; i--) {
+        lists.swap(i, random.nextInt(i + 1));
+      }
+    }
+  },
+  MOVE_ONE_TO_END {
+    @Override
+    void buildNewList(Lists lists, Random random) {
+      lists.move(0, lists.newCount - 1);
+    }
+  },
+  RANDOM_CHURN {
+    @Override
+    void buildNewList(Lists lists, Random random) {
+      int changeCount = Math.max(1, lists.size() / 10);
+      for (int i = 0; i < changeCount; i++) {
+        lists.remove(random.nextInt(lists.newCount));
+        lists.insert(random.nextInt(lists.newCount + 1));
+        lists.move(random.nextInt(lists.newCount), random.nextInt(lists.newCount));
+        lists.change(random.nextInt(lists.newCount));
+      }
+    }
+  },
+  HASH_ONLY {
+    @Override
+    void buildNewList(Lists lists, Random random) {
+      int changeCount = Math.max(1, lists.size() / 10);
+      for (int i = 0; i < changeCount; i++) {
+        lists.change(random.nextInt(lists.newCount));
+      }
+    }
+  };
+
+  abstract void buildNewList(Lists lists, Random random);
+
+  /** Builds the lists for this workload, the same way each time for the same model count. */
+  Lists build(int modelCount) {
+    Lists lists = new Lists(modelCount);
+    buildNewList(lists, new Random(modelCount));
+    lists.trimNewList();
+    return lists;
+  }
+
+  /** The old and new lists of ids and hash codes. */
+  static class Lists {
+    final long[] oldIds;
+    final int[] oldHashCodes;
+    long[] newIds;
+    int[] newHashCodes;
+    private int newCount;
+    private long nextId;
+    private int nextHashCode;
+
+    Lists(int modelCount) {
+      oldIds = new long[modelCount];
+      oldHashCodes = new int[modelCount];
+      for (int i = 0; i < modelCount; i++) {
+        oldIds[i] = nextId++;
+        oldHashCodes[i] = nextHashCode++;
+      }
+
+      // Room for insertions to grow the list
+      newIds = Arrays.copyOf(oldIds, modelCount * 2 + 1);
+      newHashCodes = Arrays.copyOf(oldHashCodes, modelCount * 2 + 1);
+      newCount = modelCount;
+    }
+
+    int size() {
+      return oldIds.length;
+    }
+
+    private void insert(int index) {
+      System.arraycopy(newIds, index, newIds, index + 1, newCount - index);
+      System.arraycopy(newHashCodes, index, newHashCodes, index + 1, newCount - index);
+      newIds[index] = nextId++;
+      newHashCodes[index] = nextHashCode++;
+      newCount++;
+    }
+
+    private void remove(int index) {
+      System.arraycopy(newIds, index + 1, newIds, index, newCount - index - 1);
+      System.arraycopy(newHashCodes, index + 1, newHashCodes, index, newCount - index - 1);
+      newCount--;
+    }
+
+    private void move(int fromIndex, int toIndex) {
+      long id = newIds[fromIndex];
+      int hashCode = newHashCodes[fromIndex];
+      remove(fromIndex);
+      System.arraycopy(newIds, toIndex, newIds, toIndex + 1, newCount - toIndex);
+      System.arraycopy(newHashCodes, toIndex, newHashCodes, toIndex + 1, newCount - toIndex);
+      newIds[toIndex] = id;
+      newHashCodes[toIndex] = hashCode;
+      newCount++;
+    }
+
+    private void swap(int firstIndex, int secondIndex) {
+      long id = newIds[firstIndex];
+      int hashCode = newHashCodes[firstIndex];
+      newIds[firstIndex] = newIds[secondIndex];
+      newHashCodes[firstIndex] = newHashCodes[secondIndex];
+      newIds[secondIndex] = id;
+      newHashCodes[secondIndex] = hashCode;
+    }
+
+    private void change(int index) {
+      newHashCodes[index] = nextHashCode++;
+    }
+
+    private void trimNewList() {
+      newIds = Arrays.copyOf(newIds, newCount);
+      newHashCodes = Arrays.copyOf(newHashCodes, newCount);
+    }
+  }
+}
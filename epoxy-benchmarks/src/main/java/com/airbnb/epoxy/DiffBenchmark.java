@@ -0,0 +1,81 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.Nullable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures diff throughput for each {@link BenchmarkWorkload} at several list sizes. Run with
+ * ./gradlew :epoxy-benchmarks:jmh, which also reports allocation rates with the gc profiler.
+ * <p>
+ * The workloads are diffed with {@link ListDiffer}, which runs the same diff as the adapter over
+ * plain arrays. The differ is reused across invocations like it is in the adapter, so the
+ * allocation rate shows whether a steady stream of diffs creates garbage. Reading ids and hash
+ * codes from models is not included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiffBenchmark {
+  @Param({"100", "1000", "10000", "100000"})
+  public int modelCount;
+
+  @Param({"INSERT_ONLY", "REMOVE_ONLY", "SHUFFLE", "MOVE_ONE_TO_END", "RANDOM_CHURN", "HASH_ONLY"})
+  public String workload;
+
+  private final ListDiffer differ = new ListDiffer();
+  private final CountingCallback callback = new CountingCallback();
+  private BenchmarkWorkload.Lists lists;
+
+  @Setup
+  public void setUp() {
+    lists = BenchmarkWorkload.valueOf(workload).build(modelCount);
+  }
+
+  /** @return The number of operations, so the diff can't be optimized away. */
+  @Benchmark
+  public int diff() {
+    callback.operationCount = 0;
+    differ.diff(lists.oldIds, lists.oldHashCodes, lists.newIds, lists.newHashCodes, callback);
+    return callback.operationCount;
+  }
+
+  private static class CountingCallback implements DiffCallback {
+    int operationCount;
+
+    @Override
+    public void onInserted(int positionStart, int itemCount) {
+      operationCount++;
+    }
+
+    @Override
+    public void onRemoved(int positionStart, int itemCount) {
+      operationCount++;
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      operationCount++;
+    }
+
+    @Override
+    public void onChanged(int positionStart, int itemCount, @Nullable Object payload) {
+      operationCount++;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Receives the operations found by a diff, in the order they should be applied. Each position
+ * takes the operations before it into account, the same as the notify calls of a RecyclerView
+ * adapter, so a container can apply them to its own list of items one after another.
+ */
+public interface DiffCallback {
+  void onInserted(int positionStart, int itemCount);
+
+  void onRemoved(int positionStart, int itemCount);
+
+  void onMoved(int fromPosition, int toPosition);
+
+  /**
+   * @param payload What changed about the items, or null if they should be fully rebound.
+   */
+  void onChanged(int positionStart, int itemCount, @Nullable Object payload);
+}
@@ -0,0 +1,197 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.List;
+
+/**
+ * Describes the work done by a single diff. Times are measured with {@link System#nanoTime()}, and
+ * phases that did not run have a time of 0. Adapters report these to a DiffMetricsListener, and a
+ * {@link ListDiffer} keeps the metrics of its last diff.
+ */
+public class DiffMetrics {
+  @IntDef({PATH_NO_CHANGES, PATH_INSERTIONS_OR_REMOVALS, PATH_FULL_DIFF, PATH_REORDER})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface Path {
+  }
+
+  /**
+   * The models list had no insertions or removals since the last diff, so only the model hash
+   * codes were checked for changes.
+   */
+  public static final int PATH_NO_CHANGES = 0;
+  /**
+   * The models list only had insertions or only had removals since the last diff, so those were
+   * notified as they were recorded and then hash codes were checked for changes.
+   */
+  public static final int PATH_INSERTIONS_OR_REMOVALS = 1;
+  /** The old and new models lists were compared in full. */
+  public static final int PATH_FULL_DIFF = 2;
+  /**
+   * The models list was only reordered since the last diff, so moves were found from the new order
+   * of the existing ids and then hash codes were checked for changes.
+   */
+  public static final int PATH_REORDER = 3;
+
+  @Path int path;
+  boolean async;
+  boolean exceededBudget;
+  int modelCount;
+
+  long prepareStateNanos;
+  long removalsNanos;
+  long insertionsNanos;
+  long movesNanos;
+  long changesNanos;
+  long notifyNanos;
+
+  int addCount;
+  int removeCount;
+  int moveCount;
+  int updateCount;
+
+  void reset() {
+    path = PATH_NO_CHANGES;
+    async = false;
+    exceededBudget = false;
+    modelCount = 0;
+    prepareStateNanos = 0;
+    removalsNanos = 0;
+    insertionsNanos = 0;
+    movesNanos = 0;
+    changesNanos = 0;
+    notifyNanos = 0;
+    addCount = 0;
+    removeCount = 0;
+    moveCount = 0;
+    updateCount = 0;
+  }
+
+  /** Count the operations of each type that are about to be notified. */
+  void countOperations(List<UpdateOp> opList) {
+    // Not using an iterator so that counting doesn't allocate
+    for (int i = 0; i < opList.size(); i++) {
+      switch (opList.get(i).type) {
+        case UpdateOp.ADD:
+          addCount++;
+          break;
+        case UpdateOp.REMOVE:
+          removeCount++;
+          break;
+        case UpdateOp.MOVE:
+          moveCount++;
+          break;
+        case UpdateOp.UPDATE:
+          updateCount++;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown type: " + opList.get(i).type);
+      }
+    }
+  }
+
+  /** Which strategy the diff used to find changes. */
+  @Path
+  public int getPath() {
+    return path;
+  }
+
+  /** True if the diff was computed on a background thread with notifyModelsChangedAsync. */
+  public boolean isAsync() {
+    return async;
+  }
+
+  /**
+   * True if the diff needed more operations than the budget allowed, so the whole list was notified
+   * as changed instead.
+   */
+  public boolean exceededBudget() {
+    return exceededBudget;
+  }
+
+  /** The number of items in the list after the diff. */
+  public int getModelCount() {
+    return modelCount;
+  }
+
+  /** Time spent reading model ids and hash codes to build the new state for a full diff. */
+  public long getPrepareStateNanos() {
+    return prepareStateNanos;
+  }
+
+  /** Time spent pairing old and new models and finding removals in a full diff. */
+  public long getRemovalsNanos() {
+    return removalsNanos;
+  }
+
+  /** Time spent finding insertions in a full diff. */
+  public long getInsertionsNanos() {
+    return insertionsNanos;
+  }
+
+  /** Time spent finding moves in a full diff. */
+  public long getMovesNanos() {
+    return movesNanos;
+  }
+
+  /** Time spent comparing hash codes to find changed models. */
+  public long getChangesNanos() {
+    return changesNanos;
+  }
+
+  /**
+   * Time spent dispatching the operations to the adapter or {@link DiffCallback}, including
+   * RecyclerView's handling of them.
+   */
+  public long getNotifyNanos() {
+    return notifyNanos;
+  }
+
+  /** The sum of the time of every phase. */
+  public long getTotalNanos() {
+    return prepareStateNanos + removalsNanos + insertionsNanos + movesNanos + changesNanos
+        + notifyNanos;
+  }
+
+  /** The number of item range insertions that were notified. */
+  public int getAddCount() {
+    return addCount;
+  }
+
+  /** The number of item range removals that were notified. */
+  public int getRemoveCount() {
+    return removeCount;
+  }
+
+  /** The number of item moves that were notified. */
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  /** The number of item range changes that were notified. */
+  public int getUpdateCount() {
+    return updateCount;
+  }
+
+  @Override
+  public String toString() {
+    return "DiffMetrics{"
+        + "path=" + path
+        + ", async=" + async
+        + ", exceededBudget=" + exceededBudget
+        + ", modelCount=" + modelCount
+        + ", prepareStateNanos=" + prepareStateNanos
+        + ", removalsNanos=" + removalsNanos
+        + ", insertionsNanos=" + insertionsNanos
+        + ", movesNanos=" + movesNanos
+        + ", changesNanos=" + changesNanos
+        + ", notifyNanos=" + notifyNanos
+        + ", addCount=" + addCount
+        + ", removeCount=" + removeCount
+        + ", moveCount=" + moveCount
+        + ", updateCount=" + updateCount
+        + '}';
+  }
+}
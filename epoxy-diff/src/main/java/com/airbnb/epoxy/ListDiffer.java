@@ -0,0 +1,235 @@
+package com.airbnb.epoxy;
+
+import java.util.Arrays;
+
+/**
+ * Finds the operations that change one list of items into another, given the id and hash code of
+ * each item. Items are matched by id, and a matched item whose hash code differs is reported as
+ * changed. Ids must be unique within each list.
+ * <p>
+ * This has no Android dependencies, so it can diff lists for containers other than RecyclerView
+ * and can be tested and benchmarked on a plain JVM. EpoxyAdapter runs the same diff over the state
+ * of its models.
+ * <p>
+ * Buffers are kept between diffs so that a differ can be reused without allocating once it has
+ * grown to fit the lists. An instance is not thread safe.
+ */
+public class ListDiffer {
+  private final ModelStateMap newIndexById = new ModelStateMap();
+  private final MoveCollector moveCollector = new MoveCollector();
+  private final UpdateOpHelper updateOpHelper = new UpdateOpHelper();
+  private final DiffMetrics metrics = new DiffMetrics();
+  private int maxOperations = Integer.MAX_VALUE;
+  private int[] oldPairs = new int[0];
+  private int[] newPairs = new int[0];
+
+  /**
+   * Whether contiguous runs of moved items should be reported as a removal and an insertion instead
+   * of one move per item, when that takes fewer operations. Disabled by default.
+   */
+  public void setBatchMoves(boolean batchMoves) {
+    moveCollector.setBatchRuns(batchMoves);
+  }
+
+  /**
+   * The most insertion, removal, and move operations a diff may report. If a diff needs more than
+   * this it stops early, and reports every item as changed along with an insertion or removal at
+   * the end of the list to make up the difference in size. Unlimited by default.
+   */
+  public void setMaxOperations(int maxOperations) {
+    if (maxOperations < 0) {
+      throw new IllegalArgumentException("Max operations cannot be negative: " + maxOperations);
+    }
+
+    this.maxOperations = maxOperations;
+  }
+
+  /** Diffs the full length of each array. */
+  public boolean diff(long[] oldIds, int[] oldHashCodes, long[] newIds, int[] newHashCodes,
+      DiffCallback callback) {
+    return diff(oldIds, oldHashCodes, oldIds.length, newIds, newHashCodes, newIds.length, callback);
+  }
+
+  /**
+   * Diffs the first oldCount items of the old arrays against the first newCount items of the new
+   * arrays, and sends the operations that change the old list into the new one to the callback.
+   *
+   * @return False if more operations were needed than {@link #setMaxOperations(int)} allows, in
+   * which case the whole list was reported as changed.
+   */
+  public boolean diff(long[] oldIds, int[] oldHashCodes, int oldCount, long[] newIds,
+      int[] newHashCodes, int newCount, DiffCallback callback) {
+    updateOpHelper.reset();
+    metrics.reset();
+    metrics.path = DiffMetrics.PATH_FULL_DIFF;
+    metrics.modelCount = newCount;
+
+    long start = System.nanoTime();
+    indexNewIds(newIds, newCount);
+    if (oldPairs.length < oldCount) {
+      oldPairs = new int[oldCount];
+    }
+    metrics.prepareStateNanos = System.nanoTime() - start;
+
+    boolean withinBudget = computeDiff(oldIds, oldPairs, oldCount, newIndexById, newPairs, newCount,
+        moveCollector, maxOperations, updateOpHelper, metrics);
+    if (withinBudget) {
+      start = System.nanoTime();
+      for (int i = 0; i < newCount; i++) {
+        int pair = newPairs[i];
+        if (pair != -1 && oldHashCodes[pair] != newHashCodes[i]) {
+          updateOpHelper.update(i);
+        }
+      }
+      metrics.changesNanos = System.nanoTime() - start;
+    }
+
+    start = System.nanoTime();
+    updateOpHelper.dispatchTo(callback);
+    metrics.notifyNanos = System.nanoTime() - start;
+    metrics.countOperations(updateOpHelper.opList);
+
+    return withinBudget;
+  }
+
+  /** The metrics of the last diff. The instance is reused, so copy anything that should be kept. */
+  public DiffMetrics getMetrics() {
+    return metrics;
+  }
+
+  private void indexNewIds(long[] newIds, int newCount) {
+    newIndexById.clear();
+    newIndexById.ensureCapacity(newCount);
+    if (newPairs.length < newCount) {
+      newPairs = new int[newCount];
+    }
+
+    Arrays.fill(newPairs, 0, newCount, -1);
+    for (int i = 0; i < newCount; i++) {
+      int previousIndex = newIndexById.put(newIds[i], i);
+      if (previousIndex != -1) {
+        throw new IllegalArgumentException("Two items have the same ID. ID's must be unique! ID "
+            + newIds[i] + " is at position " + previousIndex + " and " + i);
+      }
+    }
+  }
+
+  /**
+   * Collects the insertions, removals, and moves to transform the old list into the new one. This
+   * only touches the given arrays, so it is safe to run off the main thread on arrays that are not
+   * shared. Changed items are not collected, since that is just a comparison of the hash codes of
+   * each pair, and callers may want to compute a payload for them.
+   * <p>
+   * If more than maxOperations operations are needed the diff stops early, and the helper is left
+   * with a coarse change of the whole list instead. Notifying many individual operations is slow
+   * for RecyclerView, so past some point it is cheaper to rebind everything that is visible.
+   *
+   * @param oldPairs      Filled in with the index of each old item in the new list, or -1 if it
+   *                      was removed.
+   * @param newIndexById  The index of each id in the new list.
+   * @param newPairs      Must be filled with -1 for each new item. The index of each new item in
+   *                      the old list is filled in, and stays -1 if it was inserted.
+   * @param metrics       The time of each phase is recorded here, along with whether the budget
+   *                      was exceeded.
+   * @return False if the budget was exceeded, in which case changes should not be collected.
+   */
+  static boolean computeDiff(long[] oldIds, int[] oldPairs, int oldCount,
+      ModelStateMap newIndexById, int[] newPairs, int newCount, MoveCollector moveCollector,
+      int maxOperations, UpdateOpHelper updateOpHelper, DiffMetrics metrics) {
+    // The general approach is to first search for removals, then additions, and lastly changes.
+    // Focusing on one type of operation at a time makes it easy to coalesce batch changes.
+    // When we identify an operation and add it to the result list we take into account the
+    // previous operations, this way subsequent operations will use the correct, updated positions.
+    long start = System.nanoTime();
+    collectRemovals(oldIds, oldPairs, oldCount, newIndexById, newPairs, updateOpHelper);
+    metrics.removalsNanos = System.nanoTime() - start;
+    if (updateOpHelper.opList.size() > maxOperations) {
+      notifyWholeListChanged(oldCount, newCount, updateOpHelper);
+      metrics.exceededBudget = true;
+      return false;
+    }
+
+    // Only need to check for insertions if new list is bigger
+    boolean hasInsertions = oldCount - updateOpHelper.getNumRemovals() != newCount;
+    if (hasInsertions) {
+      start = System.nanoTime();
+      collectInsertions(newPairs, newCount, updateOpHelper);
+      metrics.insertionsNanos = System.nanoTime() - start;
+      if (updateOpHelper.opList.size() > maxOperations) {
+        notifyWholeListChanged(oldCount, newCount, updateOpHelper);
+        metrics.exceededBudget = true;
+        return false;
+      }
+    }
+
+    // Recyclerview does not support batching moves, so the collector finds as few as it can. If
+    // move batching is enabled it may notify runs of moved items as removals and insertions instead
+    int maxMoves = maxOperations - updateOpHelper.opList.size();
+    start = System.nanoTime();
+    boolean movesWithinBudget =
+        moveCollector.collectMoves(oldPairs, newPairs, newCount, maxMoves, updateOpHelper);
+    metrics.movesNanos = System.nanoTime() - start;
+    if (!movesWithinBudget) {
+      notifyWholeListChanged(oldCount, newCount, updateOpHelper);
+      metrics.exceededBudget = true;
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Replaces any operations in the helper with a change of every item, plus an insertion or removal
+   * at the end of the list to make up the difference in size.
+   */
+  private static void notifyWholeListChanged(int oldSize, int newSize, UpdateOpHelper helper) {
+    helper.reset();
+
+    int changedCount = Math.min(oldSize, newSize);
+    if (changedCount > 0) {
+      helper.update(0, changedCount);
+    }
+
+    if (newSize > oldSize) {
+      helper.add(oldSize, newSize - oldSize);
+    } else if (oldSize > newSize) {
+      helper.remove(newSize, oldSize - newSize);
+    }
+  }
+
+  /**
+   * Find all removal operations and add them to the result list. The general strategy here is to
+   * walk through the old list and check for items that don't exist in the new list. Walking
+   * through it in order makes it easy to batch adjacent removals.
+   */
+  private static void collectRemovals(long[] oldIds, int[] oldPairs, int oldCount,
+      ModelStateMap newIndexById, int[] newPairs, UpdateOpHelper helper) {
+    for (int i = 0; i < oldCount; i++) {
+      // This is our first time going through the list, so we look up the item with the matching id
+      // in the new list and pair the two so that we can access it quickly in the future. This
+      // overwrites the pairs from the previous diff.
+      int pair = newIndexById.get(oldIds[i]);
+      oldPairs[i] = pair;
+      if (pair != -1) {
+        newPairs[pair] = i;
+        continue;
+      }
+
+      // Take into account previous removals to get the current position of the item
+      helper.remove(i - helper.getNumRemovals());
+    }
+  }
+
+  /**
+   * Find all insertion operations and add them to the result list. The general strategy here is to
+   * walk through the new list and check for items that don't exist in the old list. Walking
+   * through it in order makes it easy to batch adjacent insertions.
+   */
+  private static void collectInsertions(int[] newPairs, int newCount, UpdateOpHelper helper) {
+    for (int i = 0; i < newCount; i++) {
+      if (newPairs[i] == -1) {
+        helper.add(i);
+      }
+    }
+  }
+}
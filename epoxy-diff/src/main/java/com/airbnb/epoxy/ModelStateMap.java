@@ -0,0 +1,185 @@
+package com.airbnb.epoxy;
+
+import java.util.Arrays;
+
+/**
+ * A map of model id to the index of its state in a list of model states, used by the differ
+ * instead of a HashMap so that ids and indexes are not boxed and no entry objects are allocated. It
+ * uses open addressing with linear probing, and {@link #clear()} keeps the backing arrays so a map
+ * can be reused across diffs without allocating once it has grown to fit the model list.
+ */
+class ModelStateMap {
+  private static final int MIN_CAPACITY = 16;
+
+  private static final int EMPTY = -1;
+
+  private long[] keys;
+  /** Indexes are never negative, so {@link #EMPTY} marks an empty slot. */
+  private int[] values;
+  /** Always the capacity minus one, since the capacity is a power of two. */
+  private int mask;
+  private int size;
+
+  ModelStateMap() {
+    this(MIN_CAPACITY);
+  }
+
+  ModelStateMap(int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** @return The index for this id, or -1 if there is none. */
+  int get(long id) {
+    for (int i = indexFor(id); ; i = (i + 1) & mask) {
+      int value = values[i];
+      if (value == EMPTY) {
+        return EMPTY;
+      }
+      if (keys[i] == id) {
+        return value;
+      }
+    }
+  }
+
+  /** @return The previous index for this id, or -1 if there was none. */
+  int put(long id, int index) {
+    if (index < 0) {
+      throw new IllegalArgumentException("Index cannot be negative: " + index);
+    }
+
+    int i = indexFor(id);
+    for (; values[i] != EMPTY; i = (i + 1) & mask) {
+      if (keys[i] == id) {
+        int previous = values[i];
+        values[i] = index;
+        return previous;
+      }
+    }
+
+    keys[i] = id;
+    values[i] = index;
+    size++;
+
+    if (size > maxSizeForCapacity(values.length)) {
+      rehash(values.length * 2);
+    }
+
+    return EMPTY;
+  }
+
+  /** @return The removed index, or -1 if there was none. */
+  int remove(long id) {
+    int i = indexFor(id);
+    for (; values[i] != EMPTY; i = (i + 1) & mask) {
+      if (keys[i] == id) {
+        int removed = values[i];
+        shiftEntriesBackInto(i);
+        size--;
+        return removed;
+      }
+    }
+
+    return EMPTY;
+  }
+
+  /**
+   * With linear probing a removed slot can't simply be emptied, since that would break the probe
+   * sequence of entries after it. Instead the following entries in the cluster are moved back into
+   * the gap if doing so keeps them reachable from their home slot.
+   */
+  private void shiftEntriesBackInto(int gap) {
+    int i = gap;
+    while (true) {
+      i = (i + 1) & mask;
+      int value = values[i];
+      if (value == EMPTY) {
+        break;
+      }
+
+      int home = indexFor(keys[i]);
+      // Whether the home slot is cyclically outside of (gap, i]
+      boolean canMoveToGap = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+      if (canMoveToGap) {
+        keys[gap] = keys[i];
+        values[gap] = value;
+        gap = i;
+      }
+    }
+
+    values[gap] = EMPTY;
+  }
+
+  /** Removes all entries without shrinking the backing arrays. */
+  void clear() {
+    if (size == 0) {
+      return;
+    }
+
+    Arrays.fill(values, EMPTY);
+    size = 0;
+  }
+
+  /** Grows the backing arrays if needed so the given number of entries fit without a rehash. */
+  void ensureCapacity(int expectedSize) {
+    int capacity = capacityFor(expectedSize);
+    if (capacity > values.length) {
+      rehash(capacity);
+    }
+  }
+
+  private void rehash(int newCapacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(newCapacity);
+
+    for (int i = 0; i < oldValues.length; i++) {
+      int value = oldValues[i];
+      if (value == EMPTY) {
+        continue;
+      }
+
+      int j = indexFor(oldKeys[i]);
+      while (values[j] != EMPTY) {
+        j = (j + 1) & mask;
+      }
+      keys[j] = oldKeys[i];
+      values[j] = value;
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(values, EMPTY);
+    mask = capacity - 1;
+  }
+
+  private int indexFor(long id) {
+    // Ids may be sequential or have poor low bits, so mix them before taking the index. This is the
+    // finalizer from MurmurHash3.
+    long hash = id;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return (int) hash & mask;
+  }
+
+  /** Keeps the load factor at or below 0.5 so probe sequences stay short. */
+  private static int maxSizeForCapacity(int capacity) {
+    return capacity / 2;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (maxSizeForCapacity(capacity) < expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
@@ -0,0 +1,331 @@
+package com.airbnb.epoxy;
+
+/**
+ * Finds the fewest single item moves needed to put a list in order, in O(n log n) time.
+ * <p>
+ * The items on the longest increasing subsequence of target positions are already in the correct
+ * order relative to each other, so they never need to move. Every other item is moved once,
+ * directly after the item that precedes it in the final list. Items are moved in order of their
+ * target position so that the item they are moved after is always already in its final place.
+ * <p>
+ * Since we know up front where every item will end up, each possible location in the list is
+ * given a slot ahead of time and a Fenwick tree counts the occupied slots. This lets us look up
+ * the current position of any item in O(log n) as the moves are applied, instead of replaying
+ * every previous move to find it.
+ * <p>
+ * If run batching is enabled, a run of moved items that is contiguous in both the old and new
+ * order is removed and re-inserted as a range once that takes fewer notify calls than moving each
+ * item on its own. See {@link #MIN_BATCHED_RUN_LENGTH}.
+ * <p>
+ * Buffers are kept between calls so that a collector can be reused across diffs without
+ * allocating. An instance is not thread safe.
+ */
+class MoveCollector {
+  /**
+   * Moving a run one item at a time costs a notify call per item, while removing and re-inserting
+   * it costs two calls regardless of its length. The re-inserted items lose their move animation
+   * and are rebound, so a run is only batched when that strictly saves calls.
+   */
+  static final int MIN_BATCHED_RUN_LENGTH = 3;
+
+  private boolean batchRuns;
+  private int[] targetPositions = new int[0];
+  private int[] lisTails = new int[0];
+  private int[] lisPrevious = new int[0];
+  private boolean[] onLis = new boolean[0];
+  private int[] indexByTarget = new int[0];
+  /** Indexed by anchor group, where group 0 is the start of the list and group i + 1 follows i. */
+  private int[] groupStarts = new int[0];
+  private int[] groupFill = new int[0];
+  /** One based Fenwick tree over slots, storing 1 for each occupied slot. */
+  private int[] slotTree = new int[0];
+
+  /**
+   * Whether runs of moved items that are contiguous in both lists should be removed and
+   * re-inserted as a range instead of moved one item at a time, when that is cheaper.
+   */
+  void setBatchRuns(boolean batchRuns) {
+    this.batchRuns = batchRuns;
+  }
+
+  /**
+   * Add the moves needed to reorder a list once removals and insertions have been applied to it.
+   * At that point inserted items are already at their final position and the remaining items are
+   * in between them in their old order.
+   *
+   * @param oldPairs For each item in the old list, the index of the same item in the new list, or
+   *                 -1 if it was removed.
+   * @param newPairs For each item in the new list, the index of the same item in the old list, or
+   *                 -1 if it was inserted.
+   */
+  void collectMoves(int[] oldPairs, int[] newPairs, int newCount, UpdateOpHelper helper) {
+    collectMoves(oldPairs, newPairs, newCount, Integer.MAX_VALUE, helper);
+  }
+
+  /**
+   * Like {@link #collectMoves(int[], int[], int, UpdateOpHelper)}, but gives up without adding
+   * anything to the helper if more than maxMoves moves would be needed.
+   *
+   * @return False if the list needs more than maxMoves moves.
+   */
+  boolean collectMoves(int[] oldPairs, int[] newPairs, int newCount, int maxMoves,
+      UpdateOpHelper helper) {
+    ensureCapacity(newCount);
+
+    int oldIndex = 0;
+    for (int i = 0; i < newCount; i++) {
+      if (newPairs[i] == -1) {
+        targetPositions[i] = i;
+        continue;
+      }
+
+      // The old list has a paired item for each paired item in the new list, so this stays in
+      // bounds
+      while (oldPairs[oldIndex] == -1) {
+        oldIndex++;
+      }
+      targetPositions[i] = oldPairs[oldIndex++];
+    }
+
+    return collectMoves(targetPositions, newCount, maxMoves, helper);
+  }
+
+  /**
+   * Add the moves needed to reorder a list to the given helper.
+   *
+   * @param targetPositions For each item in the list, the position it should be moved to. The
+   *                        first itemCount values must be a permutation of 0 to itemCount - 1.
+   * @param itemCount       The number of items in the list.
+   */
+  void collectMoves(int[] targetPositions, int itemCount, UpdateOpHelper helper) {
+    collectMoves(targetPositions, itemCount, Integer.MAX_VALUE, helper);
+  }
+
+  /**
+   * Like {@link #collectMoves(int[], int, UpdateOpHelper)}, but gives up without adding anything to
+   * the helper if more than maxMoves moves would be needed. Batched runs are not taken into
+   * account, so this may give up even if batching would have kept the moves in budget.
+   *
+   * @return False if the list needs more than maxMoves moves.
+   */
+  boolean collectMoves(int[] targetPositions, int itemCount, int maxMoves,
+      UpdateOpHelper helper) {
+    ensureCapacity(itemCount);
+
+    int lisLength = findLongestIncreasingSubsequence(targetPositions, itemCount);
+    if (lisLength == itemCount) {
+      // Everything is already in order
+      return true;
+    }
+
+    if (itemCount - lisLength > maxMoves) {
+      return false;
+    }
+
+    for (int i = 0; i < itemCount; i++) {
+      onLis[i] = false;
+      indexByTarget[targetPositions[i]] = i;
+    }
+
+    for (int i = lisTails[lisLength - 1]; i != -1; i = lisPrevious[i]) {
+      onLis[i] = true;
+    }
+
+    int slotCount = layOutSlots(itemCount);
+    initSlotTree(itemCount, slotCount);
+
+    // The group of the last item on the subsequence we've passed, which is where the next moved
+    // item goes
+    int anchorGroup = 0;
+
+    for (int target = 0; target < itemCount; target++) {
+      int index = indexByTarget[target];
+      if (onLis[index]) {
+        anchorGroup = index + 1;
+        continue;
+      }
+
+      if (batchRuns) {
+        int runLength = getRunLength(target, itemCount);
+        if (runLength >= MIN_BATCHED_RUN_LENGTH) {
+          moveRun(index, runLength, anchorGroup, slotCount, helper);
+          target += runLength - 1;
+          continue;
+        }
+      }
+
+      int fromSlot = groupStarts[index + 1];
+      int toSlot = groupStarts[anchorGroup] + (anchorGroup > 0 ? 1 : 0) + groupFill[anchorGroup]++;
+
+      int fromPosition = countOccupiedSlotsBefore(fromSlot);
+      updateSlot(fromSlot, -1, slotCount);
+      int toPosition = countOccupiedSlotsBefore(toSlot);
+      updateSlot(toSlot, 1, slotCount);
+
+      if (fromPosition != toPosition) {
+        helper.move(fromPosition, toPosition);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * The number of moved items, starting with the one at the given target position, whose target
+   * positions and current indexes both increase by one from item to item.
+   */
+  private int getRunLength(int firstTarget, int itemCount) {
+    int firstIndex = indexByTarget[firstTarget];
+    int length = 1;
+
+    while (firstTarget + length < itemCount) {
+      int index = indexByTarget[firstTarget + length];
+      if (index != firstIndex + length || onLis[index]) {
+        break;
+      }
+      length++;
+    }
+
+    return length;
+  }
+
+  /**
+   * Removes a run and re-inserts it after the anchor group. None of the items in the run are on
+   * the subsequence, so nothing has been moved in between them and they are still next to each
+   * other.
+   */
+  private void moveRun(int firstIndex, int runLength, int anchorGroup, int slotCount,
+      UpdateOpHelper helper) {
+    int fromPosition = countOccupiedSlotsBefore(groupStarts[firstIndex + 1]);
+    for (int i = firstIndex; i < firstIndex + runLength; i++) {
+      updateSlot(groupStarts[i + 1], -1, slotCount);
+    }
+
+    int firstToSlot = groupStarts[anchorGroup] + (anchorGroup > 0 ? 1 : 0) + groupFill[anchorGroup];
+    int toPosition = countOccupiedSlotsBefore(firstToSlot);
+    for (int i = 0; i < runLength; i++) {
+      updateSlot(firstToSlot + i, 1, slotCount);
+    }
+    groupFill[anchorGroup] += runLength;
+
+    if (fromPosition != toPosition) {
+      helper.remove(fromPosition, runLength);
+      helper.add(toPosition, runLength);
+    }
+  }
+
+  /**
+   * Patience sort to find the longest increasing subsequence. The subsequence can be read back
+   * starting from the last tail and following {@link #lisPrevious}.
+   *
+   * @return The length of the subsequence.
+   */
+  private int findLongestIncreasingSubsequence(int[] values, int count) {
+    int length = 0;
+
+    for (int i = 0; i < count; i++) {
+      int value = values[i];
+
+      // Find the shortest subsequence whose tail is larger than this value
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (values[lisTails[mid]] < value) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+
+      lisPrevious[i] = low > 0 ? lisTails[low - 1] : -1;
+      lisTails[low] = i;
+      if (low == length) {
+        length++;
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * Each item has a slot for its original position, and each moved item gets a slot in the group
+   * of the subsequence item it is moved after. Groups are laid out in list order, with the moved
+   * items of a group ordered by their target position.
+   *
+   * @return The total number of slots.
+   */
+  private int layOutSlots(int itemCount) {
+    int groupCount = itemCount + 1;
+    for (int group = 0; group < groupCount; group++) {
+      groupFill[group] = 0;
+    }
+
+    int anchorGroup = 0;
+    for (int target = 0; target < itemCount; target++) {
+      int index = indexByTarget[target];
+      if (onLis[index]) {
+        anchorGroup = index + 1;
+      } else {
+        groupFill[anchorGroup]++;
+      }
+    }
+
+    int slot = 0;
+    for (int group = 0; group < groupCount; group++) {
+      groupStarts[group] = slot;
+      slot += (group > 0 ? 1 : 0) + groupFill[group];
+      groupFill[group] = 0;
+    }
+
+    return slot;
+  }
+
+  /** Mark the original slot of each item as occupied. This builds the tree in linear time. */
+  private void initSlotTree(int itemCount, int slotCount) {
+    for (int i = 1; i <= slotCount; i++) {
+      slotTree[i] = 0;
+    }
+
+    for (int i = 0; i < itemCount; i++) {
+      slotTree[groupStarts[i + 1] + 1] = 1;
+    }
+
+    for (int i = 1; i <= slotCount; i++) {
+      int parent = i + (i & -i);
+      if (parent <= slotCount) {
+        slotTree[parent] += slotTree[i];
+      }
+    }
+  }
+
+  private void updateSlot(int slot, int delta, int slotCount) {
+    for (int i = slot + 1; i <= slotCount; i += i & -i) {
+      slotTree[i] += delta;
+    }
+  }
+
+  private int countOccupiedSlotsBefore(int slot) {
+    int count = 0;
+    for (int i = slot; i > 0; i -= i & -i) {
+      count += slotTree[i];
+    }
+    return count;
+  }
+
+  private void ensureCapacity(int itemCount) {
+    if (lisTails.length >= itemCount) {
+      return;
+    }
+
+    targetPositions = new int[itemCount];
+    lisTails = new int[itemCount];
+    lisPrevious = new int[itemCount];
+    onLis = new boolean[itemCount];
+    indexByTarget = new int[itemCount];
+    groupStarts = new int[itemCount + 1];
+    groupFill = new int[itemCount + 1];
+    // Up to one slot per item plus one per moved item, and the tree is one based
+    slotTree = new int[itemCount * 2 + 1];
+  }
+}
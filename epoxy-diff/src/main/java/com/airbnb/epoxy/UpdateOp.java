@@ -2,6 +2,7 @@
 package com.airbnb.epoxy;
 
 import android.support.annotation.IntDef;
+import android.support.annotation.Nullable;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -22,6 +23,8 @@ class UpdateOp {
   int positionStart;
   /** Holds the target position if this is a MOVE */
   int itemCount;
+  /** The payload to notify an UPDATE with, or null if the items should be fully rebound. */
+  @Nullable Object payload;
 
   private UpdateOp() {
   }
@@ -63,6 +66,7 @@ class UpdateOp {
         + "type=" + type
         + ", positionStart=" + positionStart
         + ", itemCount=" + itemCount
+        + ", payload=" + payload
         + '}';
   }
 }
@@ -1,5 +1,7 @@
 package com.airbnb.epoxy;
 
+import android.support.annotation.Nullable;
+
 import com.airbnb.epoxy.UpdateOp.Type;
 
 import java.util.ArrayList;
@@ -10,23 +12,28 @@ import static com.airbnb.epoxy.UpdateOp.MOVE;
 import static com.airbnb.epoxy.UpdateOp.REMOVE;
 import static com.airbnb.epoxy.UpdateOp.UPDATE;
 
-/** Helper class to collect changes in a diff, batching when possible. */
+/**
+ * Helper class to collect changes in a diff, batching when possible. Operations are recycled when
+ * the helper is reset, so a helper that is reused across diffs doesn't allocate once it has seen
+ * as many operations as a diff needs.
+ */
 class UpdateOpHelper {
   final List<UpdateOp> opList = new ArrayList<>();
-  // We have to be careful to update all item positions in the list when we
-  // do a MOVE. This adds some complexity.
-  // To do this we keep track of all moves and apply them to an item when we
-  // need the up to date position
-  final List<UpdateOp> moves = new ArrayList<>();
+  private final List<UpdateOp> recycledOps = new ArrayList<>();
   private UpdateOp lastOp;
   private int numInsertions;
   private int numInsertionBatches;
   private int numRemovals;
   private int numRemovalBatches;
+  private int numMoves;
 
   void reset() {
+    // Not using addAll since it copies the list to an array
+    for (int i = 0; i < opList.size(); i++) {
+      recycledOps.add(opList.get(i));
+    }
     opList.clear();
-    moves.clear();
+    numMoves = 0;
     lastOp = null;
     numInsertions = 0;
     numInsertionBatches = 0;
@@ -57,10 +64,19 @@ class UpdateOpHelper {
     update(indexToChange, 1);
   }
 
+  void update(int indexToChange, @Nullable Object payload) {
+    update(indexToChange, 1, payload);
+  }
+
   void update(int startPosition, int itemCount) {
+    update(startPosition, itemCount, null);
+  }
+
+  /** Updates can only be batched together if they have equal payloads. */
+  void update(int startPosition, int itemCount, @Nullable Object payload) {
     boolean batchWithLast = false;
 
-    if (isLastOp(UPDATE)) {
+    if (isLastOp(UPDATE) && payloadsEqual(lastOp.payload, payload)) {
       int lastIndexInRange = startPosition + itemCount - 1;
 
       if (lastOp.contains(startPosition) && lastOp.contains(lastIndexInRange)) {
@@ -86,6 +102,11 @@ class UpdateOpHelper {
     }
 
     addOperation(UPDATE, startPosition, itemCount, batchWithLast);
+    lastOp.payload = payload;
+  }
+
+  private static boolean payloadsEqual(@Nullable Object payload, @Nullable Object otherPayload) {
+    return payload == null ? otherPayload == null : payload.equals(otherPayload);
   }
 
   void remove(int indexToRemove) {
@@ -123,7 +144,7 @@ class UpdateOpHelper {
     if (batchWithLast) {
       lastOp.itemCount += itemCount;
     } else {
-      lastOp = UpdateOp.instance(type, position, itemCount);
+      lastOp = obtainOp(type, position, itemCount);
       opList.add(lastOp);
     }
   }
@@ -131,9 +152,45 @@ class UpdateOpHelper {
   void move(int from, int to) {
     // We can't batch moves
     lastOp = null;
-    UpdateOp op = UpdateOp.instance(MOVE, from, to);
-    opList.add(op);
-    moves.add(op);
+    opList.add(obtainOp(MOVE, from, to));
+    numMoves++;
+  }
+
+  /** Sends each operation to the callback, in order. */
+  void dispatchTo(DiffCallback callback) {
+    // Not using an iterator so that dispatching doesn't allocate
+    for (int i = 0; i < opList.size(); i++) {
+      UpdateOp op = opList.get(i);
+      switch (op.type) {
+        case ADD:
+          callback.onInserted(op.positionStart, op.itemCount);
+          break;
+        case MOVE:
+          callback.onMoved(op.positionStart, op.itemCount);
+          break;
+        case REMOVE:
+          callback.onRemoved(op.positionStart, op.itemCount);
+          break;
+        case UPDATE:
+          callback.onChanged(op.positionStart, op.itemCount, op.payload);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown type: " + op.type);
+      }
+    }
+  }
+
+  private UpdateOp obtainOp(@Type int type, int positionStart, int itemCount) {
+    if (recycledOps.isEmpty()) {
+      return UpdateOp.instance(type, positionStart, itemCount);
+    }
+
+    UpdateOp op = recycledOps.remove(recycledOps.size() - 1);
+    op.type = type;
+    op.positionStart = positionStart;
+    op.itemCount = itemCount;
+    op.payload = null;
+    return op;
   }
 
   int getNumRemovals() {
@@ -153,7 +210,7 @@ class UpdateOpHelper {
   }
 
   int getNumMoves() {
-    return moves.size();
+    return numMoves;
   }
 
   int getNumInsertionBatches() {
@@ -0,0 +1,222 @@
+package com.airbnb.epoxy;
+
+import android.support.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ListDifferTest {
+  private final ListDiffer differ = new ListDiffer();
+  private final ApplyingCallback callback = new ApplyingCallback();
+
+  @Test
+  public void noChanges() {
+    diff(ids(1, 2, 3), ids(1, 2, 3));
+
+    assertEquals(0, callback.operations.size());
+  }
+
+  @Test
+  public void insertions() {
+    diff(ids(1, 2, 3), ids(0, 1, 2, 4, 5, 3));
+
+    assertEquals(Arrays.asList("insert 0 1", "insert 3 2"), callback.operations);
+  }
+
+  @Test
+  public void removals() {
+    diff(ids(1, 2, 3, 4, 5), ids(1, 4));
+
+    assertEquals(Arrays.asList("remove 1 2", "remove 2 1"), callback.operations);
+  }
+
+  @Test
+  public void move() {
+    diff(ids(1, 2, 3, 4), ids(2, 3, 4, 1));
+
+    assertEquals(Collections.singletonList("move 0 3"), callback.operations);
+  }
+
+  @Test
+  public void changesUseNewPositions() {
+    long[] oldIds = ids(1, 2, 3);
+    long[] newIds = ids(0, 1, 2, 3);
+    int[] newHashCodes = hashCodes(newIds);
+    newHashCodes[2]++;
+    newHashCodes[3]++;
+
+    callback.items.addAll(asList(oldIds));
+    differ.diff(oldIds, hashCodes(oldIds), newIds, newHashCodes, callback);
+
+    assertEquals(Arrays.asList("insert 0 1", "change 2 2"), callback.operations);
+  }
+
+  @Test
+  public void onlyTheGivenCountsAreDiffed() {
+    long[] oldIds = ids(1, 2, 3, 9);
+    long[] newIds = ids(3, 1, 9, 9);
+
+    callback.items.addAll(Arrays.asList(1L, 2L, 3L));
+    differ.diff(oldIds, hashCodes(oldIds), 3, newIds, hashCodes(newIds), 2, callback);
+
+    assertEquals(Arrays.asList("remove 1 1", "move 0 1"), callback.operations);
+    assertEquals(Arrays.asList(3L, 1L), callback.items);
+  }
+
+  @Test
+  public void moveBatching() {
+    differ.setBatchMoves(true);
+    diff(ids(1, 2, 3, 4, 5, 6), ids(4, 5, 6, 1, 2, 3));
+
+    assertEquals(Arrays.asList("remove 0 3", "insert 3 3"), callback.operations);
+  }
+
+  @Test
+  public void exceedingTheBudgetChangesTheWholeList() {
+    differ.setMaxOperations(1);
+    long[] oldIds = ids(1, 2, 3, 4);
+    long[] newIds = ids(4, 3, 2, 1, 5);
+
+    callback.items.addAll(asList(oldIds));
+    assertFalse(differ.diff(oldIds, hashCodes(oldIds), newIds, hashCodes(newIds), callback));
+
+    assertEquals(Arrays.asList("change 0 4", "insert 4 1"), callback.operations);
+    assertTrue(differ.getMetrics().exceededBudget());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeBudgetIsRejected() {
+    differ.setMaxOperations(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void duplicateIdsAreRejected() {
+    diff(ids(1, 2), ids(1, 2, 1));
+  }
+
+  @Test
+  public void metrics() {
+    diff(ids(1, 2, 3, 4), ids(2, 3, 4, 1, 5));
+
+    DiffMetrics metrics = differ.getMetrics();
+    assertEquals(DiffMetrics.PATH_FULL_DIFF, metrics.getPath());
+    assertFalse(metrics.exceededBudget());
+    assertEquals(5, metrics.getModelCount());
+    assertEquals(1, metrics.getAddCount());
+    assertEquals(1, metrics.getMoveCount());
+    assertEquals(0, metrics.getRemoveCount() + metrics.getUpdateCount());
+  }
+
+  @Test
+  public void randomChangesProduceTheNewList() {
+    Random random = new Random(6);
+    long nextId = 0;
+    List<Long> oldList = new ArrayList<>();
+
+    for (int diff = 0; diff < 200; diff++) {
+      List<Long> newList = new ArrayList<>(oldList);
+      Collections.shuffle(newList.subList(0, random.nextInt(newList.size() + 1)), random);
+      for (int i = random.nextInt(5); i > 0 && !newList.isEmpty(); i--) {
+        newList.remove(random.nextInt(newList.size()));
+      }
+      for (int i = random.nextInt(5); i > 0; i--) {
+        newList.add(random.nextInt(newList.size() + 1), nextId++);
+      }
+
+      differ.setBatchMoves(random.nextBoolean());
+      callback.reset();
+      diff(toArray(oldList), toArray(newList));
+      oldList = newList;
+    }
+  }
+
+  /**
+   * Diffs the two lists with unchanged hash codes, and checks that applying the operations to the
+   * old list gives the new one. Inserted items are empty, so they only need to be in the right
+   * place.
+   */
+  private void diff(long[] oldIds, long[] newIds) {
+    callback.items.addAll(asList(oldIds));
+    differ.diff(oldIds, hashCodes(oldIds), newIds, hashCodes(newIds), callback);
+
+    assertEquals(newIds.length, callback.items.size());
+    for (int i = 0; i < newIds.length; i++) {
+      Long item = callback.items.get(i);
+      assertTrue(item == null || item == newIds[i]);
+    }
+  }
+
+  private static long[] ids(long... ids) {
+    return ids;
+  }
+
+  private static int[] hashCodes(long[] ids) {
+    int[] hashCodes = new int[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      hashCodes[i] = (int) ids[i];
+    }
+    return hashCodes;
+  }
+
+  private static List<Long> asList(long[] ids) {
+    List<Long> list = new ArrayList<>();
+    for (long id : ids) {
+      list.add(id);
+    }
+    return list;
+  }
+
+  private static long[] toArray(List<Long> list) {
+    long[] ids = new long[list.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = list.get(i);
+    }
+    return ids;
+  }
+
+  /** Applies each operation to a list of ids, and records a description of it. */
+  private static class ApplyingCallback implements DiffCallback {
+    final List<Long> items = new ArrayList<>();
+    final List<String> operations = new ArrayList<>();
+
+    void reset() {
+      items.clear();
+      operations.clear();
+    }
+
+    @Override
+    public void onInserted(int positionStart, int itemCount) {
+      operations.add("insert " + positionStart + " " + itemCount);
+      // Inserted items are left empty, since the callback isn't told their ids
+      for (int i = 0; i < itemCount; i++) {
+        items.add(positionStart + i, null);
+      }
+    }
+
+    @Override
+    public void onRemoved(int positionStart, int itemCount) {
+      operations.add("remove " + positionStart + " " + itemCount);
+      items.subList(positionStart, positionStart + itemCount).clear();
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      operations.add("move " + fromPosition + " " + toPosition);
+      items.add(toPosition, items.remove(fromPosition));
+    }
+
+    @Override
+    public void onChanged(int positionStart, int itemCount, @Nullable Object payload) {
+      operations.add("change " + positionStart + " " + itemCount);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.airbnb.epoxy;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ModelStateMapTest {
+
+  private final ModelStateMap map = new ModelStateMap();
+
+  @Test
+  public void putAndGet() {
+    assertEquals(-1, map.put(5, 3));
+    assertEquals(3, map.get(5));
+    assertEquals(-1, map.get(6));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void putReplacesPreviousValue() {
+    map.put(-1, 0);
+
+    assertEquals(0, map.put(-1, 1));
+    assertEquals(1, map.get(-1));
+    assertEquals(1, map.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeIndexIsRejected() {
+    map.put(1, -1);
+  }
+
+  @Test
+  public void clearKeepsMapUsable() {
+    for (int i = 0; i < 100; i++) {
+      map.put(i, i);
+    }
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertEquals(-1, map.get(10));
+
+    map.put(10, 2);
+    assertEquals(2, map.get(10));
+  }
+
+  @Test
+  public void matchesHashMapWithRandomOperations() {
+    Map<Long, Integer> expected = new HashMap<>();
+    Random random = new Random(7);
+
+    for (int i = 0; i < 20000; i++) {
+      // A small key range so that removals often hit existing keys and probe clusters form
+      long key = random.nextInt(500) - 250;
+      if (random.nextBoolean()) {
+        assertEquals(valueOrMissing(expected.put(key, i)), map.put(key, i));
+      } else {
+        assertEquals(valueOrMissing(expected.remove(key)), map.remove(key));
+      }
+    }
+
+    assertEquals(expected.size(), map.size());
+    for (Entry<Long, Integer> entry : expected.entrySet()) {
+      assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+    }
+  }
+
+  private static int valueOrMissing(Integer value) {
+    return value == null ? -1 : value;
+  }
+}
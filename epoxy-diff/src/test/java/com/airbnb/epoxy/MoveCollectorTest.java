@@ -0,0 +1,187 @@
+package com.airbnb.epoxy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MoveCollectorTest {
+
+  private final MoveCollector moveCollector = new MoveCollector();
+  private final UpdateOpHelper helper = new UpdateOpHelper();
+
+  @Test
+  public void inOrderHasNoMoves() {
+    collectAndApply(0, 1, 2, 3, 4);
+    assertEquals(0, helper.getNumMoves());
+  }
+
+  @Test
+  public void moveFrontToEnd() {
+    collectAndApply(4, 0, 1, 2, 3);
+    assertEquals(1, helper.getNumMoves());
+    assertMove(helper.opList.get(0), 0, 4);
+  }
+
+  @Test
+  public void moveEndToFront() {
+    collectAndApply(1, 2, 3, 4, 0);
+    assertEquals(1, helper.getNumMoves());
+    assertMove(helper.opList.get(0), 4, 0);
+  }
+
+  @Test
+  public void reverse() {
+    collectAndApply(4, 3, 2, 1, 0);
+    assertEquals(4, helper.getNumMoves());
+  }
+
+  @Test
+  public void randomPermutationsUseFewestMoves() {
+    Random random = new Random(3);
+    for (int size = 1; size < 200; size += 7) {
+      List<Integer> permutation = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        permutation.add(i);
+      }
+      Collections.shuffle(permutation, random);
+
+      int[] targets = new int[size];
+      for (int i = 0; i < size; i++) {
+        targets[i] = permutation.get(i);
+      }
+
+      helper.reset();
+      collectAndApply(targets);
+      assertEquals(size - longestIncreasingSubsequence(targets), helper.getNumMoves());
+    }
+  }
+
+  @Test
+  public void runIsNotBatchedByDefault() {
+    collectAndApply(5, 6, 7, 0, 1, 2, 3, 4);
+    assertEquals(3, helper.getNumMoves());
+  }
+
+  @Test
+  public void batchedRunIsRemovedAndInserted() {
+    moveCollector.setBatchRuns(true);
+    collectAndApply(5, 6, 7, 0, 1, 2, 3, 4);
+
+    assertEquals(0, helper.getNumMoves());
+    assertEquals(2, helper.opList.size());
+    assertOp(helper.opList.get(0), UpdateOp.REMOVE, 0, 3);
+    assertOp(helper.opList.get(1), UpdateOp.ADD, 5, 3);
+  }
+
+  @Test
+  public void shortRunIsStillMoved() {
+    moveCollector.setBatchRuns(true);
+    collectAndApply(6, 7, 0, 1, 2, 3, 4, 5);
+    assertEquals(2, helper.getNumMoves());
+    assertEquals(2, helper.opList.size());
+  }
+
+  @Test
+  public void batchedRunsMixedWithMoves() {
+    moveCollector.setBatchRuns(true);
+    // A run of four moves to the end, a single item moves to the front
+    collectAndApply(6, 7, 8, 9, 1, 2, 3, 4, 5, 0);
+    assertEquals(1, helper.getNumMoves());
+    assertEquals(3, helper.opList.size());
+  }
+
+  @Test
+  public void randomPermutationsWithBatchedRuns() {
+    moveCollector.setBatchRuns(true);
+    Random random = new Random(5);
+    for (int size = 1; size < 200; size += 7) {
+      // Shuffle blocks of items so that there are runs to batch
+      List<Integer> permutation = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        permutation.add(i);
+      }
+      List<List<Integer>> blocks = new ArrayList<>();
+      for (int i = 0; i < size; i += 5) {
+        blocks.add(permutation.subList(i, Math.min(i + 5, size)));
+      }
+      Collections.shuffle(blocks, random);
+
+      int[] targets = new int[size];
+      int index = 0;
+      for (List<Integer> block : blocks) {
+        for (int target : block) {
+          targets[index++] = target;
+        }
+      }
+
+      helper.reset();
+      collectAndApply(targets);
+      assertTrue(helper.opList.size() <= size - longestIncreasingSubsequence(targets));
+    }
+  }
+
+  /**
+   * Collects moves for the targets and checks that applying them sorts the list. Batched runs are
+   * applied by carrying the removed items over to the following insertion.
+   */
+  private void collectAndApply(int... targets) {
+    moveCollector.collectMoves(targets, targets.length, helper);
+
+    List<Integer> list = new ArrayList<>(targets.length);
+    for (int target : targets) {
+      list.add(target);
+    }
+
+    List<Integer> removedRun = new ArrayList<>();
+    for (UpdateOp op : helper.opList) {
+      if (op.type == UpdateOp.REMOVE) {
+        List<Integer> range = list.subList(op.positionStart, op.positionEnd());
+        removedRun = new ArrayList<>(range);
+        range.clear();
+      } else if (op.type == UpdateOp.ADD) {
+        assertEquals(removedRun.size(), op.itemCount);
+        list.addAll(op.positionStart, removedRun);
+      } else {
+        assertEquals(UpdateOp.MOVE, op.type);
+        list.add(op.itemCount, list.remove(op.positionStart));
+      }
+    }
+
+    for (int i = 0; i < list.size(); i++) {
+      assertEquals(i, (int) list.get(i));
+    }
+  }
+
+  private static void assertOp(UpdateOp op, int type, int positionStart, int itemCount) {
+    assertEquals(type, op.type);
+    assertEquals(positionStart, op.positionStart);
+    assertEquals(itemCount, op.itemCount);
+  }
+
+  private static void assertMove(UpdateOp op, int from, int to) {
+    assertEquals(UpdateOp.MOVE, op.type);
+    assertEquals(from, op.positionStart);
+    assertEquals(to, op.itemCount);
+  }
+
+  private static int longestIncreasingSubsequence(int[] values) {
+    int[] lengths = new int[values.length];
+    int longest = 0;
+    for (int i = 0; i < values.length; i++) {
+      lengths[i] = 1;
+      for (int j = 0; j < i; j++) {
+        if (values[j] < values[i] && lengths[j] + 1 > lengths[i]) {
+          lengths[i] = lengths[j] + 1;
+        }
+      }
+      longest = Math.max(longest, lengths[i]);
+    }
+    return longest;
+  }
+}
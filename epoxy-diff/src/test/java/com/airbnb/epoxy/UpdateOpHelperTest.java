@@ -1,15 +1,11 @@
 package com.airbnb.epoxy;
 
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.robolectric.annotation.Config;
 
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 
-@Config(sdk = 21, manifest = TestRunner.MANIFEST_PATH)
-@RunWith(TestRunner.class)
 public class UpdateOpHelperTest {
 
   private final UpdateOpHelper helper = new UpdateOpHelper();
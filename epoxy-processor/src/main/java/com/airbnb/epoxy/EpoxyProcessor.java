@@ -6,12 +6,16 @@ import com.airbnb.epoxy.ClassToGenerateInfo.ConstructorInfo;
 import com.airbnb.epoxy.ClassToGenerateInfo.MethodInfo;
 import com.google.auto.service.AutoService;
 import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.MethodSpec.Builder;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
@@ -74,6 +78,10 @@ public class EpoxyProcessor extends AbstractProcessor {
 
   private static final String CREATE_NEW_HOLDER_METHOD_NAME = "createNewHolder";
   private static final String GET_DEFAULT_LAYOUT_METHOD_NAME = "getDefaultLayout";
+  private static final TypeName EPOXY_MODEL_WILDCARD_TYPE = ParameterizedTypeName.get(
+      ClassName.get("com.airbnb.epoxy", "EpoxyModel"), WildcardTypeName.subtypeOf(Object.class));
+  /** Attributes past this many share the last bit of the mask returned by diffAttributes. */
+  private static final int MAX_ATTRIBUTE_BITS = 64;
 
   private Filer filer;
   private Messager messager;
@@ -381,18 +389,27 @@ public class EpoxyProcessor extends AbstractProcessor {
       return;
     }
 
-    TypeSpec generatedClass = TypeSpec.classBuilder(info.getGeneratedName())
+    List<AttributeInfo> comparedAttributes = getComparedAttributes(info);
+
+    TypeSpec.Builder builder = TypeSpec.classBuilder(info.getGeneratedName())
         .addJavadoc("Generated file. Do not modify!")
         .addModifiers(Modifier.PUBLIC)
         .superclass(info.getOriginalClassName())
         .addTypeVariables(info.getTypeVariables())
+        .addFields(generateChangedAttributeConstants(comparedAttributes))
         .addMethods(generateConstructors(info))
         .addMethods(generateSettersAndGetters(info))
         .addMethods(generateMethodsReturningClassType(info))
         .addMethods(generateDefaultMethodImplementations(info))
         .addMethod(generateReset(info))
         .addMethod(generateEquals(info))
-        .addMethod(generateHashCode(info))
+        .addMethod(generateHashCode(info));
+
+    if (!comparedAttributes.isEmpty()) {
+      builder.addMethod(generateDiffAttributes(info, comparedAttributes));
+    }
+
+    TypeSpec generatedClass = builder
         .addMethod(generateToString(info))
         .build();
 
@@ -627,51 +644,113 @@ public class EpoxyProcessor extends AbstractProcessor {
         .addStatement("$T that = ($T) o", helperClass.getGeneratedName(),
             helperClass.getGeneratedName());
 
-    for (AttributeInfo attributeInfo : helperClass.getAttributeInfo()) {
-      TypeName type = attributeInfo.getType();
+    for (AttributeInfo attributeInfo : getComparedAttributes(helperClass)) {
+      beginAttributeChangedCheck(builder, attributeInfo)
+          .addStatement("return false")
+          .endControlFlow();
+    }
 
-      if (!attributeInfo.useInHash() && type.isPrimitive()) {
-        continue;
+    return builder
+        .addStatement("return true")
+        .build();
+  }
+
+  /**
+   * The attributes that affect equals and hashCode. Attributes that aren't hashed are still checked
+   * for nullness, but primitives that aren't hashed are ignored entirely.
+   */
+  private static List<AttributeInfo> getComparedAttributes(ClassToGenerateInfo helperClass) {
+    List<AttributeInfo> attributes = new ArrayList<>();
+    for (AttributeInfo attributeInfo : helperClass.getAttributeInfo()) {
+      if (isCompared(attributeInfo)) {
+        attributes.add(attributeInfo);
       }
+    }
+    return attributes;
+  }
 
-      String name = attributeInfo.getName();
+  /** Whether the attribute is compared by equals, and so has a bit in diffAttributes. */
+  private static boolean isCompared(AttributeInfo attributeInfo) {
+    return attributeInfo.useInHash() || !attributeInfo.getType().isPrimitive();
+  }
 
-      if (attributeInfo.useInHash()) {
-        if (type == FLOAT) {
-          builder.beginControlFlow("if (Float.compare(that.$L, $L) != 0)", name, name)
-              .addStatement("return false")
-              .endControlFlow();
-        } else if (type == DOUBLE) {
-          builder.beginControlFlow("if (Double.compare(that.$L, $L) != 0)", name, name)
-              .addStatement("return false")
-              .endControlFlow();
-        } else if (type.isPrimitive()) {
-          builder.beginControlFlow("if ($L != that.$L)", name, name)
-              .addStatement("return false")
-              .endControlFlow();
-        } else if (type instanceof ArrayTypeName) {
-          builder.beginControlFlow("if (!$T.equals($L, that.$L))", TypeName.get(Arrays.class), name,
-              name)
-              .addStatement("return false")
-              .endControlFlow();
-        } else {
-          builder
-              .beginControlFlow("if ($L != null ? !$L.equals(that.$L) : that.$L != null)",
-                  name, name, name, name)
-              .addStatement("return false")
-              .endControlFlow();
-        }
-      } else {
-        builder.beginControlFlow("if ($L != null && that.$L == null"
-                + " || $L == null && that.$L != null)",
-            name, name, name, name)
-            .addStatement("return false")
-            .endControlFlow();
-      }
+  /**
+   * Begins a control flow that is entered if the given attribute differs between this model and
+   * another one named "that". The caller must end the control flow.
+   */
+  private static Builder beginAttributeChangedCheck(Builder builder, AttributeInfo attributeInfo) {
+    TypeName type = attributeInfo.getType();
+    String name = attributeInfo.getName();
+
+    if (!attributeInfo.useInHash()) {
+      return builder.beginControlFlow("if ($L != null && that.$L == null"
+              + " || $L == null && that.$L != null)",
+          name, name, name, name);
+    }
+
+    if (type == FLOAT) {
+      return builder.beginControlFlow("if (Float.compare(that.$L, $L) != 0)", name, name);
+    } else if (type == DOUBLE) {
+      return builder.beginControlFlow("if (Double.compare(that.$L, $L) != 0)", name, name);
+    } else if (type.isPrimitive()) {
+      return builder.beginControlFlow("if ($L != that.$L)", name, name);
+    } else if (type instanceof ArrayTypeName) {
+      return builder.beginControlFlow("if (!$T.equals($L, that.$L))", TypeName.get(Arrays.class),
+          name, name);
+    } else {
+      return builder.beginControlFlow("if ($L != null ? !$L.equals(that.$L) : that.$L != null)",
+          name, name, name, name);
+    }
+  }
+
+  /**
+   * Generates a constant for each compared attribute, which is the bit that is set for that
+   * attribute in the mask returned by diffAttributes.
+   */
+  private static List<FieldSpec> generateChangedAttributeConstants(
+      List<AttributeInfo> comparedAttributes) {
+    List<FieldSpec> fields = new ArrayList<>(comparedAttributes.size());
+
+    for (int i = 0; i < comparedAttributes.size(); i++) {
+      AttributeInfo attributeInfo = comparedAttributes.get(i);
+      int bit = Math.min(i, MAX_ATTRIBUTE_BITS - 1);
+      fields.add(FieldSpec.builder(long.class, getChangedAttributeConstantName(attributeInfo),
+          Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+          .initializer("1L << $L", bit)
+          .build());
+    }
+
+    return fields;
+  }
+
+  /** For example an attribute named "likeCount" has the constant "LIKE_COUNT_CHANGED". */
+  private static String getChangedAttributeConstantName(AttributeInfo attributeInfo) {
+    return attributeInfo.getName().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase()
+        + "_CHANGED";
+  }
+
+  private MethodSpec generateDiffAttributes(ClassToGenerateInfo helperClass,
+      List<AttributeInfo> comparedAttributes) {
+    Builder builder = MethodSpec.methodBuilder("diffAttributes")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(long.class)
+        .addParameter(EPOXY_MODEL_WILDCARD_TYPE, "other")
+        .beginControlFlow("if (!(other instanceof $T))", helperClass.getGeneratedName())
+        .addStatement("return 0")
+        .endControlFlow()
+        .addStatement("$T that = ($T) other", helperClass.getGeneratedName(),
+            helperClass.getGeneratedName())
+        .addStatement("long changedAttributes = 0");
+
+    for (AttributeInfo attributeInfo : comparedAttributes) {
+      beginAttributeChangedCheck(builder, attributeInfo)
+          .addStatement("changedAttributes |= $L", getChangedAttributeConstantName(attributeInfo))
+          .endControlFlow();
     }
 
     return builder
-        .addStatement("return true")
+        .addStatement("return changedAttributes")
         .build();
   }
 
@@ -775,6 +854,14 @@ public class EpoxyProcessor extends AbstractProcessor {
             .addAnnotations(data.getSetterAnnotations()).build())
         .addStatement("this.$L = $L", attributeName, attributeName);
 
+    if (isCompared(data)) {
+      // Recording the attribute lets a model that is changed in place still be notified with a
+      // payload of its changed attributes, since there is no previous instance to compare to
+      builder.addStatement("markDirty($L)", getChangedAttributeConstantName(data));
+    } else {
+      builder.addStatement("markDirty()");
+    }
+
     if (data.hasSuperSetterMethod()) {
       builder.addStatement("super.$L($L)", attributeName, attributeName);
     }
@@ -9,12 +9,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class AbstractModelWithHolder_ extends AbstractModelWithHolder {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public AbstractModelWithHolder_() {
     super();
   }
 
   public AbstractModelWithHolder_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -101,6 +104,19 @@ public class AbstractModelWithHolder_ extends AbstractModelWithHolder {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof AbstractModelWithHolder_)) {
+      return 0;
+    }
+    AbstractModelWithHolder_ that = (AbstractModelWithHolder_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "AbstractModelWithHolder_{" +
@@ -10,12 +10,15 @@ import java.lang.String;
  * Generated file. Do not modify!
  */
 public class BasicModelWithAttribute_ extends BasicModelWithAttribute {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public BasicModelWithAttribute_() {
     super();
   }
 
   public BasicModelWithAttribute_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -97,6 +100,19 @@ public class BasicModelWithAttribute_ extends BasicModelWithAttribute {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof BasicModelWithAttribute_)) {
+      return 0;
+    }
+    BasicModelWithAttribute_ that = (BasicModelWithAttribute_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "BasicModelWithAttribute_{" +
@@ -9,12 +9,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class GenerateDefaultLayoutMethodNextParentLayout$NoLayout_ extends GenerateDefaultLayoutMethodNextParentLayout.NoLayout {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public GenerateDefaultLayoutMethodNextParentLayout$NoLayout_() {
     super();
   }
 
   public GenerateDefaultLayoutMethodNextParentLayout$NoLayout_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -102,6 +105,19 @@ public class GenerateDefaultLayoutMethodNextParentLayout$NoLayout_ extends Gener
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof GenerateDefaultLayoutMethodNextParentLayout$NoLayout_)) {
+      return 0;
+    }
+    GenerateDefaultLayoutMethodNextParentLayout$NoLayout_ that = (GenerateDefaultLayoutMethodNextParentLayout$NoLayout_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "GenerateDefaultLayoutMethodNextParentLayout$NoLayout_{" +
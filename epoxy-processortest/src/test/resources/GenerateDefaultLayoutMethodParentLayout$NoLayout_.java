@@ -9,12 +9,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class GenerateDefaultLayoutMethodParentLayout$NoLayout_ extends GenerateDefaultLayoutMethodParentLayout.NoLayout {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public GenerateDefaultLayoutMethodParentLayout$NoLayout_() {
     super();
   }
 
   public GenerateDefaultLayoutMethodParentLayout$NoLayout_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -102,6 +105,19 @@ public class GenerateDefaultLayoutMethodParentLayout$NoLayout_ extends GenerateD
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof GenerateDefaultLayoutMethodParentLayout$NoLayout_)) {
+      return 0;
+    }
+    GenerateDefaultLayoutMethodParentLayout$NoLayout_ that = (GenerateDefaultLayoutMethodParentLayout$NoLayout_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "GenerateDefaultLayoutMethodParentLayout$NoLayout_{" +
@@ -10,12 +10,15 @@ import java.lang.String;
  * Generated file. Do not modify!
  */
 public class GenerateDefaultLayoutMethod_ extends GenerateDefaultLayoutMethod {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public GenerateDefaultLayoutMethod_() {
     super();
   }
 
   public GenerateDefaultLayoutMethod_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -103,6 +106,19 @@ public class GenerateDefaultLayoutMethod_ extends GenerateDefaultLayoutMethod {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof GenerateDefaultLayoutMethod_)) {
+      return 0;
+    }
+    GenerateDefaultLayoutMethod_ that = (GenerateDefaultLayoutMethod_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "GenerateDefaultLayoutMethod_{" +
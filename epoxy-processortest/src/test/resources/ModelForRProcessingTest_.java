@@ -10,12 +10,15 @@ import java.lang.String;
  * Generated file. Do not modify!
  */
 public class ModelForRProcessingTest_ extends ModelForRProcessingTest {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public ModelForRProcessingTest_() {
     super();
   }
 
   public ModelForRProcessingTest_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -103,6 +106,19 @@ public class ModelForRProcessingTest_ extends ModelForRProcessingTest {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelForRProcessingTest_)) {
+      return 0;
+    }
+    ModelForRProcessingTest_ that = (ModelForRProcessingTest_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelForRProcessingTest_{" +
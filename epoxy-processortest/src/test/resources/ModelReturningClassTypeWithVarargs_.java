@@ -10,12 +10,15 @@ import java.lang.String;
  * Generated file. Do not modify!
  */
 public class ModelReturningClassTypeWithVarargs_ extends ModelReturningClassTypeWithVarargs {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public ModelReturningClassTypeWithVarargs_() {
     super();
   }
 
   public ModelReturningClassTypeWithVarargs_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -109,6 +112,19 @@ public class ModelReturningClassTypeWithVarargs_ extends ModelReturningClassType
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelReturningClassTypeWithVarargs_)) {
+      return 0;
+    }
+    ModelReturningClassTypeWithVarargs_ that = (ModelReturningClassTypeWithVarargs_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelReturningClassTypeWithVarargs_{" +
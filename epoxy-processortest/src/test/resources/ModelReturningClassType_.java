@@ -11,12 +11,15 @@ import java.util.List;
  * Generated file. Do not modify!
  */
 public class ModelReturningClassType_ extends ModelReturningClassType {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public ModelReturningClassType_() {
     super();
   }
 
   public ModelReturningClassType_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -116,6 +119,19 @@ public class ModelReturningClassType_ extends ModelReturningClassType {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelReturningClassType_)) {
+      return 0;
+    }
+    ModelReturningClassType_ that = (ModelReturningClassType_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelReturningClassType_{" +
@@ -19,12 +19,55 @@ import java.util.List;
 /**
  * Generated file. Do not modify! */
 public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
+  public static final long VALUE_INTEGER_CHANGED = 1L << 0;
+
+  public static final long VALUE_SHORT_CHANGED = 1L << 1;
+
+  public static final long VALUE_LONG_CHANGED = 1L << 2;
+
+  public static final long VALUE_LIST_CHANGED = 1L << 3;
+
+  public static final long VALUE_SHORT_WRAPPER_CHANGED = 1L << 4;
+
+  public static final long VALUE_DOUBLE_CHANGED = 1L << 5;
+
+  public static final long VALUE_CHAR_CHANGED = 1L << 6;
+
+  public static final long VALUE_INT_CHANGED = 1L << 7;
+
+  public static final long VALUE_DOUBLE_WRAPPER_CHANGED = 1L << 8;
+
+  public static final long VALUE_FLOAT_WRAPPER_CHANGED = 1L << 9;
+
+  public static final long VALUE_BOOLEAN_WRAPPER_CHANGED = 1L << 10;
+
+  public static final long VALUE_BYTE_WRAPPER_CHANGED = 1L << 11;
+
+  public static final long VALUEB_BYTE_CHANGED = 1L << 12;
+
+  public static final long VALUE_LONG_WRAPPER_CHANGED = 1L << 13;
+
+  public static final long VALUE_CHARACTER_CHANGED = 1L << 14;
+
+  public static final long VALUE_STRING_CHANGED = 1L << 15;
+
+  public static final long VALUE_FLOAT_CHANGED = 1L << 16;
+
+  public static final long VALUE_BOOLEAN_CHANGED = 1L << 17;
+
+  public static final long VALUE_OBJECT_ARRAY_CHANGED = 1L << 18;
+
+  public static final long VALUE_OBJECT_CHANGED = 1L << 19;
+
+  public static final long VALUE_INT_ARRAY_CHANGED = 1L << 20;
+
   public ModelWithAllFieldTypes_() {
     super();
   }
 
   public ModelWithAllFieldTypes_ valueInteger(Integer valueInteger) {
     this.valueInteger = valueInteger;
+    markDirty(VALUE_INTEGER_CHANGED);
     return this;
   }
 
@@ -34,6 +77,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueShort(short valueShort) {
     this.valueShort = valueShort;
+    markDirty(VALUE_SHORT_CHANGED);
     return this;
   }
 
@@ -43,6 +87,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueLong(long valueLong) {
     this.valueLong = valueLong;
+    markDirty(VALUE_LONG_CHANGED);
     return this;
   }
 
@@ -52,6 +97,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueList(List<String> valueList) {
     this.valueList = valueList;
+    markDirty(VALUE_LIST_CHANGED);
     return this;
   }
 
@@ -61,6 +107,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueShortWrapper(Short valueShortWrapper) {
     this.valueShortWrapper = valueShortWrapper;
+    markDirty(VALUE_SHORT_WRAPPER_CHANGED);
     return this;
   }
 
@@ -70,6 +117,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueDouble(double valueDouble) {
     this.valueDouble = valueDouble;
+    markDirty(VALUE_DOUBLE_CHANGED);
     return this;
   }
 
@@ -79,6 +127,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueChar(char valueChar) {
     this.valueChar = valueChar;
+    markDirty(VALUE_CHAR_CHANGED);
     return this;
   }
 
@@ -88,6 +137,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueInt(int valueInt) {
     this.valueInt = valueInt;
+    markDirty(VALUE_INT_CHANGED);
     return this;
   }
 
@@ -97,6 +147,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueDoubleWrapper(Double valueDoubleWrapper) {
     this.valueDoubleWrapper = valueDoubleWrapper;
+    markDirty(VALUE_DOUBLE_WRAPPER_CHANGED);
     return this;
   }
 
@@ -106,6 +157,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueFloatWrapper(Float valueFloatWrapper) {
     this.valueFloatWrapper = valueFloatWrapper;
+    markDirty(VALUE_FLOAT_WRAPPER_CHANGED);
     return this;
   }
 
@@ -115,6 +167,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueBooleanWrapper(Boolean valueBooleanWrapper) {
     this.valueBooleanWrapper = valueBooleanWrapper;
+    markDirty(VALUE_BOOLEAN_WRAPPER_CHANGED);
     return this;
   }
 
@@ -124,6 +177,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueByteWrapper(Byte valueByteWrapper) {
     this.valueByteWrapper = valueByteWrapper;
+    markDirty(VALUE_BYTE_WRAPPER_CHANGED);
     return this;
   }
 
@@ -133,6 +187,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valuebByte(byte valuebByte) {
     this.valuebByte = valuebByte;
+    markDirty(VALUEB_BYTE_CHANGED);
     return this;
   }
 
@@ -142,6 +197,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueLongWrapper(Long valueLongWrapper) {
     this.valueLongWrapper = valueLongWrapper;
+    markDirty(VALUE_LONG_WRAPPER_CHANGED);
     return this;
   }
 
@@ -151,6 +207,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueCharacter(Character valueCharacter) {
     this.valueCharacter = valueCharacter;
+    markDirty(VALUE_CHARACTER_CHANGED);
     return this;
   }
 
@@ -160,6 +217,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueString(String valueString) {
     this.valueString = valueString;
+    markDirty(VALUE_STRING_CHANGED);
     return this;
   }
 
@@ -169,6 +227,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueFloat(float valueFloat) {
     this.valueFloat = valueFloat;
+    markDirty(VALUE_FLOAT_CHANGED);
     return this;
   }
 
@@ -178,6 +237,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueBoolean(boolean valueBoolean) {
     this.valueBoolean = valueBoolean;
+    markDirty(VALUE_BOOLEAN_CHANGED);
     return this;
   }
 
@@ -187,6 +247,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueObjectArray(Object[] valueObjectArray) {
     this.valueObjectArray = valueObjectArray;
+    markDirty(VALUE_OBJECT_ARRAY_CHANGED);
     return this;
   }
 
@@ -196,6 +257,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueObject(Object valueObject) {
     this.valueObject = valueObject;
+    markDirty(VALUE_OBJECT_CHANGED);
     return this;
   }
 
@@ -205,6 +267,7 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
 
   public ModelWithAllFieldTypes_ valueIntArray(int[] valueIntArray) {
     this.valueIntArray = valueIntArray;
+    markDirty(VALUE_INT_ARRAY_CHANGED);
     return this;
   }
 
@@ -388,6 +451,79 @@ public class ModelWithAllFieldTypes_ extends ModelWithAllFieldTypes {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithAllFieldTypes_)) {
+      return 0;
+    }
+    ModelWithAllFieldTypes_ that = (ModelWithAllFieldTypes_) other;
+    long changedAttributes = 0;
+    if (valueInteger != null ? !valueInteger.equals(that.valueInteger) : that.valueInteger != null) {
+      changedAttributes |= VALUE_INTEGER_CHANGED;
+    }
+    if (valueShort != that.valueShort) {
+      changedAttributes |= VALUE_SHORT_CHANGED;
+    }
+    if (valueLong != that.valueLong) {
+      changedAttributes |= VALUE_LONG_CHANGED;
+    }
+    if (valueList != null ? !valueList.equals(that.valueList) : that.valueList != null) {
+      changedAttributes |= VALUE_LIST_CHANGED;
+    }
+    if (valueShortWrapper != null ? !valueShortWrapper.equals(that.valueShortWrapper) : that.valueShortWrapper != null) {
+      changedAttributes |= VALUE_SHORT_WRAPPER_CHANGED;
+    }
+    if (Double.compare(that.valueDouble, valueDouble) != 0) {
+      changedAttributes |= VALUE_DOUBLE_CHANGED;
+    }
+    if (valueChar != that.valueChar) {
+      changedAttributes |= VALUE_CHAR_CHANGED;
+    }
+    if (valueInt != that.valueInt) {
+      changedAttributes |= VALUE_INT_CHANGED;
+    }
+    if (valueDoubleWrapper != null ? !valueDoubleWrapper.equals(that.valueDoubleWrapper) : that.valueDoubleWrapper != null) {
+      changedAttributes |= VALUE_DOUBLE_WRAPPER_CHANGED;
+    }
+    if (valueFloatWrapper != null ? !valueFloatWrapper.equals(that.valueFloatWrapper) : that.valueFloatWrapper != null) {
+      changedAttributes |= VALUE_FLOAT_WRAPPER_CHANGED;
+    }
+    if (valueBooleanWrapper != null ? !valueBooleanWrapper.equals(that.valueBooleanWrapper) : that.valueBooleanWrapper != null) {
+      changedAttributes |= VALUE_BOOLEAN_WRAPPER_CHANGED;
+    }
+    if (valueByteWrapper != null ? !valueByteWrapper.equals(that.valueByteWrapper) : that.valueByteWrapper != null) {
+      changedAttributes |= VALUE_BYTE_WRAPPER_CHANGED;
+    }
+    if (valuebByte != that.valuebByte) {
+      changedAttributes |= VALUEB_BYTE_CHANGED;
+    }
+    if (valueLongWrapper != null ? !valueLongWrapper.equals(that.valueLongWrapper) : that.valueLongWrapper != null) {
+      changedAttributes |= VALUE_LONG_WRAPPER_CHANGED;
+    }
+    if (valueCharacter != null ? !valueCharacter.equals(that.valueCharacter) : that.valueCharacter != null) {
+      changedAttributes |= VALUE_CHARACTER_CHANGED;
+    }
+    if (valueString != null ? !valueString.equals(that.valueString) : that.valueString != null) {
+      changedAttributes |= VALUE_STRING_CHANGED;
+    }
+    if (Float.compare(that.valueFloat, valueFloat) != 0) {
+      changedAttributes |= VALUE_FLOAT_CHANGED;
+    }
+    if (valueBoolean != that.valueBoolean) {
+      changedAttributes |= VALUE_BOOLEAN_CHANGED;
+    }
+    if (!Arrays.equals(valueObjectArray, that.valueObjectArray)) {
+      changedAttributes |= VALUE_OBJECT_ARRAY_CHANGED;
+    }
+    if (valueObject != null ? !valueObject.equals(that.valueObject) : that.valueObject != null) {
+      changedAttributes |= VALUE_OBJECT_CHANGED;
+    }
+    if (!Arrays.equals(valueIntArray, that.valueIntArray)) {
+      changedAttributes |= VALUE_INT_ARRAY_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithAllFieldTypes_{" +
@@ -9,12 +9,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithAnnotatedClassAndSuperAttributes_ extends ModelWithAnnotatedClassAndSuperAttributes {
+  public static final long SUPER_VALUE_CHANGED = 1L << 0;
+
   public ModelWithAnnotatedClassAndSuperAttributes_() {
     super();
   }
 
   public ModelWithAnnotatedClassAndSuperAttributes_ superValue(int superValue) {
     this.superValue = superValue;
+    markDirty(SUPER_VALUE_CHANGED);
     return this;
   }
 
@@ -97,6 +100,19 @@ public class ModelWithAnnotatedClassAndSuperAttributes_ extends ModelWithAnnotat
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithAnnotatedClassAndSuperAttributes_)) {
+      return 0;
+    }
+    ModelWithAnnotatedClassAndSuperAttributes_ that = (ModelWithAnnotatedClassAndSuperAttributes_) other;
+    long changedAttributes = 0;
+    if (superValue != that.superValue) {
+      changedAttributes |= SUPER_VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithAnnotatedClassAndSuperAttributes_{" +
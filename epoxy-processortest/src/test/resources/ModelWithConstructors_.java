@@ -9,6 +9,8 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithConstructors_ extends ModelWithConstructors {
+  public static final long VALUE_INT_CHANGED = 1L << 0;
+
   public ModelWithConstructors_(long id, int valueInt) {
     super(id, valueInt);
   }
@@ -23,6 +25,7 @@ public class ModelWithConstructors_ extends ModelWithConstructors {
 
   public ModelWithConstructors_ valueInt(int valueInt) {
     this.valueInt = valueInt;
+    markDirty(VALUE_INT_CHANGED);
     return this;
   }
 
@@ -104,6 +107,19 @@ public class ModelWithConstructors_ extends ModelWithConstructors {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithConstructors_)) {
+      return 0;
+    }
+    ModelWithConstructors_ that = (ModelWithConstructors_) other;
+    long changedAttributes = 0;
+    if (valueInt != that.valueInt) {
+      changedAttributes |= VALUE_INT_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithConstructors_{" +
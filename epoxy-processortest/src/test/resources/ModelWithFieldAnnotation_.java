@@ -10,12 +10,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithFieldAnnotation_ extends ModelWithFieldAnnotation {
+  public static final long TITLE_CHANGED = 1L << 0;
+
   public ModelWithFieldAnnotation_() {
     super();
   }
 
   public ModelWithFieldAnnotation_ title(@Nullable String title) {
     this.title = title;
+    markDirty(TITLE_CHANGED);
     return this;
   }
 
@@ -98,6 +101,19 @@ public class ModelWithFieldAnnotation_ extends ModelWithFieldAnnotation {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithFieldAnnotation_)) {
+      return 0;
+    }
+    ModelWithFieldAnnotation_ that = (ModelWithFieldAnnotation_) other;
+    long changedAttributes = 0;
+    if (title != null ? !title.equals(that.title) : that.title != null) {
+      changedAttributes |= TITLE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithFieldAnnotation_{" +
@@ -9,6 +9,8 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithFinalField_ extends ModelWithFinalField {
+  public static final long VALUE_INT_CHANGED = 1L << 0;
+
   public ModelWithFinalField_(long id, int valueInt) {
     super(id, valueInt);
   }
@@ -90,6 +92,19 @@ public class ModelWithFinalField_ extends ModelWithFinalField {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithFinalField_)) {
+      return 0;
+    }
+    ModelWithFinalField_ that = (ModelWithFinalField_) other;
+    long changedAttributes = 0;
+    if (valueInt != that.valueInt) {
+      changedAttributes |= VALUE_INT_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithFinalField_{" +
@@ -1,6 +1,7 @@
 package com.airbnb.epoxy.models;
 
 import android.support.annotation.LayoutRes;
+import com.airbnb.epoxy.EpoxyModel;
 import java.lang.CharSequence;
 import java.lang.Object;
 import java.lang.Override;
@@ -9,12 +10,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithIntDef_ extends ModelWithIntDef {
+  public static final long TYPE_CHANGED = 1L << 0;
+
   public ModelWithIntDef_() {
     super();
   }
 
   public ModelWithIntDef_ type(@ModelWithIntDef.MyType int type) {
     this.type = type;
+    markDirty(TYPE_CHANGED);
     return this;
   }
 
@@ -97,6 +101,19 @@ public class ModelWithIntDef_ extends ModelWithIntDef {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithIntDef_)) {
+      return 0;
+    }
+    ModelWithIntDef_ that = (ModelWithIntDef_) other;
+    long changedAttributes = 0;
+    if (type != that.type) {
+      changedAttributes |= TYPE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithIntDef_{" +
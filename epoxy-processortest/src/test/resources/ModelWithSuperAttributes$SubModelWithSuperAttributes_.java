@@ -9,12 +9,17 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithSuperAttributes$SubModelWithSuperAttributes_ extends ModelWithSuperAttributes.SubModelWithSuperAttributes {
+  public static final long SUB_VALUE_CHANGED = 1L << 0;
+
+  public static final long SUPER_VALUE_CHANGED = 1L << 1;
+
   public ModelWithSuperAttributes$SubModelWithSuperAttributes_() {
     super();
   }
 
   public ModelWithSuperAttributes$SubModelWithSuperAttributes_ subValue(int subValue) {
     this.subValue = subValue;
+    markDirty(SUB_VALUE_CHANGED);
     return this;
   }
 
@@ -24,6 +29,7 @@ public class ModelWithSuperAttributes$SubModelWithSuperAttributes_ extends Model
 
   public ModelWithSuperAttributes$SubModelWithSuperAttributes_ superValue(int superValue) {
     this.superValue = superValue;
+    markDirty(SUPER_VALUE_CHANGED);
     return this;
   }
 
@@ -111,6 +117,22 @@ public class ModelWithSuperAttributes$SubModelWithSuperAttributes_ extends Model
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithSuperAttributes$SubModelWithSuperAttributes_)) {
+      return 0;
+    }
+    ModelWithSuperAttributes$SubModelWithSuperAttributes_ that = (ModelWithSuperAttributes$SubModelWithSuperAttributes_) other;
+    long changedAttributes = 0;
+    if (subValue != that.subValue) {
+      changedAttributes |= SUB_VALUE_CHANGED;
+    }
+    if (superValue != that.superValue) {
+      changedAttributes |= SUPER_VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithSuperAttributes$SubModelWithSuperAttributes_{" +
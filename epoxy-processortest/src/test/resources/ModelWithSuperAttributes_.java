@@ -9,12 +9,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithSuperAttributes_ extends ModelWithSuperAttributes {
+  public static final long SUPER_VALUE_CHANGED = 1L << 0;
+
   public ModelWithSuperAttributes_() {
     super();
   }
 
   public ModelWithSuperAttributes_ superValue(int superValue) {
     this.superValue = superValue;
+    markDirty(SUPER_VALUE_CHANGED);
     return this;
   }
 
@@ -96,6 +99,19 @@ public class ModelWithSuperAttributes_ extends ModelWithSuperAttributes {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithSuperAttributes_)) {
+      return 0;
+    }
+    ModelWithSuperAttributes_ that = (ModelWithSuperAttributes_) other;
+    long changedAttributes = 0;
+    if (superValue != that.superValue) {
+      changedAttributes |= SUPER_VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithSuperAttributes_{" +
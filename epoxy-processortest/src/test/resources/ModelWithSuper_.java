@@ -9,12 +9,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithSuper_ extends ModelWithSuper {
+  public static final long VALUE_INT_CHANGED = 1L << 0;
+
   public ModelWithSuper_() {
     super();
   }
 
   public ModelWithSuper_ valueInt(int valueInt) {
     this.valueInt = valueInt;
+    markDirty(VALUE_INT_CHANGED);
     super.valueInt(valueInt);
     return this;
   }
@@ -97,6 +100,19 @@ public class ModelWithSuper_ extends ModelWithSuper {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithSuper_)) {
+      return 0;
+    }
+    ModelWithSuper_ that = (ModelWithSuper_) other;
+    long changedAttributes = 0;
+    if (valueInt != that.valueInt) {
+      changedAttributes |= VALUE_INT_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithSuper_{" +
@@ -9,12 +9,15 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithType_<T extends String> extends ModelWithType<T> {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public ModelWithType_() {
     super();
   }
 
   public ModelWithType_<T> value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -96,6 +99,19 @@ public class ModelWithType_<T extends String> extends ModelWithType<T> {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithType_)) {
+      return 0;
+    }
+    ModelWithType_ that = (ModelWithType_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithType_{" +
@@ -10,6 +10,10 @@ import java.util.Arrays;
 /**
  * Generated file. Do not modify! */
 public class ModelWithVarargsConstructors_ extends ModelWithVarargsConstructors {
+  public static final long VARARGS_CHANGED = 1L << 0;
+
+  public static final long VALUE_INT_CHANGED = 1L << 1;
+
   public ModelWithVarargsConstructors(String... varargs) {
     super(varargs);
   }
@@ -20,6 +24,7 @@ public class ModelWithVarargsConstructors_ extends ModelWithVarargsConstructors
 
   public ModelWithVarargsConstructors_ varargs(String[] varargs) {
     this.varargs = varargs;
+    markDirty(VARARGS_CHANGED);
     return this;
   }
 
@@ -29,6 +34,7 @@ public class ModelWithVarargsConstructors_ extends ModelWithVarargsConstructors
 
   public ModelWithVarargsConstructors_ valueInt(int valueInt) {
     this.valueInt = valueInt;
+    markDirty(VALUE_INT_CHANGED);
     return this;
   }
 
@@ -115,6 +121,22 @@ public class ModelWithVarargsConstructors_ extends ModelWithVarargsConstructors
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithVarargsConstructors_)) {
+      return 0;
+    }
+    ModelWithVarargsConstructors_ that = (ModelWithVarargsConstructors_) other;
+    long changedAttributes = 0;
+    if (!Arrays.equals(varargs, that.varargs)) {
+      changedAttributes |= VARARGS_CHANGED;
+    }
+    if (valueInt != that.valueInt) {
+      changedAttributes |= VALUE_INT_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithVarargsConstructors_{" +
@@ -9,12 +9,17 @@ import java.lang.String;
 /**
  * Generated file. Do not modify! */
 public class ModelWithoutHash_ extends ModelWithoutHash {
+  public static final long VALUE_CHANGED = 1L << 0;
+
+  public static final long VALUE3_CHANGED = 1L << 1;
+
   public ModelWithoutHash_() {
     super();
   }
 
   public ModelWithoutHash_ value2(int value2) {
     this.value2 = value2;
+    markDirty();
     return this;
   }
 
@@ -24,6 +29,7 @@ public class ModelWithoutHash_ extends ModelWithoutHash {
 
   public ModelWithoutHash_ value(int value) {
     this.value = value;
+    markDirty(VALUE_CHANGED);
     return this;
   }
 
@@ -33,6 +39,7 @@ public class ModelWithoutHash_ extends ModelWithoutHash {
 
   public ModelWithoutHash_ value3(String value3) {
     this.value3 = value3;
+    markDirty(VALUE3_CHANGED);
     return this;
   }
 
@@ -120,6 +127,22 @@ public class ModelWithoutHash_ extends ModelWithoutHash {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithoutHash_)) {
+      return 0;
+    }
+    ModelWithoutHash_ that = (ModelWithoutHash_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    if (value3 != null && that.value3 == null || value3 == null && that.value3 != null) {
+      changedAttributes |= VALUE3_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithoutHash_{" +
@@ -10,6 +10,8 @@ import java.lang.String;
  * Generated file. Do not modify!
  */
 public class ModelWithoutSetter_ extends ModelWithoutSetter {
+  public static final long VALUE_CHANGED = 1L << 0;
+
   public ModelWithoutSetter_() {
     super();
   }
@@ -92,6 +94,19 @@ public class ModelWithoutSetter_ extends ModelWithoutSetter {
     return result;
   }
 
+  @Override
+  public long diffAttributes(EpoxyModel<?> other) {
+    if (!(other instanceof ModelWithoutSetter_)) {
+      return 0;
+    }
+    ModelWithoutSetter_ that = (ModelWithoutSetter_) other;
+    long changedAttributes = 0;
+    if (value != that.value) {
+      changedAttributes |= VALUE_CHANGED;
+    }
+    return changedAttributes;
+  }
+
   @Override
   public String toString() {
     return "ModelWithoutSetter_{" +